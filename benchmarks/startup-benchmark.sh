@@ -0,0 +1,98 @@
+#!/usr/bin/env bash
+# Records the time from launch to the first byte of output for each ddap-cli command, so that startup regressions
+# are visible between builds.
+#
+# Usage: startup-benchmark.sh <unpacked ddap-cli distribution> [iterations] [results file]
+#
+# DDAP_URL selects the DDAP used by the commands that call it. By default it is a closed local port, which measures
+# startup up to the first (connection) error. The daemon is always bypassed, and the daemon command is measured up
+# to the line saying it listens.
+#
+# Results are written as a JSON array with one entry per command (times in milliseconds).
+
+set -e
+
+distribution="$1"
+iterations="${2:-10}"
+resultsFile="${3:-startup-benchmark.json}"
+ddapUrl="${DDAP_URL:-http://127.0.0.1:9}"
+
+if [ -z "${distribution}" ] || [ ! -x "${distribution}/bin/ddap-cli" ]; then
+  echo "Usage: $0 <unpacked ddap-cli distribution> [iterations] [results file]" >&2
+  exit 1
+fi
+
+workDir="$(mktemp -d)"
+trap 'rm -rf "${workDir}"' EXIT
+printf '{"url":"%s","realm":"benchmark","credentials":{}}' "${ddapUrl}" > "${workDir}/.ddap-cli"
+
+# Prints the milliseconds until the command writes its first byte, then stops the command.
+firstOutputMillis() {
+  local fifo="${workDir}/output"
+  rm -f "${fifo}"
+  mkfifo "${fifo}"
+
+  local start end pid
+  start=$(date +%s%N)
+  HOME="${workDir}" DDAP_CLI_NO_DAEMON=1 "${distribution}/bin/ddap-cli" "$@" < /dev/null > "${fifo}" 2>&1 &
+  pid=$!
+  IFS= read -r -n 1 _ < "${fifo}" || true
+  end=$(date +%s%N)
+  kill "${pid}" 2> /dev/null || true
+  wait "${pid}" 2> /dev/null || true
+  echo $(( (end - start) / 1000000 ))
+}
+
+# Prints a JSON object summarizing the given samples.
+summarize() {
+  local command="$1"
+  shift
+  local sorted
+  sorted=($(printf '%s\n' "$@" | sort -n))
+  local count=${#sorted[@]}
+  printf '{"command":"%s","iterations":%d,"minMillis":%d,"medianMillis":%d,"maxMillis":%d}' \
+    "${command}" "${count}" "${sorted[0]}" "${sorted[$((count / 2))]}" "${sorted[$((count - 1))]}"
+}
+
+benchmark() {
+  local command="$1"
+  local samples=()
+  # One untimed run first, so the class-data-sharing archive (if any) exists before measuring.
+  firstOutputMillis "$@" > /dev/null
+  while compgen -G "${distribution}/lib/*.lock" > /dev/null || compgen -G "${workDir}/.ddap-cli-cds/*.lock" > /dev/null; do
+    sleep 0.2
+  done
+  for ((i = 0; i < iterations; i++)); do
+    samples+=("$(firstOutputMillis "$@")")
+  done
+  summarize "${command}" "${samples[@]}"
+}
+
+{
+  echo "["
+  benchmark help help
+  echo ","
+  benchmark list list
+  echo ","
+  benchmark get-access get-access -i benchmark
+  echo ","
+  benchmark login login -l "${ddapUrl}"
+  echo ","
+  benchmark daemon daemon
+  echo ","
+  benchmark serve-metadata serve-metadata -i benchmark --port 0
+  echo ","
+  benchmark download download -i benchmark --url gs://benchmark --object benchmark --destination "${workDir}/download"
+  echo ","
+  benchmark ls ls benchmark --url gs://benchmark
+  echo ","
+  benchmark verify verify benchmark --url gs://benchmark --directory "${workDir}"
+  echo ","
+  benchmark beacon-query beacon-query -i benchmark --url "${ddapUrl}/query"
+  echo ","
+  benchmark stats stats
+  echo
+  echo "]"
+} > "${resultsFile}"
+
+cat "${resultsFile}"
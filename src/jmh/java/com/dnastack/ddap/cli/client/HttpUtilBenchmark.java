@@ -0,0 +1,69 @@
+package com.dnastack.ddap.cli.client;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import feign.FeignException;
+import feign.Request;
+import feign.Response;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading the message of a DDAP error, from a JSON error body and from a body that is not JSON.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+public class HttpUtilBenchmark {
+
+    @Param({"json", "html"})
+    private String body;
+
+    private ObjectMapper jsonMapper;
+    private FeignException feignException;
+    private Response.Body responseBody;
+
+    @Setup
+    public void setUp() {
+        // As CliRuntime configures it.
+        jsonMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        final String content = "json".equals(body) ?
+            "{\"message\":\"resource \\\"sample-resource\\\" view \\\"file-access\\\" not found\",\"statusCode\":404,\"details\":[]}" :
+            "<html><head><title>502 Bad Gateway</title></head><body><h1>502 Bad Gateway</h1></body></html>";
+        final Response response = Response.builder()
+                                          .status(404)
+                                          .reason("Not Found")
+                                          .headers(Map.of())
+                                          .request(Request.create(Request.HttpMethod.GET,
+                                              "https://ddap.example.org/api/v1beta/dnastack/resources",
+                                              Map.of(),
+                                              null,
+                                              StandardCharsets.UTF_8))
+                                          .body(content, StandardCharsets.UTF_8)
+                                          .build();
+        feignException = FeignException.errorStatus("DdapFrontendClient#getResources(String)", response);
+        responseBody = response.body();
+    }
+
+    @Benchmark
+    public String parseFeignException() {
+        return HttpUtil.parseDdapErrorMessage(jsonMapper, feignException);
+    }
+
+    @Benchmark
+    public String parseResponseBody() {
+        return HttpUtil.parseDdapErrorMessage(jsonMapper, responseBody);
+    }
+}
@@ -0,0 +1,103 @@
+package com.dnastack.ddap.cli.client.dam.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Builds v1beta resource listings shaped like those of a DDAP deployment: each resource has a file view with
+ * {@code gcp:gs} and {@code http:gcp:gs} interfaces and a discovery view with an {@code http:beacon} interface.
+ */
+public class Catalogs {
+
+    private Catalogs() {
+    }
+
+    /**
+     * The JSON of a listing of the given number of resources.
+     */
+    public static byte[] resourceListing(ObjectMapper jsonMapper, int resources) {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream(resources * 1024);
+        try (JsonGenerator generator = jsonMapper.getFactory().createGenerator(output)) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("data");
+            for (int i = 0; i < resources; i++) {
+                writeResource(generator, i);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return output.toByteArray();
+    }
+
+    private static void writeResource(JsonGenerator generator, int i) throws IOException {
+        final String id = "resource-" + i;
+        generator.writeStartObject();
+        generator.writeStringField("id", id);
+        generator.writeObjectFieldStart("ui");
+        generator.writeStringField("label", "Resource " + i);
+        generator.writeStringField("description", "Sequencing reads and variant calls of cohort " + i);
+        generator.writeStringField("tags", "Genomics, Cohort " + (i % 20));
+        generator.writeStringField("owner", "Data Steward " + (i % 7));
+        generator.writeEndObject();
+
+        generator.writeObjectFieldStart("views");
+        generator.writeObjectFieldStart("file-access");
+        writeUi(generator, "Files");
+        generator.writeObjectFieldStart("interfaces");
+        writeInterface(generator, "gcp:gs", "gs://" + id + "-controlled-access");
+        writeInterface(generator, "http:gcp:gs", "https://storage.googleapis.com/storage/v1/b/" + id + "-controlled-access");
+        generator.writeEndObject();
+        writeRoles(generator, "viewer");
+        generator.writeStringField("defaultRole", "viewer");
+        generator.writeEndObject();
+
+        generator.writeObjectFieldStart("discovery-access");
+        writeUi(generator, "Beacon");
+        generator.writeObjectFieldStart("interfaces");
+        writeInterface(generator, "http:beacon", "https://beacon.example.org/" + id + "/query");
+        generator.writeEndObject();
+        writeRoles(generator, "discovery");
+        generator.writeStringField("defaultRole", "discovery");
+        generator.writeEndObject();
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    private static void writeUi(JsonGenerator generator, String label) throws IOException {
+        generator.writeObjectFieldStart("ui");
+        generator.writeStringField("label", label);
+        generator.writeStringField("description", label + " of the resource");
+        generator.writeEndObject();
+    }
+
+    private static void writeInterface(JsonGenerator generator, String type, String uri) throws IOException {
+        generator.writeObjectFieldStart(type);
+        generator.writeObjectFieldStart("labels");
+        generator.writeStringField("platform", "gcp");
+        generator.writeEndObject();
+        generator.writeArrayFieldStart("uri");
+        generator.writeString(uri);
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    private static void writeRoles(JsonGenerator generator, String role) throws IOException {
+        generator.writeObjectFieldStart("roles");
+        generator.writeObjectFieldStart(role);
+        generator.writeObjectFieldStart("ui");
+        generator.writeStringField("label", role);
+        generator.writeEndObject();
+        generator.writeArrayFieldStart("policies");
+        generator.writeString("bona_fide");
+        generator.writeString("ethics");
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,54 @@
+package com.dnastack.ddap.cli.client.dam.model;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a resource listing, as {@code list} does, with and without decoding every view's interfaces.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ResourceResponseBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    private int resources;
+
+    private ObjectMapper jsonMapper;
+    private byte[] listing;
+
+    @Setup
+    public void setUp() {
+        // As CliRuntime configures it.
+        jsonMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        listing = Catalogs.resourceListing(jsonMapper, resources);
+    }
+
+    @Benchmark
+    public ResourceResponse read() throws IOException {
+        return jsonMapper.readValue(listing, ResourceResponse.class);
+    }
+
+    @Benchmark
+    public void readViews(Blackhole blackhole) throws IOException {
+        for (Resource resource : jsonMapper.readValue(listing, ResourceResponse.class).getData()) {
+            for (View view : resource.getViews().values()) {
+                blackhole.consume(view.getInterfaces().getInterfacesByType());
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.dnastack.ddap.cli.login;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Loading and persisting the context, which every command does at least once. Persisting includes the file lock and
+ * the forced write to disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+public class ContextDAOBenchmark {
+
+    private Path homeDirectory;
+    private ContextDAO contextDAO;
+    private Context context;
+
+    @Setup
+    public void setUp() throws IOException, ContextDAO.PersistenceException {
+        homeDirectory = Files.createTempDirectory("ddap-cli-benchmark");
+        // As CliRuntime configures it.
+        final ObjectMapper jsonMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        contextDAO = new ContextDAO(homeDirectory.toFile(), jsonMapper);
+        context = new Context("https://ddap.example.org",
+            "dnastack",
+            new Credentials("user", "secret", "c2Vzc2lvbi1kZWNyeXB0aW9uLWtleQ==", "x".repeat(512)));
+        context.setSessionConfirmedAt(System.currentTimeMillis());
+        contextDAO.replace(context);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(homeDirectory)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public Context load() throws ContextDAO.PersistenceException {
+        return contextDAO.load();
+    }
+
+    @Benchmark
+    public boolean persist() throws ContextDAO.PersistenceException {
+        return contextDAO.persist(context);
+    }
+}
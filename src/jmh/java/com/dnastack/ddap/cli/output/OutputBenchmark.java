@@ -0,0 +1,97 @@
+package com.dnastack.ddap.cli.output;
+
+import com.dnastack.ddap.cli.client.dam.model.Catalogs;
+import com.dnastack.ddap.cli.client.dam.model.Resource;
+import com.dnastack.ddap.cli.client.dam.model.ResourceResponse;
+import com.dnastack.ddap.cli.client.dam.model.ResourceTokens;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing a resource listing, as {@code list} does, and the tokens of {@code get-access}, in YAML and JSON.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class OutputBenchmark {
+
+    @Param({"yaml", "json"})
+    private String format;
+
+    @Param({"100", "10000"})
+    private int resources;
+
+    private ObjectMapper mapper;
+    private List<Resource> catalog;
+    private Map<String, ResourceTokens> tokens;
+    private CountingOutputStream output;
+
+    @Setup
+    public void setUp() throws IOException {
+        // As CliRuntime configures them.
+        final ObjectMapper jsonMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        mapper = "yaml".equals(format) ? new ObjectMapper(new YAMLFactory()) : jsonMapper;
+        catalog = jsonMapper.readValue(Catalogs.resourceListing(jsonMapper, resources), ResourceResponse.class).getData();
+        tokens = new LinkedHashMap<>();
+        for (int i = 0; i < 4; i++) {
+            final String interfaceId = "resource-" + i + "/file-access/viewer";
+            tokens.put(interfaceId, new ResourceTokens(null, interfaceId, null, Map.of(
+                "access_token", "ya29.c.Kl6iB-" + "x".repeat(180) + i,
+                "expires_in", "3599",
+                "account", "ddap-user-" + i + "@project.iam.gserviceaccount.com")));
+        }
+        output = new CountingOutputStream();
+    }
+
+    @Benchmark
+    public long writeResources() throws IOException {
+        try (ResourceWriter writer = new DocumentResourceWriter(mapper, output)) {
+            for (Resource resource : catalog) {
+                writer.write(resource);
+            }
+            writer.finish(null);
+        }
+        return output.count;
+    }
+
+    @Benchmark
+    public long writeTokens() throws IOException {
+        TokenWriter.writeDocument(mapper, output, tokens);
+        return output.count;
+    }
+
+    /**
+     * Discards what is written, so that only serialization is measured.
+     */
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package com.dnastack.ddap.cli;
 
+import com.dnastack.ddap.cli.client.dam.ResiliencePolicy;
+import com.dnastack.ddap.cli.login.Context;
 import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.OptionGroup;
 import org.apache.commons.cli.Options;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 class CliOptions {
@@ -17,14 +20,104 @@ class CliOptions {
     static final String LOCATION_OPT = "l";
     static final String USER_OPT = "u";
     static final String REALM_OPT = "r";
+    static final String SESSION_FRESHNESS_OPT = "s";
+    static final String RESPONSE_TTL_OPT = "t";
+    static final String MANIFEST_OPT = "m";
+    static final String PARALLELISM_OPT = "w";
+    static final String COMPLETION_OPT = "c";
+    static final String FORCE_OPT = "force";
+    static final String STREAM_OPT = "stream";
+    static final String INTERFACE_TYPE_OPT = "interface-type";
+    static final String VIEW_NAME_OPT = "view";
+    static final String ROLE_OPT = "role";
+    static final String TAG_OPT = "tag";
+    static final String LABEL_OPT = "label";
+    static final String FIELDS_OPT = "fields";
+    static final String FAN_OUT_OPT = "fan-out";
+    static final String DAM_DEADLINE_OPT = "dam-deadline";
+    static final String OUTPUT_OPT = "o";
+    static final String PORT_OPT = "port";
+    static final String SECRET_PATH_OPT = "secret-path";
+    static final String URL_OPT = "url";
+    static final String OBJECT_OPT = "object";
+    static final String DESTINATION_OPT = "destination";
+    static final String CHUNK_SIZE_OPT = "chunk-size";
+    static final String SPLIT_OPT = "split";
+    static final String DIRECTORY_OPT = "directory";
+    static final String MD5_OPT = "md5";
+    static final String TIMINGS_OPT = "timings";
+    static final String TIMINGS_FILE_OPT = "timings-file";
+    static final String CALL_TIMEOUT_OPT = "call-timeout";
+    static final String HEDGE_PERCENTILE_OPT = "hedge-percentile";
+    static final String WINDOW_OPT = "window";
+    static final String SINCE_OPT = "since";
+    static final String INPUT_OPT = "input";
+    static final String ASSEMBLY_OPT = "assembly";
+
+    static final int DEFAULT_RESPONSE_TTL_IN_SECONDS = 15;
+    static final int DEFAULT_PARALLELISM = 8;
+    static final int DEFAULT_DAM_DEADLINE_IN_SECONDS = 10;
+    static final int DEFAULT_METADATA_PORT = 8980;
+    static final int DEFAULT_CHUNK_SIZE_IN_MIB = 8;
+    static final String DEFAULT_ASSEMBLY = "GRCh37";
+    static final int DEFAULT_STATS_WINDOW_IN_MINUTES = 60;
+    static final int DEFAULT_STATS_SINCE_IN_HOURS = 24;
+
+    static final String EVENTS_COMPLETION = "events";
+    static final String BACKOFF_COMPLETION = "backoff";
+    static final String LOOPBACK_COMPLETION = "loopback";
+
+    static final String YAML_OUTPUT = "yaml";
+    static final String JSON_OUTPUT = "json";
+    static final String NDJSON_OUTPUT = "ndjson";
+    static final String TSV_OUTPUT = "tsv";
 
     static final String LOGIN_CMD = "login";
     static final String LIST_CMD = "list";
     static final String GET_ACCESS_CMD = "get-access";
     static final String HELP_CMD = "help";
+    static final String DAEMON_CMD = "daemon";
+    static final String SERVE_METADATA_CMD = "serve-metadata";
+    static final String DOWNLOAD_CMD = "download";
+    static final String LS_CMD = "ls";
+    static final String VERIFY_CMD = "verify";
+    static final String BEACON_QUERY_CMD = "beacon-query";
+    static final String STATS_CMD = "stats";
 
     static void addGlobalOptions(Options options) {
         options.addOption(debugOption());
+        options.addOption(Option.builder()
+                                .longOpt(TIMINGS_OPT)
+                                .desc("Write how long each phase and HTTP call took to standard error, as a line of JSON.")
+                                .required(false)
+                                .hasArg(false)
+                                .build());
+        options.addOption(Option.builder()
+                                .longOpt(TIMINGS_FILE_OPT)
+                                .desc("Write the timings of --timings to this file instead.")
+                                .required(false)
+                                .hasArg()
+                                .type(String.class)
+                                .build());
+        options.addOption(Option.builder()
+                                .longOpt(CALL_TIMEOUT_OPT)
+                                .desc(String.format("Seconds to wait for each DDAP call (default %d), or for the calls of one "
+                                                    + "endpoint as endpoint=seconds (for example getResources=60). Repeat, "
+                                                    + "or separate with commas, for several.",
+                                                    ResiliencePolicy.DEFAULT_TIMEOUT.toSeconds()))
+                                .required(false)
+                                .hasArgs()
+                                .valueSeparator(',')
+                                .build());
+        options.addOption(Option.builder()
+                                .longOpt(HEDGE_PERCENTILE_OPT)
+                                .desc(String.format("Send a DDAP GET again once it has taken longer than this percentile of "
+                                                    + "recent calls to the same endpoint (default %s), or 0 to never.",
+                                                    ResiliencePolicy.DEFAULT_HEDGE_PERCENTILE))
+                                .required(false)
+                                .hasArg()
+                                .type(Double.class)
+                                .build());
     }
 
     static Option debugOption() {
@@ -42,7 +135,71 @@ class CliOptions {
     }
 
     static Options listOptions() {
-        return new Options();
+        return new Options()
+                .addOption(outputOption("Output format: %s (default), %s, %s (one interface per line) or %s (one "
+                                        + "interface per row)."))
+                .addOption(Option.builder()
+                                 .longOpt(STREAM_OPT)
+                                 .desc("Read the catalog directly from DDAP, writing each resource as soon as it arrives, "
+                                       + "instead of from the local snapshot.")
+                                 .required(false)
+                                 .hasArg(false)
+                                 .build())
+                .addOption(listFilterOption(INTERFACE_TYPE_OPT, "Only interfaces of these types, such as gcp:gs or http:beacon."))
+                .addOption(listFilterOption(VIEW_NAME_OPT, "Only these views."))
+                .addOption(listFilterOption(ROLE_OPT, "Only views with these roles, showing only these roles."))
+                .addOption(listFilterOption(TAG_OPT, "Only resources with one of these tags (ui.tags, ignoring case)."))
+                .addOption(Option.builder()
+                                 .longOpt(LABEL_OPT)
+                                 .desc("Only resources whose label (ui.label) contains this text, ignoring case.")
+                                 .required(false)
+                                 .hasArg()
+                                 .type(String.class)
+                                 .build())
+                .addOption(Option.builder()
+                                 .longOpt(FIELDS_OPT)
+                                 .desc("Only these fields of each resource, as dot-separated paths where * matches any key "
+                                       + "(for example id,ui.label,views.*.interfaces).")
+                                 .required(false)
+                                 .hasArg()
+                                 .type(String.class)
+                                 .build())
+                .addOption(Option.builder()
+                                 .longOpt(FAN_OUT_OPT)
+                                 .desc("Query every DAM separately and at once, listing the resources of the DAMs that "
+                                       + "answer in time together with the status of each DAM.")
+                                 .required(false)
+                                 .hasArg(false)
+                                 .build())
+                .addOption(Option.builder()
+                                 .longOpt(DAM_DEADLINE_OPT)
+                                 .desc(String.format("With --%s, seconds to wait for each DAM (default %d).",
+                                                     FAN_OUT_OPT,
+                                                     DEFAULT_DAM_DEADLINE_IN_SECONDS))
+                                 .required(false)
+                                 .hasArg()
+                                 .type(Integer.class)
+                                 .build());
+    }
+
+    private static Option outputOption(String description) {
+        return Option.builder(OUTPUT_OPT)
+                     .longOpt("output")
+                     .desc(String.format(description, YAML_OUTPUT, JSON_OUTPUT, NDJSON_OUTPUT, TSV_OUTPUT))
+                     .required(false)
+                     .hasArg()
+                     .type(String.class)
+                     .build();
+    }
+
+    private static Option listFilterOption(String longOpt, String description) {
+        return Option.builder()
+                     .longOpt(longOpt)
+                     .desc(description + " Repeat, or separate with commas, for several.")
+                     .required(false)
+                     .hasArgs()
+                     .valueSeparator(',')
+                     .build();
     }
 
     static Options getAccessOptions() {
@@ -62,13 +219,277 @@ class CliOptions {
         return new Options()
                 .addOption(Option.builder(INTERFACE_ID_OPT)
                                  .longOpt("interfaceId")
-                                 .required()
-                                 .desc("An ID of an Interface")
+                                 .required(false)
+                                 .desc("An ID of an Interface. Repeat, or separate with commas, to get access to several at once.")
+                                 .hasArgs()
+                                 .valueSeparator(',')
+                                 .build())
+                .addOption(Option.builder(MANIFEST_OPT)
+                                 .longOpt("manifest")
+                                 .desc("A file listing interface IDs, one per line.")
+                                 .required(false)
+                                 .hasArg()
+                                 .type(String.class)
+                                 .build())
+                .addOption(Option.builder(PARALLELISM_OPT)
+                                 .longOpt("parallelism")
+                                 .desc(String.format("Maximum number of interfaces to wait for at a time (default %d).",
+                                                     DEFAULT_PARALLELISM))
+                                 .required(false)
                                  .hasArg()
+                                 .type(Integer.class)
                                  .build())
+                .addOption(completionOption())
+                .addOption(forceOption())
+                .addOption(outputOption("Format of printed tokens: %s (default), %s, %s (one interface per line) or "
+                                        + "%s (one interface per row)."))
                 .addOptionGroup(outputGroup);
     }
 
+    private static Option completionOption() {
+        return Option.builder(COMPLETION_OPT)
+                     .longOpt("completion")
+                     .desc(String.format("How to wait for web authorization: %s (default; an event stream or long poll, "
+                                         + "else %s), %s (poll less and less often) or %s (a callback on "
+                                         + "this machine, for a local browser).",
+                                         EVENTS_COMPLETION,
+                                         BACKOFF_COMPLETION,
+                                         BACKOFF_COMPLETION,
+                                         LOOPBACK_COMPLETION))
+                     .required(false)
+                     .hasArg()
+                     .type(String.class)
+                     .build();
+    }
+
+    private static Option forceOption() {
+        return Option.builder()
+                     .longOpt(FORCE_OPT)
+                     .desc("Authorize again even if an unexpired token is cached.")
+                     .required(false)
+                     .hasArg(false)
+                     .build();
+    }
+
+    static Options serveMetadataOptions() {
+        return new Options()
+                .addOption(Option.builder(INTERFACE_ID_OPT)
+                                 .longOpt("interfaceId")
+                                 .desc("The ID of the interface whose token is served.")
+                                 .required()
+                                 .hasArg()
+                                 .type(String.class)
+                                 .build())
+                .addOption(Option.builder()
+                                 .longOpt(PORT_OPT)
+                                 .desc(String.format("Loopback port to serve metadata on (default %d). Every user of this "
+                                                     + "machine can connect to it, so without --secret-path they can all "
+                                                     + "read the token.", DEFAULT_METADATA_PORT))
+                                 .required(false)
+                                 .hasArg()
+                                 .type(Integer.class)
+                                 .build())
+                .addOption(Option.builder()
+                                 .longOpt(SECRET_PATH_OPT)
+                                 .desc("Serve metadata only below a random path chosen for this run, which is printed as "
+                                       + "part of GCE_METADATA_HOST.")
+                                 .required(false)
+                                 .hasArg(false)
+                                 .build())
+                .addOption(completionOption());
+    }
+
+    static Options downloadOptions() {
+        return new Options()
+                .addOption(Option.builder(INTERFACE_ID_OPT)
+                                 .longOpt("interfaceId")
+                                 .desc("The ID of the bucket interface to get a token for.")
+                                 .required()
+                                 .hasArg()
+                                 .type(String.class)
+                                 .build())
+                .addOption(Option.builder()
+                                 .longOpt(URL_OPT)
+                                 .desc("The bucket URI of the interface, as listed: gs://<bucket> or a storage URL.")
+                                 .required()
+                                 .hasArg()
+                                 .type(String.class)
+                                 .build())
+                .addOption(Option.builder()
+                                 .longOpt(OBJECT_OPT)
+                                 .desc("The path of the object in the bucket.")
+                                 .required()
+                                 .hasArg()
+                                 .type(String.class)
+                                 .build())
+                .addOption(Option.builder()
+                                 .longOpt(DESTINATION_OPT)
+                                 .desc("The file to write (default: the object's file name in the working directory).")
+                                 .required(false)
+                                 .hasArg()
+                                 .type(String.class)
+                                 .build())
+                .addOption(Option.builder()
+                                 .longOpt(CHUNK_SIZE_OPT)
+                                 .desc(String.format("Size of each range in MiB (default %d).", DEFAULT_CHUNK_SIZE_IN_MIB))
+                                 .required(false)
+                                 .hasArg()
+                                 .type(Integer.class)
+                                 .build())
+                .addOption(Option.builder(PARALLELISM_OPT)
+                                 .longOpt("parallelism")
+                                 .desc(String.format("Maximum number of ranges to fetch at a time (default %d).",
+                                                     DEFAULT_PARALLELISM))
+                                 .required(false)
+                                 .hasArg()
+                                 .type(Integer.class)
+                                 .build())
+                .addOption(completionOption())
+                .addOption(forceOption());
+    }
+
+    /**
+     * Options of {@code ls <interfaceId> [prefix]}.
+     */
+    static Options lsOptions() {
+        return new Options()
+                .addOption(Option.builder()
+                                 .longOpt(URL_OPT)
+                                 .desc("The bucket URI of the interface, as listed: gs://<bucket> or a storage JSON API URL.")
+                                 .required()
+                                 .hasArg()
+                                 .type(String.class)
+                                 .build())
+                .addOption(Option.builder()
+                                 .longOpt(SPLIT_OPT)
+                                 .desc("List each prefix one level below the given prefix separately and at once, for very "
+                                       + "large buckets. Objects are then not in name order.")
+                                 .required(false)
+                                 .hasArg(false)
+                                 .build())
+                .addOption(Option.builder(PARALLELISM_OPT)
+                                 .longOpt("parallelism")
+                                 .desc(String.format("With --%s, maximum number of prefixes to list at a time (default %d).",
+                                                     SPLIT_OPT,
+                                                     DEFAULT_PARALLELISM))
+                                 .required(false)
+                                 .hasArg()
+                                 .type(Integer.class)
+                                 .build())
+                .addOption(completionOption())
+                .addOption(forceOption());
+    }
+
+    /**
+     * Options of {@code verify <interfaceId> [prefix]}.
+     */
+    static Options verifyOptions() {
+        return new Options()
+                .addOption(Option.builder()
+                                 .longOpt(URL_OPT)
+                                 .desc("The bucket URI of the interface, as listed: gs://<bucket> or a storage JSON API URL.")
+                                 .required()
+                                 .hasArg()
+                                 .type(String.class)
+                                 .build())
+                .addOption(Option.builder()
+                                 .longOpt(DIRECTORY_OPT)
+                                 .desc("The directory holding the downloaded objects, named by their path after the last / "
+                                       + "of the prefix (default: the working directory).")
+                                 .required(false)
+                                 .hasArg()
+                                 .type(String.class)
+                                 .build())
+                .addOption(Option.builder()
+                                 .longOpt(MD5_OPT)
+                                 .desc("Compare MD5 hashes too, which cannot be computed in parallel within a file.")
+                                 .required(false)
+                                 .hasArg(false)
+                                 .build())
+                .addOption(Option.builder(PARALLELISM_OPT)
+                                 .longOpt("parallelism")
+                                 .desc("Number of threads hashing at once (default: the number of processors).")
+                                 .required(false)
+                                 .hasArg()
+                                 .type(Integer.class)
+                                 .build())
+                .addOption(completionOption())
+                .addOption(forceOption());
+    }
+
+    static Options beaconQueryOptions() {
+        return new Options()
+                .addOption(Option.builder(INTERFACE_ID_OPT)
+                                 .longOpt("interfaceId")
+                                 .desc("The ID of the http:beacon interface to get a token for.")
+                                 .required()
+                                 .hasArg()
+                                 .type(String.class)
+                                 .build())
+                .addOption(Option.builder()
+                                 .longOpt(URL_OPT)
+                                 .desc("The query URI of the interface, as listed.")
+                                 .required()
+                                 .hasArg()
+                                 .type(String.class)
+                                 .build())
+                .addOption(Option.builder()
+                                 .longOpt(INPUT_OPT)
+                                 .desc("A file of queries, one per line: a JSON object of query parameters, or the reference "
+                                       + "name, start, reference bases, alternate bases and optionally assembly ID separated "
+                                       + "by whitespace (default: standard in).")
+                                 .required(false)
+                                 .hasArg()
+                                 .type(String.class)
+                                 .build())
+                .addOption(Option.builder()
+                                 .longOpt(ASSEMBLY_OPT)
+                                 .desc(String.format("Assembly ID of queries that do not give one (default %s).", DEFAULT_ASSEMBLY))
+                                 .required(false)
+                                 .hasArg()
+                                 .type(String.class)
+                                 .build())
+                .addOption(Option.builder(PARALLELISM_OPT)
+                                 .longOpt("parallelism")
+                                 .desc(String.format("Maximum number of queries in flight (default %d).", DEFAULT_PARALLELISM))
+                                 .required(false)
+                                 .hasArg()
+                                 .type(Integer.class)
+                                 .build())
+                .addOption(completionOption())
+                .addOption(forceOption());
+    }
+
+    static Options statsOptions() {
+        return new Options()
+                .addOption(Option.builder()
+                                 .longOpt(WINDOW_OPT)
+                                 .desc(String.format("Minutes per time window (default %d).", DEFAULT_STATS_WINDOW_IN_MINUTES))
+                                 .required(false)
+                                 .hasArg()
+                                 .type(Integer.class)
+                                 .build())
+                .addOption(Option.builder()
+                                 .longOpt(SINCE_OPT)
+                                 .desc(String.format("Hours of history to report (default %d).", DEFAULT_STATS_SINCE_IN_HOURS))
+                                 .required(false)
+                                 .hasArg()
+                                 .type(Integer.class)
+                                 .build());
+    }
+
+    static Options daemonOptions() {
+        return new Options()
+                .addOption(Option.builder(RESPONSE_TTL_OPT)
+                                 .longOpt("response-ttl")
+                                 .desc(String.format("Seconds to serve a listed catalog again without asking DDAP (default %d).",
+                                                     DEFAULT_RESPONSE_TTL_IN_SECONDS))
+                                 .required(false)
+                                 .hasArg()
+                                 .type(Integer.class)
+                                 .build());
+    }
+
     static Options loginOptions() {
         return new Options()
                 .addOption(Option.builder(LOCATION_OPT)
@@ -92,17 +513,68 @@ class CliOptions {
                                  .required(false)
                                  .hasArg()
                                  .type(String.class)
+                                 .build())
+                .addOption(Option.builder(SESSION_FRESHNESS_OPT)
+                                 .longOpt("session-freshness")
+                                 .desc(String.format("Seconds to trust a confirmed session before checking it again (default %d).",
+                                                     Context.DEFAULT_SESSION_FRESHNESS_IN_SECONDS))
+                                 .required(false)
+                                 .hasArg()
+                                 .type(Integer.class)
                                  .build());
     }
 
+    /**
+     * Builds the options of a single command, or returns null if the command is unknown.
+     */
+    static Options commandOptions(String command) {
+        final Options options;
+        switch (command) {
+            case LOGIN_CMD:
+                options = loginOptions();
+                break;
+            case LIST_CMD:
+                options = listOptions();
+                break;
+            case GET_ACCESS_CMD:
+                options = getAccessOptions();
+                break;
+            case HELP_CMD:
+                options = helpOptions();
+                break;
+            case DAEMON_CMD:
+                options = daemonOptions();
+                break;
+            case SERVE_METADATA_CMD:
+                options = serveMetadataOptions();
+                break;
+            case DOWNLOAD_CMD:
+                options = downloadOptions();
+                break;
+            case LS_CMD:
+                options = lsOptions();
+                break;
+            case VERIFY_CMD:
+                options = verifyOptions();
+                break;
+            case BEACON_QUERY_CMD:
+                options = beaconQueryOptions();
+                break;
+            case STATS_CMD:
+                options = statsOptions();
+                break;
+            default:
+                return null;
+        }
+        addGlobalOptions(options);
+        return options;
+    }
+
     public static Map<String, Options> getCommandOptions() {
         final Map<String, Options> optionsByCommand = new HashMap<>();
-        optionsByCommand.put(LOGIN_CMD, loginOptions());
-        optionsByCommand.put(LIST_CMD, listOptions());
-        optionsByCommand.put(GET_ACCESS_CMD, getAccessOptions());
-        optionsByCommand.put(HELP_CMD, helpOptions());
-
-        optionsByCommand.forEach((k, v) -> addGlobalOptions(v));
+        for (String command : List.of(LOGIN_CMD, LIST_CMD, GET_ACCESS_CMD, HELP_CMD, DAEMON_CMD, SERVE_METADATA_CMD, DOWNLOAD_CMD, LS_CMD, VERIFY_CMD, BEACON_QUERY_CMD, STATS_CMD)) {
+            optionsByCommand.put(command, commandOptions(command));
+        }
         return optionsByCommand;
     }
 
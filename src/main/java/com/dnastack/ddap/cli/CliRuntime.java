@@ -0,0 +1,375 @@
+package com.dnastack.ddap.cli;
+
+import com.dnastack.ddap.cli.client.DdapTransport;
+import com.dnastack.ddap.cli.client.dam.AsyncDdapFrontendClient;
+import com.dnastack.ddap.cli.client.dam.DdapFrontendClient;
+import com.dnastack.ddap.cli.client.dam.FeignClientBuilder;
+import com.dnastack.ddap.cli.client.dam.FrontendHealth;
+import com.dnastack.ddap.cli.client.dam.ResiliencePolicy;
+import com.dnastack.ddap.cli.client.dam.model.ResourceResponse;
+import com.dnastack.ddap.cli.client.ddap.DdapHttpClient;
+import com.dnastack.ddap.cli.client.ddap.DdapSessionManager;
+import com.dnastack.ddap.cli.client.ddap.SessionInterceptor;
+import com.dnastack.ddap.cli.login.Context;
+import com.dnastack.ddap.cli.login.ContextDAO;
+import com.dnastack.ddap.cli.login.SessionRefreshLease;
+import com.dnastack.ddap.cli.resources.SnapshotStore;
+import com.dnastack.ddap.cli.resources.TokenCache;
+import com.dnastack.ddap.cli.timing.LatencyLog;
+import com.dnastack.ddap.cli.timing.Timings;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import okhttp3.OkHttpClient;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Components that commands share. A one-shot invocation builds one of these and discards it; the daemon keeps one
+ * alive so that mappers, connections, the login context and recent responses stay warm between requests.
+ * <p>
+ * Every component is built on first use, so a command only pays for the parts it needs (help builds none).
+ */
+public class CliRuntime {
+
+    private static class Shared {
+        private final File homeDirectory;
+        private final long responseTtlMillis;
+        private ObjectMapper jsonMapper;
+        private ObjectMapper yamlMapper;
+        private ObjectMapper smileMapper;
+        private ContextDAO contextDAO;
+        private SessionRefreshLease sessionRefreshLease;
+        private DdapTransport transport;
+        private TokenCache tokenCache;
+        private SnapshotStore snapshotStore;
+        private LatencyLog latencyLog;
+        private final Map<String, FrontendHealth> frontendHealthByUrl = new HashMap<>();
+
+        private Context cachedContext;
+        private long cachedContextStamp;
+
+        private Context clientContext;
+        private String clientUrl;
+        private boolean clientDebugLogging;
+        private ResiliencePolicy clientResiliencePolicy;
+        private DdapSessionManager clientSessionManager;
+        private OkHttpClient clientHttp;
+        private DdapFrontendClient client;
+        private AsyncDdapFrontendClient asyncClient;
+
+        private Context resourcesContext;
+        private ResourceResponse resources;
+        private long resourcesCachedAt;
+
+        Shared(File homeDirectory, long responseTtlMillis) {
+            this.homeDirectory = homeDirectory;
+            this.responseTtlMillis = responseTtlMillis;
+        }
+
+        synchronized ObjectMapper jsonMapper() {
+            if (jsonMapper == null) {
+                jsonMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+            }
+            return jsonMapper;
+        }
+
+        synchronized ObjectMapper yamlMapper() {
+            if (yamlMapper == null) {
+                yamlMapper = new ObjectMapper(new YAMLFactory());
+            }
+            return yamlMapper;
+        }
+
+        synchronized ObjectMapper smileMapper() {
+            if (smileMapper == null) {
+                // Catalogs repeat many values (labels, roles, interface types), which Smile can then back-reference.
+                smileMapper = new ObjectMapper(new SmileFactory().enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES));
+            }
+            return smileMapper;
+        }
+
+        synchronized SnapshotStore snapshotStore() {
+            if (snapshotStore == null) {
+                snapshotStore = new SnapshotStore(homeDirectory, jsonMapper(), smileMapper());
+            }
+            return snapshotStore;
+        }
+
+        synchronized ContextDAO contextDAO() {
+            if (contextDAO == null) {
+                contextDAO = new ContextDAO(homeDirectory, jsonMapper());
+            }
+            return contextDAO;
+        }
+
+        synchronized SessionRefreshLease sessionRefreshLease() {
+            if (sessionRefreshLease == null) {
+                sessionRefreshLease = new SessionRefreshLease(homeDirectory, contextDAO());
+            }
+            return sessionRefreshLease;
+        }
+
+        synchronized TokenCache tokenCache() {
+            if (tokenCache == null) {
+                tokenCache = new TokenCache(homeDirectory, jsonMapper());
+            }
+            return tokenCache;
+        }
+
+        synchronized LatencyLog latencyLog() {
+            if (latencyLog == null) {
+                latencyLog = new LatencyLog(homeDirectory);
+            }
+            return latencyLog;
+        }
+
+        /**
+         * Kept for as long as this runtime, so that the daemon remembers a failing DDAP between requests.
+         */
+        synchronized FrontendHealth frontendHealth(String ddapRootUrl) {
+            return frontendHealthByUrl.computeIfAbsent(ddapRootUrl, url -> new FrontendHealth());
+        }
+
+        synchronized DdapTransport transport() {
+            if (transport == null) {
+                transport = new DdapTransport();
+            }
+            return transport;
+        }
+    }
+
+    private final Shared shared;
+    private final File workingDirectory;
+
+    private CliRuntime(Shared shared, File workingDirectory) {
+        this.shared = shared;
+        this.workingDirectory = workingDirectory;
+    }
+
+    /**
+     * @param responseTtlMillis How long a listed catalog may be served again without asking DDAP. Zero disables this.
+     */
+    public CliRuntime(File homeDirectory, File workingDirectory, long responseTtlMillis) {
+        this(new Shared(homeDirectory, responseTtlMillis), workingDirectory);
+    }
+
+    /**
+     * A runtime sharing every warm component with this one, but resolving relative paths against another directory.
+     */
+    public CliRuntime inWorkingDirectory(File workingDirectory) {
+        return new CliRuntime(shared, workingDirectory);
+    }
+
+    public File getHomeDirectory() {
+        return shared.homeDirectory;
+    }
+
+    ObjectMapper jsonMapper() {
+        return shared.jsonMapper();
+    }
+
+    ObjectMapper yamlMapper() {
+        return shared.yamlMapper();
+    }
+
+    TokenCache tokenCache() {
+        return shared.tokenCache();
+    }
+
+    SnapshotStore snapshotStore() {
+        return shared.snapshotStore();
+    }
+
+    File resolve(String path) {
+        final File file = new File(path);
+        return file.isAbsolute() ? file : new File(workingDirectory, path);
+    }
+
+    /**
+     * Loads the login context, reusing the previously loaded instance while the context file is unchanged.
+     */
+    Context loadContext() throws ContextDAO.PersistenceException {
+        synchronized (shared) {
+            final long stamp = contextFileStamp();
+            if (shared.cachedContext == null || shared.cachedContextStamp != stamp) {
+                shared.cachedContext = shared.contextDAO().load();
+                shared.cachedContextStamp = stamp;
+            }
+            return shared.cachedContext;
+        }
+    }
+
+    /**
+     * Stores the context unless another process has stored a newer one since it was loaded.
+     *
+     * @return False if the newer context was kept, in which case it is loaded next time.
+     */
+    boolean persistContext(Context context) throws ContextDAO.PersistenceException {
+        synchronized (shared) {
+            if (!shared.contextDAO().persist(context)) {
+                shared.cachedContext = null;
+                return false;
+            }
+            shared.cachedContext = context;
+            shared.cachedContextStamp = contextFileStamp();
+            return true;
+        }
+    }
+
+    /**
+     * Stores the context of a new login, whatever context was stored before.
+     */
+    void replaceContext(Context context) throws ContextDAO.PersistenceException {
+        synchronized (shared) {
+            shared.contextDAO().replace(context);
+            shared.cachedContext = context;
+            shared.cachedContextStamp = contextFileStamp();
+        }
+    }
+
+    private long contextFileStamp() {
+        final File contextFile = shared.contextDAO().contextFile();
+        return Objects.hash(contextFile.lastModified(), contextFile.length());
+    }
+
+    /**
+     * A DDAP client whose session is confirmed (or trusted, if fresh) for the given context. The client is reused for
+     * as long as the same context instance and settings are in use.
+     */
+    DdapFrontendClient frontendClient(String ddapRootUrl,
+                                      Context context,
+                                      boolean debugLogging,
+                                      ResiliencePolicy resiliencePolicy) {
+        synchronized (shared) {
+            if (shared.client == null
+                || shared.clientContext != context
+                || !ddapRootUrl.equals(shared.clientUrl)
+                || shared.clientDebugLogging != debugLogging
+                || !resiliencePolicy.equals(shared.clientResiliencePolicy)) {
+                final DdapSessionManager sessionManager = new DdapSessionManager(ddapRootUrl,
+                    context,
+                    new DdapHttpClient(shared.transport(), shared.latencyLog()),
+                    shared.sessionRefreshLease());
+                final OkHttpClient sessionHttpClient = shared.transport()
+                    .interceptingClient(new SessionInterceptor(sessionManager));
+                shared.client = FeignClientBuilder.getBuilder(shared.jsonMapper(),
+                    debugLogging,
+                    shared.transport(),
+                    sessionHttpClient,
+                    shared.latencyLog(),
+                    resiliencePolicy,
+                    shared.frontendHealth(ddapRootUrl))
+                    .target(DdapFrontendClient.class, ddapRootUrl);
+                shared.asyncClient = null;
+                shared.clientSessionManager = sessionManager;
+                shared.clientHttp = sessionHttpClient;
+                shared.clientContext = context;
+                shared.clientUrl = ddapRootUrl;
+                shared.clientDebugLogging = debugLogging;
+                shared.clientResiliencePolicy = resiliencePolicy;
+            }
+            try (Timings.Phase ignored = Timings.phase("session-check")) {
+                shared.clientSessionManager.ensureSession();
+            }
+            return shared.client;
+        }
+    }
+
+    /**
+     * The asynchronous counterpart of the last {@link #frontendClient}, with the same session, settings and health.
+     */
+    AsyncDdapFrontendClient asyncFrontendClient() {
+        synchronized (shared) {
+            if (shared.client == null) {
+                throw new IllegalStateException("No DDAP client has been created yet");
+            }
+            if (shared.asyncClient == null) {
+                shared.asyncClient = new AsyncDdapFrontendClient(shared.clientHttp,
+                    shared.jsonMapper(),
+                    shared.clientUrl,
+                    shared.clientDebugLogging,
+                    shared.latencyLog(),
+                    shared.clientResiliencePolicy,
+                    shared.frontendHealth(shared.clientUrl));
+            }
+            return shared.asyncClient;
+        }
+    }
+
+    LatencyLog latencyLog() {
+        return shared.latencyLog();
+    }
+
+    /**
+     * Appends the latencies of DDAP calls made since the last flush to the latency log, if any call was made. The
+     * log is only for analysis, so failing to write it is ignored.
+     */
+    void flushLatencies() {
+        final LatencyLog latencyLog;
+        synchronized (shared) {
+            latencyLog = shared.latencyLog;
+        }
+        if (latencyLog != null) {
+            try {
+                latencyLog.flush();
+            } catch (IOException e) {
+                // Latencies of this invocation are lost.
+            }
+        }
+    }
+
+    /**
+     * The HTTP transport shared by every client of this runtime, for requests outside DDAP (such as object downloads).
+     */
+    DdapTransport transport() {
+        return shared.transport();
+    }
+
+    /**
+     * The HTTP client behind the last {@link #frontendClient}, for requests Feign cannot express (such as streams).
+     * It carries the same DDAP session.
+     */
+    OkHttpClient sessionHttpClient() {
+        synchronized (shared) {
+            if (shared.clientHttp == null) {
+                throw new IllegalStateException("No DDAP client has been created yet");
+            }
+            return shared.clientHttp;
+        }
+    }
+
+    /**
+     * Whether listed catalogs are kept in memory (only in a daemon).
+     */
+    boolean cachesResources() {
+        return shared.responseTtlMillis > 0;
+    }
+
+    Optional<ResourceResponse> cachedResources(Context context) {
+        synchronized (shared) {
+            final boolean live = shared.resources != null
+                && shared.resourcesContext == context
+                && System.currentTimeMillis() - shared.resourcesCachedAt < shared.responseTtlMillis;
+            return live ? Optional.of(shared.resources) : Optional.empty();
+        }
+    }
+
+    void cacheResources(Context context, ResourceResponse resources) {
+        if (shared.responseTtlMillis <= 0) {
+            return;
+        }
+        synchronized (shared) {
+            shared.resourcesContext = context;
+            shared.resources = resources;
+            shared.resourcesCachedAt = System.currentTimeMillis();
+        }
+    }
+}
@@ -3,29 +3,59 @@ package com.dnastack.ddap.cli;
 import static java.lang.String.format;
 
 import com.dnastack.ddap.cli.client.dam.DdapFrontendClient;
-import com.dnastack.ddap.cli.client.dam.FeignClientBuilder;
+import com.dnastack.ddap.cli.client.dam.ResiliencePolicy;
 import com.dnastack.ddap.cli.client.dam.model.DamInfo;
+import com.dnastack.ddap.cli.client.dam.model.DamStatus;
+import com.dnastack.ddap.cli.client.dam.model.Resource;
 import com.dnastack.ddap.cli.client.dam.model.ResourceResponse;
 import com.dnastack.ddap.cli.client.dam.model.ResourceTokens;
 import com.dnastack.ddap.cli.client.dam.model.View;
-import com.dnastack.ddap.cli.client.ddap.DdapHttpClient;
+import com.dnastack.ddap.cli.daemon.DaemonServer;
+import com.dnastack.ddap.cli.download.BucketListing;
 import com.dnastack.ddap.cli.login.Context;
 import com.dnastack.ddap.cli.login.ContextDAO;
 import com.dnastack.ddap.cli.login.Credentials;
+import com.dnastack.ddap.cli.metadata.MetadataServer;
+import com.dnastack.ddap.cli.resources.BeaconQueryCommand;
+import com.dnastack.ddap.cli.resources.DownloadCommand;
 import com.dnastack.ddap.cli.resources.GetAccessCommand;
 import com.dnastack.ddap.cli.resources.ListCommand;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
-import feign.Feign;
+import com.dnastack.ddap.cli.resources.LsCommand;
+import com.dnastack.ddap.cli.resources.ResourceFilter;
+import com.dnastack.ddap.cli.resources.TokenCache;
+import com.dnastack.ddap.cli.resources.VerifyCommand;
+import com.dnastack.ddap.cli.resources.completion.AuthorizationCompletionStrategy;
+import com.dnastack.ddap.cli.resources.completion.BackoffCompletion;
+import com.dnastack.ddap.cli.resources.completion.EventStreamCompletion;
+import com.dnastack.ddap.cli.resources.completion.LoopbackCompletion;
+import com.dnastack.ddap.cli.output.DocumentResourceWriter;
+import com.dnastack.ddap.cli.output.NdjsonResourceWriter;
+import com.dnastack.ddap.cli.output.ResourceWriter;
+import com.dnastack.ddap.cli.output.TokenWriter;
+import com.dnastack.ddap.cli.output.TsvResourceWriter;
+import com.dnastack.ddap.cli.timing.LatencyReport;
+import com.dnastack.ddap.cli.timing.Timings;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import lombok.Getter;
 import org.apache.commons.cli.CommandLine;
@@ -53,9 +83,35 @@ public class CommandLineClient {
         }
     }
 
+    private static final Duration BACKOFF_INITIAL_INTERVAL = Duration.ofMillis(250);
+    private static final Duration BACKOFF_MAX_INTERVAL = Duration.ofSeconds(5);
+    private static final Duration LOOPBACK_MAX_INTERVAL = Duration.ofSeconds(30);
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
     public static void main(String[] args) {
+        final CliRuntime runtime = new CliRuntime(new File(System.getenv("HOME")),
+            new File(System.getProperty("user.dir")),
+            0);
+        System.exit(execute(args, runtime, true));
+    }
+
+    /**
+     * Runs a command and returns its exit status instead of exiting.
+     *
+     * @param args Command-line arguments.
+     * @param runtime Components shared with other commands run in this JVM.
+     */
+    public static int execute(String[] args, CliRuntime runtime) {
+        return execute(args, runtime, false);
+    }
+
+    /**
+     * @param startedJvm Whether the JVM was started for this invocation alone, so that its startup is part of it.
+     */
+    private static int execute(String[] args, CliRuntime runtime, boolean startedJvm) {
         try {
-            run(args);
+            run(args, runtime, startedJvm);
+            return 0;
         } catch (SystemExit systemExit) {
             final Option debugOption = CliOptions.debugOption();
             final boolean debugMode = Arrays.stream(args)
@@ -64,7 +120,9 @@ public class CommandLineClient {
             if (debugMode && systemExit.getCause() != null) {
                 systemExit.getCause().printStackTrace(System.err);
             }
-            System.exit(systemExit.getStatus());
+            return systemExit.getStatus();
+        } finally {
+            runtime.flushLatencies();
         }
     }
 
@@ -72,53 +130,110 @@ public class CommandLineClient {
      * Runs without calling {@link System#exit(int)}. Throws a {@link SystemExit} exception instead.
      *
      * @param args Command-line arguments.
+     * @param runtime Components shared with other commands run in this JVM.
      * @throws SystemExit The usual way this method returns, indicating that the script should exit with a given status.
      * May also contain a cause with debug information.
      */
-    public static void run(String[] args) throws SystemExit {
-        final Map<String, Options> optionsByCommand = CliOptions.getCommandOptions();
+    public static void run(String[] args, CliRuntime runtime) throws SystemExit {
+        run(args, runtime, false);
+    }
 
+    private static void run(String[] args, CliRuntime runtime, boolean startedJvm) throws SystemExit {
+        final long startedAt = System.nanoTime();
         if (args.length < 1) {
-            executeHelpAndExit(optionsByCommand, 1);
+            executeHelpAndExit(1);
         }
 
+        // Only the options of the requested command are built; help builds the rest.
         final String command = args[0];
-        final Options commandOptions = optionsByCommand.get(command);
+        final Options commandOptions = CliOptions.commandOptions(command);
         if (commandOptions == null) {
-            executeHelpAndExit(optionsByCommand, 1);
+            executeHelpAndExit(1);
         }
 
-        final CommandLine parsedArgs = parseArgsOrExit(args, optionsByCommand, commandOptions);
+        final CommandLine parsedArgs = parseArgsOrExit(args, commandOptions);
+        if (!parsedArgs.hasOption(CliOptions.TIMINGS_OPT) && !parsedArgs.hasOption(CliOptions.TIMINGS_FILE_OPT)) {
+            // A daemon request runs on a thread that may have inherited the daemon's own recorder.
+            Timings.deactivate();
+            runCommand(command, parsedArgs, runtime);
+            return;
+        }
 
-        final ObjectMapper jsonMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES,
-            false);
-        final ObjectMapper yamlMapper = new ObjectMapper(new YAMLFactory());
-        final ContextDAO contextDAO = new ContextDAO(new File(System.getenv("HOME")), jsonMapper);
+        final Timings timings = new Timings(command,
+            startedAt,
+            startedJvm ? ProcessHandle.current().info().startInstant().orElse(null) : null);
+        timings.record("parse-arguments", startedAt, System.nanoTime());
+        timings.activate();
+        int status = 0;
+        try (Timings.Phase ignored = Timings.phase("command")) {
+            runCommand(command, parsedArgs, runtime);
+        } catch (SystemExit systemExit) {
+            status = systemExit.getStatus();
+            throw systemExit;
+        } finally {
+            Timings.deactivate();
+            writeTimings(parsedArgs, runtime, timings, status);
+        }
+    }
 
+    /**
+     * Writes the timings report to the file given with --timings-file, or else to standard error. Failing to write it
+     * does not change the outcome of the command.
+     */
+    private static void writeTimings(CommandLine commandLine, CliRuntime runtime, Timings timings, int status) {
+        if (commandLine.hasOption(CliOptions.TIMINGS_FILE_OPT)) {
+            final File file = runtime.resolve(commandLine.getOptionValue(CliOptions.TIMINGS_FILE_OPT));
+            try (OutputStream output = new FileOutputStream(file)) {
+                timings.write(runtime.jsonMapper(), output, status);
+            } catch (IOException e) {
+                System.err.println(format("Unable to write timings to [%s]: %s", file, e.getMessage()));
+            }
+        } else {
+            try {
+                timings.write(runtime.jsonMapper(), System.err, status);
+            } catch (IOException e) {
+                System.err.println(format("Unable to write timings: %s", e.getMessage()));
+            }
+        }
+    }
+
+    private static void runCommand(String command, CommandLine parsedArgs, CliRuntime runtime) throws SystemExit {
         switch (command) {
             case CliOptions.LOGIN_CMD:
-                executeLoginAndExit(parsedArgs, jsonMapper, contextDAO);
+                executeLoginAndExit(parsedArgs, runtime);
             case CliOptions.LIST_CMD:
-                executeListAndExit(parsedArgs, jsonMapper, yamlMapper, contextDAO);
+                executeListAndExit(parsedArgs, runtime);
             case CliOptions.GET_ACCESS_CMD:
-                executeGetAccessAndExit(parsedArgs, jsonMapper, yamlMapper, contextDAO);
+                executeGetAccessAndExit(parsedArgs, runtime);
+            case CliOptions.DAEMON_CMD:
+                executeDaemonAndExit(parsedArgs, runtime);
+            case CliOptions.SERVE_METADATA_CMD:
+                executeServeMetadataAndExit(parsedArgs, runtime);
+            case CliOptions.DOWNLOAD_CMD:
+                executeDownloadAndExit(parsedArgs, runtime);
+            case CliOptions.LS_CMD:
+                executeLsAndExit(parsedArgs, runtime);
+            case CliOptions.VERIFY_CMD:
+                executeVerifyAndExit(parsedArgs, runtime);
+            case CliOptions.BEACON_QUERY_CMD:
+                executeBeaconQueryAndExit(parsedArgs, runtime);
+            case CliOptions.STATS_CMD:
+                executeStatsAndExit(parsedArgs, runtime);
             case CliOptions.HELP_CMD:
-                executeHelpAndExit(optionsByCommand, 0);
+                executeHelpAndExit(0);
             default:
-                executeHelpAndExit(optionsByCommand, 1);
+                executeHelpAndExit(1);
         }
     }
 
-    private static CommandLine parseArgsOrExit(String[] args,
-                                               Map<String, Options> optionsByCommand,
-                                               Options commandOptions) throws SystemExit {
+    private static CommandLine parseArgsOrExit(String[] args, Options commandOptions) throws SystemExit {
         final CommandLine parsedArgs;
         try {
             final CommandLineParser parser = new DefaultParser();
             final String[] unparsedCommandArgs = Arrays.copyOfRange(args, 1, args.length);
             parsedArgs = parser.parse(commandOptions, unparsedCommandArgs);
         } catch (ParseException e) {
-            executeHelpAndExitExceptionally(e, optionsByCommand, 1);
+            executeHelpAndExitExceptionally(e, 1);
             // satisfy the compiler
             throw new AssertionError("Unreachable line.");
         }
@@ -131,51 +246,230 @@ public class CommandLineClient {
         void accept(T t) throws IOException;
     }
 
-    private static void executeGetAccessAndExit(CommandLine commandLine,
-        ObjectMapper jsonMapper,
-        ObjectMapper yamlMapper,
-        ContextDAO contextDAO) throws SystemExit {
-        final Context context = loadContextOrExit(contextDAO);
-        final DdapFrontendClient ddapFrontendClient = buildFeignClient(context.getUrl(),
-            context,
-            jsonMapper,
-            commandLine.hasOption("d"));
-        persistContextIfRequired(contextDAO, context);
-        final IOConsumer<ResourceTokens> outputAction;
+    private static void executeGetAccessAndExit(CommandLine commandLine, CliRuntime runtime) throws SystemExit {
+        final List<String> interfaceIds = readInterfaceIdsOrExit(commandLine, runtime);
+        final int parallelism = commandLine.hasOption(CliOptions.PARALLELISM_OPT) ?
+            parsePositiveIntOrExit(commandLine, CliOptions.PARALLELISM_OPT) :
+            CliOptions.DEFAULT_PARALLELISM;
+        final boolean debugMode = commandLine.hasOption("d");
+        final String outputFormat = outputFormatOrExit(commandLine);
+        final Context context = loadContextOrExit(runtime);
+        final IOConsumer<Map<String, ResourceTokens>> outputAction;
         if (commandLine.hasOption(CliOptions.FILE_OPT)) {
-            final File outputFile = setupEnvFileOrExit(commandLine);
+            final File outputFile = setupEnvFileOrExit(commandLine, runtime);
             outputAction = response -> writeOutputToEnvFile(outputFile, response, System.out);
         } else {
-            outputAction = response -> yamlMapper.writer().writeValue(System.out, response);
+            outputAction = response -> writeTokens(outputFormat, runtime, response);
         }
-        try {
-            final String interfaceId = commandLine.getOptionValue(CliOptions.INTERFACE_ID_OPT);
-            final ResourceTokens response = new GetAccessCommand(context, ddapFrontendClient, jsonMapper)
-                .getAccessToken(interfaceId);
-            System.out.println("Access token acquired");
-            outputAction.accept(response);
+        // Only YAML output is meant to be read by people; other formats keep standard out for the tokens alone, and
+        // authorization links and progress go to standard error.
+        final PrintStream statusOut = outputFormat.equals(CliOptions.YAML_OUTPUT) || commandLine.hasOption(CliOptions.FILE_OPT) ?
+            System.out :
+            System.err;
+
+        final Map<String, ResourceTokens> cachedTokensByInterfaceId;
+        if (commandLine.hasOption(CliOptions.FORCE_OPT)) {
+            if (debugMode) {
+                System.err.println("Token cache bypassed");
+            }
+            cachedTokensByInterfaceId = Map.of();
+        } else {
+            cachedTokensByInterfaceId = readCachedTokens(runtime.tokenCache(), context, interfaceIds, debugMode);
         }
-        catch (GetAccessCommand.GetAccessException e) {
-            System.out.println(e.getMessage());
-            throw new SystemExit(1, e);
+        final List<String> uncachedInterfaceIds = new ArrayList<>(interfaceIds);
+        uncachedInterfaceIds.removeAll(cachedTokensByInterfaceId.keySet());
+
+        final Map<String, ResourceTokens> acquiredTokensByInterfaceId = new LinkedHashMap<>();
+        final Map<String, GetAccessCommand.GetAccessException> failuresByInterfaceId = new LinkedHashMap<>();
+        if (!uncachedInterfaceIds.isEmpty()) {
+            final DdapFrontendClient ddapFrontendClient = runtime.frontendClient(context.getUrl(),
+                context,
+                debugMode,
+                resiliencePolicyOrExit(commandLine));
+            persistContextIfRequired(runtime, context);
+            final GetAccessCommand.AccessTokens accessTokens;
+            try (AuthorizationCompletionStrategy completionStrategy = completionStrategyOrExit(commandLine, runtime, ddapFrontendClient)) {
+                accessTokens = new GetAccessCommand(context, runtime.asyncFrontendClient(), runtime.jsonMapper(), completionStrategy, statusOut)
+                    .getAccessTokens(uncachedInterfaceIds, parallelism);
+            }
+            persistContextIfRequired(runtime, context);
+            acquiredTokensByInterfaceId.putAll(accessTokens.getTokensByInterfaceId());
+            failuresByInterfaceId.putAll(accessTokens.getFailuresByInterfaceId());
+            writeCachedTokens(runtime.tokenCache(), context, acquiredTokensByInterfaceId, debugMode);
+        }
+
+        final Map<String, ResourceTokens> tokensByInterfaceId = new LinkedHashMap<>();
+        for (String interfaceId : interfaceIds) {
+            final ResourceTokens tokens = cachedTokensByInterfaceId.containsKey(interfaceId) ?
+                cachedTokensByInterfaceId.get(interfaceId) :
+                acquiredTokensByInterfaceId.get(interfaceId);
+            if (tokens != null) {
+                tokensByInterfaceId.put(interfaceId, tokens);
+            }
+        }
+        try {
+            if (!tokensByInterfaceId.isEmpty()) {
+                if (interfaceIds.size() == 1) {
+                    statusOut.println("Access token acquired");
+                } else {
+                    statusOut.printf("Access tokens acquired for %d of %d interfaces%n", tokensByInterfaceId.size(), interfaceIds.size());
+                }
+                try (Timings.Phase ignored = Timings.phase("write-output")) {
+                    outputAction.accept(tokensByInterfaceId);
+                }
+            }
         } catch (IOException e) {
             System.err.println("Unable to serialize response.");
             throw new SystemExit(1, e);
         }
 
+        if (!failuresByInterfaceId.isEmpty()) {
+            failuresByInterfaceId.forEach((interfaceId, e) -> {
+                if (interfaceIds.size() > 1) {
+                    statusOut.printf("Failed to get access to [%s]:%n", interfaceId);
+                }
+                statusOut.println(e.getMessage());
+            });
+            throw new SystemExit(1, failuresByInterfaceId.values().iterator().next());
+        }
+
         throw new SystemExit(0);
     }
 
-    private static void writeOutputToEnvFile(File outputFile, ResourceTokens response, PrintStream printStream) throws IOException {
+    private static Map<String, ResourceTokens> readCachedTokens(TokenCache tokenCache,
+                                                                Context context,
+                                                                List<String> interfaceIds,
+                                                                boolean debugMode) {
+        final Map<String, ResourceTokens> cachedTokensByInterfaceId = new LinkedHashMap<>();
+        final long now = System.currentTimeMillis();
+        for (String interfaceId : interfaceIds) {
+            final Optional<String> cacheKey = TokenCache.cacheKey(context, interfaceId);
+            try {
+                final Optional<ResourceTokens> cachedTokens = cacheKey.isPresent() ?
+                    tokenCache.get(cacheKey.get(), now) :
+                    Optional.empty();
+                if (cachedTokens.isPresent()) {
+                    cachedTokensByInterfaceId.put(interfaceId, cachedTokens.get());
+                }
+                if (debugMode) {
+                    System.err.printf("Token cache %s for [%s]%n", cachedTokens.isPresent() ? "hit" : "miss", interfaceId);
+                }
+            } catch (TokenCache.TokenCacheException e) {
+                if (debugMode) {
+                    System.err.printf("Token cache miss for [%s]: %s%n", interfaceId, e.getMessage());
+                }
+            }
+        }
+        return cachedTokensByInterfaceId;
+    }
+
+    private static void writeCachedTokens(TokenCache tokenCache,
+                                          Context context,
+                                          Map<String, ResourceTokens> tokensByInterfaceId,
+                                          boolean debugMode) {
+        final long now = System.currentTimeMillis();
+        tokensByInterfaceId.forEach((interfaceId, tokens) -> {
+            final Optional<String> cacheKey = TokenCache.cacheKey(context, interfaceId);
+            try {
+                final boolean cached = cacheKey.isPresent() && tokenCache.put(cacheKey.get(), tokens, now);
+                if (debugMode && !cached) {
+                    System.err.printf("Token for [%s] not cached: no expiry or principal%n", interfaceId);
+                }
+            } catch (TokenCache.TokenCacheException e) {
+                if (debugMode) {
+                    System.err.printf("Token for [%s] not cached: %s%n", interfaceId, e.getMessage());
+                }
+            }
+        });
+    }
+
+    private static AuthorizationCompletionStrategy completionStrategyOrExit(CommandLine commandLine,
+                                                                           CliRuntime runtime,
+                                                                           DdapFrontendClient ddapFrontendClient) throws SystemExit {
+        final String completion = commandLine.getOptionValue(CliOptions.COMPLETION_OPT, CliOptions.EVENTS_COMPLETION);
+        switch (completion) {
+            case CliOptions.EVENTS_COMPLETION:
+                return new EventStreamCompletion(runtime.sessionHttpClient(),
+                    runtime.jsonMapper(),
+                    new BackoffCompletion(ddapFrontendClient::authorizeStatus, BACKOFF_INITIAL_INTERVAL, BACKOFF_MAX_INTERVAL));
+            case CliOptions.BACKOFF_COMPLETION:
+                return new BackoffCompletion(ddapFrontendClient::authorizeStatus, BACKOFF_INITIAL_INTERVAL, BACKOFF_MAX_INTERVAL);
+            case CliOptions.LOOPBACK_COMPLETION:
+                try {
+                    // The callback wakes the session up, so polling in between is only a safety net.
+                    return new LoopbackCompletion(new BackoffCompletion(ddapFrontendClient::authorizeStatus,
+                        BACKOFF_INITIAL_INTERVAL,
+                        LOOPBACK_MAX_INTERVAL));
+                } catch (UncheckedIOException e) {
+                    System.err.println(e.getMessage());
+                    throw new SystemExit(1, e);
+                }
+            default:
+                executeHelpAndExitExceptionally(new IllegalArgumentException(format("Unknown completion [%s]", completion)), 1);
+                throw new AssertionError("Unreachable line.");
+        }
+    }
+
+    /**
+     * Collects the interface IDs given with -i and those listed in a -m manifest (blank lines and # comments are
+     * skipped), without duplicates and in the order given.
+     */
+    private static List<String> readInterfaceIdsOrExit(CommandLine commandLine, CliRuntime runtime) throws SystemExit {
+        final Set<String> interfaceIds = new LinkedHashSet<>();
+        final String[] interfaceIdValues = commandLine.getOptionValues(CliOptions.INTERFACE_ID_OPT);
+        if (interfaceIdValues != null) {
+            for (String interfaceId : interfaceIdValues) {
+                if (!interfaceId.trim().isEmpty()) {
+                    interfaceIds.add(interfaceId.trim());
+                }
+            }
+        }
+        if (commandLine.hasOption(CliOptions.MANIFEST_OPT)) {
+            final File manifestFile = runtime.resolve(commandLine.getOptionValue(CliOptions.MANIFEST_OPT));
+            try {
+                for (String line : Files.readAllLines(manifestFile.toPath())) {
+                    final String interfaceId = line.trim();
+                    if (!interfaceId.isEmpty() && !interfaceId.startsWith("#")) {
+                        interfaceIds.add(interfaceId);
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println(format("Unable to read manifest [%s]: %s", manifestFile.getPath(), e.getMessage()));
+                throw new SystemExit(1, e);
+            }
+        }
+        if (interfaceIds.isEmpty()) {
+            executeHelpAndExitExceptionally(new IllegalArgumentException("Missing interface ID: use -i or -m"), 1);
+        }
+        return new ArrayList<>(interfaceIds);
+    }
+
+    /**
+     * Writes one export statement per interface. A single interface is exported as TOKEN; several are exported as
+     * TOKEN_ followed by the interface ID, upper-cased with other characters replaced by underscores.
+     */
+    private static void writeOutputToEnvFile(File outputFile, Map<String, ResourceTokens> response, PrintStream printStream) throws IOException {
         try (OutputStream outputStream = new FileOutputStream(outputFile)) {
             final StringBuilder exportStmtBuilder = new StringBuilder();
-            final String accessToken = response.getAccessToken();
-            if(accessToken == null) {
-                throw new IllegalStateException("Token response must contain an access token");
+            for (Map.Entry<String, ResourceTokens> entry : response.entrySet()) {
+                final String accessToken = entry.getValue().getAccessToken();
+                if(accessToken == null) {
+                    throw new IllegalStateException("Token response must contain an access token");
+                }
+                final String variableName = response.size() == 1 ?
+                    "TOKEN" :
+                    "TOKEN_" + entry.getKey().toUpperCase().replaceAll("[^A-Z0-9]", "_");
+                if (response.size() > 1) {
+                    exportStmtBuilder.append("# ")
+                        .append(entry.getKey())
+                        .append(System.lineSeparator());
+                }
+                exportStmtBuilder.append("export ")
+                    .append(variableName)
+                    .append("=")
+                    .append(accessToken)
+                    .append(System.lineSeparator());
             }
-            exportStmtBuilder.append("export TOKEN=")
-                .append(accessToken)
-                .append(System.lineSeparator());
 
             IOUtils.write(exportStmtBuilder.toString(), outputStream);
             printStream.printf("Output written to %s%n", outputFile.getPath());
@@ -186,8 +480,8 @@ public class CommandLineClient {
         }
     }
 
-    private static File setupEnvFileOrExit(CommandLine commandLine) throws SystemExit {
-        final File outputFile = new File(commandLine.getOptionValue(CliOptions.FILE_OPT));
+    private static File setupEnvFileOrExit(CommandLine commandLine, CliRuntime runtime) throws SystemExit {
+        final File outputFile = runtime.resolve(commandLine.getOptionValue(CliOptions.FILE_OPT));
         try {
             outputFile.createNewFile();
             if (!outputFile.canWrite()) {
@@ -200,35 +494,202 @@ public class CommandLineClient {
         return outputFile;
     }
 
-    private static void executeListAndExit(CommandLine commandLine,
-        ObjectMapper jsonMapper,
-        ObjectMapper yamlMapper,
-        ContextDAO contextDAO) throws SystemExit {
-        final Context context = loadContextOrExit(contextDAO);
-        final DdapFrontendClient ddapFrontendClient = buildFeignClient(context.getUrl(),
+    private static void executeListAndExit(CommandLine commandLine, CliRuntime runtime) throws SystemExit {
+        final String outputFormat = outputFormatOrExit(commandLine);
+        final Context context = loadContextOrExit(runtime);
+        final ResourceFilter filter = new ResourceFilter(optionValueSet(commandLine, CliOptions.INTERFACE_TYPE_OPT),
+            optionValueSet(commandLine, CliOptions.VIEW_NAME_OPT),
+            optionValueSet(commandLine, CliOptions.ROLE_OPT),
+            optionValueSet(commandLine, CliOptions.TAG_OPT),
+            commandLine.getOptionValue(CliOptions.LABEL_OPT),
+            commandLine.getOptionValue(CliOptions.FIELDS_OPT));
+        if (commandLine.hasOption(CliOptions.FAN_OUT_OPT)) {
+            final Duration damDeadline = Duration.ofSeconds(commandLine.hasOption(CliOptions.DAM_DEADLINE_OPT) ?
+                parsePositiveIntOrExit(commandLine, CliOptions.DAM_DEADLINE_OPT) :
+                CliOptions.DEFAULT_DAM_DEADLINE_IN_SECONDS);
+            writeFannedOutResourcesOrExit(commandLine, runtime, context, filter, damDeadline, outputFormat);
+            throw new SystemExit(0);
+        }
+        // Only the daemon keeps a whole (unfiltered) catalog in memory, to serve it again shortly.
+        final boolean keepInMemory = runtime.cachesResources()
+            && filter.isEmpty()
+            && !commandLine.hasOption(CliOptions.STREAM_OPT);
+        if (keepInMemory) {
+            final Optional<ResourceResponse> cachedResources = runtime.cachedResources(context);
+            if (cachedResources.isPresent()) {
+                try (ResourceWriter writer = openResourceWriter(outputFormat, runtime)) {
+                    for (Resource resource : cachedResources.get().getData()) {
+                        writer.write(resource);
+                    }
+                    writer.finish(null);
+                } catch (IOException e) {
+                    System.err.println("Unable to serialize response to standard out.");
+                    throw new SystemExit(1, e);
+                }
+                throw new SystemExit(0);
+            }
+        }
+
+        final List<Resource> resources = new ArrayList<>();
+        writeResourcesOrExit(commandLine, runtime, context, filter, outputFormat, resource -> {
+            if (keepInMemory) {
+                resources.add(resource);
+            }
+        });
+        if (keepInMemory) {
+            final ResourceResponse resourceResponse = new ResourceResponse();
+            resourceResponse.setData(resources);
+            runtime.cacheResources(context, resourceResponse);
+        }
+
+        throw new SystemExit(0);
+    }
+
+    /**
+     * Writes the catalog one resource at a time as it is read, so that it is never held in memory. The catalog comes
+     * from the local snapshot (revalidated with DDAP), or with --stream directly from DDAP.
+     */
+    private static void writeResourcesOrExit(CommandLine commandLine,
+                                             CliRuntime runtime,
+                                             Context context,
+                                             ResourceFilter filter,
+                                             String outputFormat,
+                                             ListCommand.ResourceConsumer listener) throws SystemExit {
+        final DdapFrontendClient ddapFrontendClient = runtime.frontendClient(context.getUrl(),
             context,
-            jsonMapper,
-            commandLine.hasOption("d"));
-        persistContextIfRequired(contextDAO, context);
+            commandLine.hasOption("d"),
+            resiliencePolicyOrExit(commandLine));
+        persistContextIfRequired(runtime, context);
+        // A failed stream is not finished, so that it does not look like a complete document.
+        try (ResourceWriter writer = openResourceWriter(outputFormat, runtime);
+             Timings.Phase ignored = Timings.phase("list-resources")) {
+            final ListCommand.ResourceConsumer consumer = resource -> {
+                writer.write(resource);
+                listener.accept(resource);
+            };
+            final ListCommand listCommand = new ListCommand(context, ddapFrontendClient, runtime.asyncFrontendClient(), runtime.jsonMapper());
+            if (commandLine.hasOption(CliOptions.STREAM_OPT)) {
+                listCommand.streamResources(filter, consumer);
+            } else {
+                listCommand.streamResources(runtime.snapshotStore(), filter, consumer);
+            }
+            writer.finish(null);
+        } catch (ListCommand.ListException e) {
+            System.err.println(e.getMessage());
+            throw new SystemExit(1, e);
+        } catch (IOException e) {
+            System.err.println("Unable to serialize response to standard out.");
+            throw new SystemExit(1, e);
+        }
+        persistContextIfRequired(runtime, context);
+    }
+
+    /**
+     * Writes the resources of all DAMs that answered within the deadline, with the status of every DAM. DAMs that
+     * did not answer are also reported on standard error, but do not fail the command.
+     */
+    private static void writeFannedOutResourcesOrExit(CommandLine commandLine,
+                                                      CliRuntime runtime,
+                                                      Context context,
+                                                      ResourceFilter filter,
+                                                      Duration damDeadline,
+                                                      String outputFormat) throws SystemExit {
+        final DdapFrontendClient ddapFrontendClient = runtime.frontendClient(context.getUrl(),
+            context,
+            commandLine.hasOption("d"),
+            resiliencePolicyOrExit(commandLine));
+        persistContextIfRequired(runtime, context);
+        final ResourceResponse resourceResponse;
         try {
-            final ResourceResponse resourceResponseByDamId = new ListCommand(context,
-                ddapFrontendClient,
-                jsonMapper).listResources();
-            yamlMapper.writer().writeValue(System.out, resourceResponseByDamId);
+            resourceResponse = new ListCommand(context, ddapFrontendClient, runtime.asyncFrontendClient(), runtime.jsonMapper())
+                .fanOutResources(commandLine.hasOption(CliOptions.STREAM_OPT) ? null : runtime.snapshotStore(),
+                                 filter,
+                                 damDeadline);
         } catch (ListCommand.ListException e) {
             System.err.println(e.getMessage());
             throw new SystemExit(1, e);
+        }
+        persistContextIfRequired(runtime, context);
+
+        try (ResourceWriter writer = openResourceWriter(outputFormat, runtime)) {
+            for (Resource resource : resourceResponse.getData()) {
+                writer.write(resource);
+            }
+            writer.finish(resourceResponse.getDamStatus());
         } catch (IOException e) {
             System.err.println("Unable to serialize response to standard out.");
             throw new SystemExit(1, e);
         }
+        resourceResponse.getDamStatus().forEach((damId, status) -> {
+            if (status.getState() != DamStatus.State.OK) {
+                System.err.println(format("Resources of DAM [%s] are missing: %s", damId, status.getError()));
+            }
+        });
+    }
+
+    private static String outputFormatOrExit(CommandLine commandLine) throws SystemExit {
+        final String outputFormat = commandLine.getOptionValue(CliOptions.OUTPUT_OPT, CliOptions.YAML_OUTPUT);
+        switch (outputFormat) {
+            case CliOptions.YAML_OUTPUT:
+            case CliOptions.JSON_OUTPUT:
+            case CliOptions.NDJSON_OUTPUT:
+            case CliOptions.TSV_OUTPUT:
+                return outputFormat;
+            default:
+                executeHelpAndExitExceptionally(new IllegalArgumentException(format("Unknown output format [%s]", outputFormat)), 1);
+                throw new AssertionError("Unreachable line.");
+        }
+    }
 
-        throw new SystemExit(0);
+    /**
+     * Opens a writer over a buffer on standard out, which is flushed when the writer is closed.
+     */
+    private static ResourceWriter openResourceWriter(String outputFormat, CliRuntime runtime) throws IOException {
+        final OutputStream stdout = new BufferedOutputStream(System.out, OUTPUT_BUFFER_SIZE);
+        switch (outputFormat) {
+            case CliOptions.JSON_OUTPUT:
+                return new DocumentResourceWriter(runtime.jsonMapper(), stdout);
+            case CliOptions.NDJSON_OUTPUT:
+                return new NdjsonResourceWriter(runtime.jsonMapper(), stdout);
+            case CliOptions.TSV_OUTPUT:
+                return new TsvResourceWriter(stdout);
+            default:
+                return new DocumentResourceWriter(runtime.yamlMapper(), stdout);
+        }
     }
 
-    private static Context loadContextOrExit(ContextDAO contextDAO) throws SystemExit {
-        try {
-            return contextDAO.load();
+    private static void writeTokens(String outputFormat, CliRuntime runtime, Map<String, ResourceTokens> tokensByInterfaceId) throws IOException {
+        final OutputStream stdout = new BufferedOutputStream(System.out, OUTPUT_BUFFER_SIZE);
+        switch (outputFormat) {
+            case CliOptions.JSON_OUTPUT:
+                TokenWriter.writeDocument(runtime.jsonMapper(), stdout, tokensByInterfaceId);
+                break;
+            case CliOptions.NDJSON_OUTPUT:
+                TokenWriter.writeNdjson(runtime.jsonMapper(), stdout, tokensByInterfaceId);
+                break;
+            case CliOptions.TSV_OUTPUT:
+                TokenWriter.writeTsv(stdout, tokensByInterfaceId);
+                break;
+            default:
+                TokenWriter.writeDocument(runtime.yamlMapper(), stdout, tokensByInterfaceId);
+        }
+        stdout.flush();
+    }
+
+    private static Set<String> optionValueSet(CommandLine commandLine, String option) {
+        final String[] values = commandLine.getOptionValues(option);
+        if (values == null) {
+            return Set.of();
+        }
+        return Arrays.stream(values)
+            .map(String::trim)
+            .filter(value -> !value.isEmpty())
+            .collect(Collectors.toSet());
+    }
+
+    private static Context loadContextOrExit(CliRuntime runtime) throws SystemExit {
+        try (Timings.Phase ignored = Timings.phase("load-context")) {
+            return runtime.loadContext();
         } catch (ContextDAO.PersistenceException e) {
             System.err.println(e.getMessage());
             System.err.println("Try running the 'login' command.");
@@ -236,7 +697,7 @@ public class CommandLineClient {
         }
     }
 
-    private static void executeLoginAndExit(CommandLine parsedArgs, ObjectMapper objectMapper, ContextDAO contextDAO) throws SystemExit {
+    private static void executeLoginAndExit(CommandLine parsedArgs, CliRuntime runtime) throws SystemExit {
         final String ddapRootUrl = parsedArgs.getOptionValue(CliOptions.LOCATION_OPT);
 
         final String[] credentialsInput = parsedArgs.getOptionValues(CliOptions.USER_OPT);
@@ -246,76 +707,387 @@ public class CommandLineClient {
 
         Context context = new Context();
         context.setCredentials(credentials);
-
-        final DdapFrontendClient ddapFrontendClient = buildFeignClient(ddapRootUrl, context, objectMapper, parsedArgs
-            .hasOption("d"));
+        if (parsedArgs.hasOption(CliOptions.SESSION_FRESHNESS_OPT)) {
+            context.setSessionFreshnessSeconds(parseNonNegativeIntOrExit(parsedArgs, CliOptions.SESSION_FRESHNESS_OPT));
+        }
 
         final String realm = parsedArgs.getOptionValue(CliOptions.REALM_OPT, "dnastack");
         context.setRealm(realm);
         context.setUrl(ddapRootUrl);
-        context.setChanged(true);
-        persistContextIfRequired(contextDAO, context);
+
+        runtime.frontendClient(ddapRootUrl, context, parsedArgs.hasOption("d"), resiliencePolicyOrExit(parsedArgs));
+        try {
+            runtime.replaceContext(context);
+            context.setChanged(false);
+        } catch (ContextDAO.PersistenceException e) {
+            System.err.println(e.getMessage());
+            throw new SystemExit(1, e);
+        }
+        System.out.println("Login context saved");
         throw new SystemExit(0);
     }
 
-    private static void executeHelpAndExit(Map<String, Options> optionsByCommand, int helpExitStatus) throws SystemExit {
-        CliOptions.printHelpMessage(optionsByCommand);
-        throw new SystemExit(helpExitStatus);
+    private static void executeDaemonAndExit(CommandLine parsedArgs, CliRuntime runtime) throws SystemExit {
+        final int responseTtlSeconds = parsedArgs.hasOption(CliOptions.RESPONSE_TTL_OPT) ?
+            parseNonNegativeIntOrExit(parsedArgs, CliOptions.RESPONSE_TTL_OPT) :
+            CliOptions.DEFAULT_RESPONSE_TTL_IN_SECONDS;
+        final CliRuntime daemonRuntime = new CliRuntime(runtime.getHomeDirectory(),
+            new File(System.getProperty("user.dir")),
+            TimeUnit.SECONDS.toMillis(responseTtlSeconds));
+        final DaemonServer daemonServer = new DaemonServer(runtime.getHomeDirectory(),
+            (args, workingDirectory) -> execute(args, daemonRuntime.inWorkingDirectory(workingDirectory)));
+        try {
+            daemonServer.serve();
+        } catch (DaemonServer.DaemonException e) {
+            System.err.println(e.getMessage());
+            throw new SystemExit(1, e);
+        }
+        throw new SystemExit(0);
     }
 
-    private static void executeHelpAndExitExceptionally(Throwable throwable, Map<String, Options> optionsByCommand, int helpExitStatus) throws SystemExit {
-        if (throwable != null && throwable.getMessage() != null) {
-            System.err.println(throwable.getMessage());
+    private static void executeServeMetadataAndExit(CommandLine commandLine, CliRuntime runtime) throws SystemExit {
+        final String interfaceId = commandLine.getOptionValue(CliOptions.INTERFACE_ID_OPT);
+        final int port = commandLine.hasOption(CliOptions.PORT_OPT) ?
+            parseNonNegativeIntOrExit(commandLine, CliOptions.PORT_OPT) :
+            CliOptions.DEFAULT_METADATA_PORT;
+        final boolean debugMode = commandLine.hasOption("d");
+        final Context context = loadContextOrExit(runtime);
+        final DdapFrontendClient ddapFrontendClient = runtime.frontendClient(context.getUrl(),
+            context,
+            debugMode,
+            resiliencePolicyOrExit(commandLine));
+        persistContextIfRequired(runtime, context);
+
+        try (AuthorizationCompletionStrategy completionStrategy = completionStrategyOrExit(commandLine, runtime, ddapFrontendClient)) {
+            final GetAccessCommand getAccessCommand = new GetAccessCommand(context,
+                runtime.asyncFrontendClient(),
+                runtime.jsonMapper(),
+                completionStrategy,
+                System.out);
+            final MetadataServer.TokenSource tokenSource = new MetadataServer.TokenSource() {
+                @Override
+                public Optional<ResourceTokens> cached() {
+                    return Optional.ofNullable(readCachedTokens(runtime.tokenCache(), context, List.of(interfaceId), debugMode)
+                                                   .get(interfaceId));
+                }
+
+                @Override
+                public ResourceTokens authorize() throws GetAccessCommand.GetAccessException {
+                    final ResourceTokens tokens = getAccessCommand.getAccessToken(interfaceId);
+                    writeCachedTokens(runtime.tokenCache(), context, Map.of(interfaceId, tokens), debugMode);
+                    return tokens;
+                }
+            };
+            new MetadataServer(port,
+                commandLine.hasOption(CliOptions.SECRET_PATH_OPT),
+                tokenSource,
+                runtime.jsonMapper(),
+                System.out).serve();
+        } catch (MetadataServer.MetadataException e) {
+            System.err.println(e.getMessage());
+            throw new SystemExit(1, e);
         }
-        CliOptions.printHelpMessage(optionsByCommand);
-        throw new SystemExit(helpExitStatus, throwable);
+        throw new SystemExit(0);
     }
 
+    private static void executeDownloadAndExit(CommandLine commandLine, CliRuntime runtime) throws SystemExit {
+        final String interfaceId = commandLine.getOptionValue(CliOptions.INTERFACE_ID_OPT);
+        final String objectPath = commandLine.getOptionValue(CliOptions.OBJECT_OPT);
+        final int chunkSizeInMib = commandLine.hasOption(CliOptions.CHUNK_SIZE_OPT) ?
+            parsePositiveIntOrExit(commandLine, CliOptions.CHUNK_SIZE_OPT) :
+            CliOptions.DEFAULT_CHUNK_SIZE_IN_MIB;
+        final int parallelism = commandLine.hasOption(CliOptions.PARALLELISM_OPT) ?
+            parsePositiveIntOrExit(commandLine, CliOptions.PARALLELISM_OPT) :
+            CliOptions.DEFAULT_PARALLELISM;
+        final File destination = runtime.resolve(commandLine.getOptionValue(CliOptions.DESTINATION_OPT,
+            new File(objectPath).getName()));
+        final boolean debugMode = commandLine.hasOption("d");
+        final Context context = loadContextOrExit(runtime);
 
-    private static void persistContextIfRequired(ContextDAO contextDAO, Context context) throws SystemExit {
-        if (context.isChanged()) {
-            persistContext(contextDAO, context);
+        final ResourceTokens tokens = accessTokenOrExit(commandLine, runtime, context, interfaceId, debugMode, System.out);
+        if (tokens.getAccessToken() == null) {
+            System.err.println("Token response must contain an access token");
+            throw new SystemExit(1);
         }
+
+        try {
+            new DownloadCommand(runtime.transport(), chunkSizeInMib * 1024L * 1024L, parallelism, System.out)
+                .download(commandLine.getOptionValue(CliOptions.URL_OPT), objectPath, tokens.getAccessToken(), destination);
+        } catch (DownloadCommand.DownloadException e) {
+            System.err.println(e.getMessage());
+            throw new SystemExit(1, e);
+        }
+        throw new SystemExit(0);
     }
 
-    private static void persistContext(ContextDAO contextDAO, Context context) throws SystemExit {
+    private static void executeLsAndExit(CommandLine commandLine, CliRuntime runtime) throws SystemExit {
+        final List<String> args = commandLine.getArgList();
+        if (args.isEmpty() || args.size() > 2) {
+            executeHelpAndExitExceptionally(new IllegalArgumentException("Usage: ls <interfaceId> [prefix]"), 1);
+        }
+        final String interfaceId = args.get(0);
+        final String prefix = (args.size() > 1) ? args.get(1) : "";
+        final int parallelism = commandLine.hasOption(CliOptions.PARALLELISM_OPT) ?
+            parsePositiveIntOrExit(commandLine, CliOptions.PARALLELISM_OPT) :
+            CliOptions.DEFAULT_PARALLELISM;
+        final String bucketUrl;
         try {
-            contextDAO.persist(context);
-            System.out.println("Login context saved");
-        } catch (ContextDAO.PersistenceException e) {
+            bucketUrl = BucketListing.bucketUrl(commandLine.getOptionValue(CliOptions.URL_OPT));
+        } catch (IllegalArgumentException e) {
+            executeHelpAndExitExceptionally(e, 1);
+            throw new AssertionError("Unreachable line.");
+        }
+        final boolean debugMode = commandLine.hasOption("d");
+        final Context context = loadContextOrExit(runtime);
+
+        // Standard out carries the listing alone.
+        final ResourceTokens tokens = accessTokenOrExit(commandLine, runtime, context, interfaceId, debugMode, System.err);
+        if (tokens.getAccessToken() == null) {
+            System.err.println("Token response must contain an access token");
+            throw new SystemExit(1);
+        }
+
+        final OutputStream output = new BufferedOutputStream(System.out, OUTPUT_BUFFER_SIZE);
+        try {
+            new LsCommand(runtime.transport(), runtime.jsonMapper(), parallelism, output)
+                .list(bucketUrl, tokens.getAccessToken(), prefix, commandLine.hasOption(CliOptions.SPLIT_OPT));
+        } catch (LsCommand.LsException e) {
+            System.err.println(e.getMessage());
+            throw new SystemExit(1, e);
+        }
+        throw new SystemExit(0);
+    }
+
+    private static void executeVerifyAndExit(CommandLine commandLine, CliRuntime runtime) throws SystemExit {
+        final List<String> args = commandLine.getArgList();
+        if (args.isEmpty() || args.size() > 2) {
+            executeHelpAndExitExceptionally(new IllegalArgumentException("Usage: verify <interfaceId> [prefix]"), 1);
+        }
+        final String interfaceId = args.get(0);
+        final String prefix = (args.size() > 1) ? args.get(1) : "";
+        final int parallelism = commandLine.hasOption(CliOptions.PARALLELISM_OPT) ?
+            parsePositiveIntOrExit(commandLine, CliOptions.PARALLELISM_OPT) :
+            Runtime.getRuntime().availableProcessors();
+        final String bucketUrl;
+        try {
+            bucketUrl = BucketListing.bucketUrl(commandLine.getOptionValue(CliOptions.URL_OPT));
+        } catch (IllegalArgumentException e) {
+            executeHelpAndExitExceptionally(e, 1);
+            throw new AssertionError("Unreachable line.");
+        }
+        final File directory = runtime.resolve(commandLine.getOptionValue(CliOptions.DIRECTORY_OPT, "."));
+        final boolean md5 = commandLine.hasOption(CliOptions.MD5_OPT);
+        final boolean debugMode = commandLine.hasOption("d");
+        final Context context = loadContextOrExit(runtime);
+
+        final ResourceTokens tokens = accessTokenOrExit(commandLine, runtime, context, interfaceId, debugMode, System.out);
+        if (tokens.getAccessToken() == null) {
+            System.err.println("Token response must contain an access token");
+            throw new SystemExit(1);
+        }
+
+        final long failed;
+        try {
+            failed = new VerifyCommand(runtime.transport(), runtime.jsonMapper(), parallelism, System.out)
+                .verify(bucketUrl, tokens.getAccessToken(), prefix, directory, md5);
+        } catch (VerifyCommand.VerifyException e) {
             System.err.println(e.getMessage());
             throw new SystemExit(1, e);
         }
+        throw new SystemExit(failed == 0 ? 0 : 1);
+    }
+
+    private static void executeStatsAndExit(CommandLine commandLine, CliRuntime runtime) throws SystemExit {
+        final long windowMillis = TimeUnit.MINUTES.toMillis(commandLine.hasOption(CliOptions.WINDOW_OPT) ?
+            parsePositiveIntOrExit(commandLine, CliOptions.WINDOW_OPT) :
+            CliOptions.DEFAULT_STATS_WINDOW_IN_MINUTES);
+        final long sinceMillis = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(commandLine.hasOption(CliOptions.SINCE_OPT) ?
+            parsePositiveIntOrExit(commandLine, CliOptions.SINCE_OPT) :
+            CliOptions.DEFAULT_STATS_SINCE_IN_HOURS);
+
+        try {
+            if (!new LatencyReport(windowMillis).read(runtime.latencyLog(), sinceMillis).print(System.out)) {
+                System.out.println("No latencies recorded.");
+            }
+        } catch (IOException e) {
+            System.err.println(format("Unable to read latencies: %s", e.getMessage()));
+            throw new SystemExit(1, e);
+        }
+        throw new SystemExit(0);
     }
 
-    private static DdapFrontendClient buildFeignClient(String ddapRootUrl,
-        Context context,
-        ObjectMapper objectMapper,
-        boolean debugLogging) {
-        Feign.Builder builder = FeignClientBuilder.getBuilder(objectMapper, debugLogging);
+    private static void executeBeaconQueryAndExit(CommandLine commandLine, CliRuntime runtime) throws SystemExit {
+        final String interfaceId = commandLine.getOptionValue(CliOptions.INTERFACE_ID_OPT);
+        final String assemblyId = commandLine.getOptionValue(CliOptions.ASSEMBLY_OPT, CliOptions.DEFAULT_ASSEMBLY);
+        final int parallelism = commandLine.hasOption(CliOptions.PARALLELISM_OPT) ?
+            parsePositiveIntOrExit(commandLine, CliOptions.PARALLELISM_OPT) :
+            CliOptions.DEFAULT_PARALLELISM;
+        final boolean debugMode = commandLine.hasOption("d");
+        final Context context = loadContextOrExit(runtime);
 
-        Credentials credentials = context.getCredentials() != null ? context.getCredentials() : new Credentials();
+        // Standard out carries the answers alone.
+        final ResourceTokens tokens = accessTokenOrExit(commandLine, runtime, context, interfaceId, debugMode, System.err);
+        if (tokens.getAccessToken() == null) {
+            System.err.println("Token response must contain an access token");
+            throw new SystemExit(1);
+        }
 
-        DdapHttpClient ddapHttpClient = new DdapHttpClient();
+        final long failures;
+        // The input is opened only once nothing else can exit, so that it is always closed.
+        try (BufferedReader input = commandLine.hasOption(CliOptions.INPUT_OPT) ?
+            Files.newBufferedReader(runtime.resolve(commandLine.getOptionValue(CliOptions.INPUT_OPT)).toPath()) :
+            new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))) {
+            failures = new BeaconQueryCommand(runtime.transport(),
+                runtime.jsonMapper(),
+                parallelism,
+                new BufferedOutputStream(System.out, OUTPUT_BUFFER_SIZE),
+                System.err)
+                .query(commandLine.getOptionValue(CliOptions.URL_OPT), tokens.getAccessToken(), assemblyId, input);
+        } catch (BeaconQueryCommand.BeaconQueryException e) {
+            System.err.println(e.getMessage());
+            throw new SystemExit(1, e);
+        } catch (IOException e) {
+            System.err.println(format("Unable to read queries: %s", e.getMessage()));
+            throw new SystemExit(1, e);
+        }
+        throw new SystemExit(failures == 0 ? 0 : 1);
+    }
 
-        ddapHttpClient.loginToDdap(ddapRootUrl, context.getCredentials())
-            .forEach(cookie -> {
-                if (cookie.getName().equals("SESSION") && !cookie.getValue().equals(credentials.getSessionId())) {
-                    credentials.setSessionId(cookie.getValue());
-                    context.setChanged(true);
-                } else if (cookie.getName().equals("SESSION_DECRYPTION_KEY") && !cookie.getValue()
-                    .equals(credentials.getSessionDecryptionKey())) {
-                    credentials.setSessionDecryptionKey(cookie.getValue());
-                    context.setChanged(true);
+    /**
+     * Returns a cached token for the interface (unless --force is given), or authorizes it as get-access does.
+     *
+     * @param messages Where authorization links and progress are printed.
+     */
+    private static ResourceTokens accessTokenOrExit(CommandLine commandLine,
+                                                    CliRuntime runtime,
+                                                    Context context,
+                                                    String interfaceId,
+                                                    boolean debugMode,
+                                                    PrintStream messages) throws SystemExit {
+        if (!commandLine.hasOption(CliOptions.FORCE_OPT)) {
+            final ResourceTokens cachedTokens = readCachedTokens(runtime.tokenCache(), context, List.of(interfaceId), debugMode)
+                .get(interfaceId);
+            if (cachedTokens != null) {
+                return cachedTokens;
+            }
+        }
+        final DdapFrontendClient ddapFrontendClient = runtime.frontendClient(context.getUrl(),
+            context,
+            debugMode,
+            resiliencePolicyOrExit(commandLine));
+        persistContextIfRequired(runtime, context);
+        final ResourceTokens tokens;
+        try (AuthorizationCompletionStrategy completionStrategy = completionStrategyOrExit(commandLine, runtime, ddapFrontendClient)) {
+            tokens = new GetAccessCommand(context, runtime.asyncFrontendClient(), runtime.jsonMapper(), completionStrategy, messages)
+                .getAccessToken(interfaceId);
+        } catch (GetAccessCommand.GetAccessException e) {
+            messages.println(e.getMessage());
+            throw new SystemExit(1, e);
+        }
+        persistContextIfRequired(runtime, context);
+        writeCachedTokens(runtime.tokenCache(), context, Map.of(interfaceId, tokens), debugMode);
+        return tokens;
+    }
+
+    /**
+     * The timeouts and hedging of --call-timeout and --hedge-percentile, with defaults for whatever they leave out.
+     */
+    private static ResiliencePolicy resiliencePolicyOrExit(CommandLine commandLine) throws SystemExit {
+        final ResiliencePolicy defaults = ResiliencePolicy.defaults();
+        Duration defaultTimeout = defaults.getDefaultTimeout();
+        final Map<String, Duration> timeouts = new LinkedHashMap<>();
+        for (String value : Optional.ofNullable(commandLine.getOptionValues(CliOptions.CALL_TIMEOUT_OPT)).orElse(new String[0])) {
+            final int separator = value.indexOf('=');
+            final String seconds = value.substring(separator + 1).trim();
+            final Duration timeout;
+            try {
+                timeout = Duration.ofSeconds(Integer.parseInt(seconds));
+                if (timeout.isNegative() || timeout.isZero()) {
+                    throw new NumberFormatException();
                 }
-            });
-        context.setCredentials(credentials);
+            } catch (NumberFormatException e) {
+                System.err.println(format("Invalid value [%s] for option [%s]: expected a positive number of seconds",
+                    value,
+                    CliOptions.CALL_TIMEOUT_OPT));
+                throw new SystemExit(1, e);
+            }
+            if (separator < 0) {
+                defaultTimeout = timeout;
+            } else {
+                timeouts.put(value.substring(0, separator).trim(), timeout);
+            }
+        }
 
-        String sessionCookieString = String
-            .format("SESSION=%s;SESSION_DECRYPTION_KEY=%s", context.getCredentials().getSessionId(), context
-                .getCredentials().getSessionDecryptionKey());
-        return builder.requestInterceptor(template -> template.header("Cookie", sessionCookieString))
-            .target(DdapFrontendClient.class, ddapRootUrl);
+        double hedgePercentile = defaults.getHedgePercentile();
+        if (commandLine.hasOption(CliOptions.HEDGE_PERCENTILE_OPT)) {
+            final String value = commandLine.getOptionValue(CliOptions.HEDGE_PERCENTILE_OPT);
+            try {
+                hedgePercentile = Double.parseDouble(value);
+                if (!(hedgePercentile >= 0 && hedgePercentile < 100)) {
+                    throw new NumberFormatException();
+                }
+            } catch (NumberFormatException e) {
+                System.err.println(format("Invalid value [%s] for option [%s]: expected a percentile from 0 to below 100",
+                    value,
+                    CliOptions.HEDGE_PERCENTILE_OPT));
+                throw new SystemExit(1, e);
+            }
+        }
+        return new ResiliencePolicy(defaultTimeout, timeouts, hedgePercentile);
+    }
+
+    private static int parseNonNegativeIntOrExit(CommandLine parsedArgs, String option) throws SystemExit {
+        final String value = parsedArgs.getOptionValue(option);
+        try {
+            final int number = Integer.parseInt(value);
+            if (number < 0) {
+                throw new NumberFormatException();
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            System.err.println(format("Invalid value [%s] for option [%s]: expected a non-negative number", value, option));
+            throw new SystemExit(1, e);
+        }
+    }
+
+    private static int parsePositiveIntOrExit(CommandLine parsedArgs, String option) throws SystemExit {
+        final int number = parseNonNegativeIntOrExit(parsedArgs, option);
+        if (number == 0) {
+            System.err.println(format("Invalid value [0] for option [%s]: expected a positive number", option));
+            throw new SystemExit(1);
+        }
+        return number;
+    }
+
+    private static void executeHelpAndExit(int helpExitStatus) throws SystemExit {
+        CliOptions.printHelpMessage(CliOptions.getCommandOptions());
+        throw new SystemExit(helpExitStatus);
+    }
+
+    private static void executeHelpAndExitExceptionally(Throwable throwable, int helpExitStatus) throws SystemExit {
+        if (throwable != null && throwable.getMessage() != null) {
+            System.err.println(throwable.getMessage());
+        }
+        CliOptions.printHelpMessage(CliOptions.getCommandOptions());
+        throw new SystemExit(helpExitStatus, throwable);
+    }
+
+
+    private static void persistContextIfRequired(CliRuntime runtime, Context context) throws SystemExit {
+        if (context.isChanged()) {
+            persistContext(runtime, context);
+        }
+    }
+
+    private static void persistContext(CliRuntime runtime, Context context) throws SystemExit {
+        try (Timings.Phase ignored = Timings.phase("persist-context")) {
+            // If another process stored a newer session meanwhile, that one is kept and this one dropped.
+            runtime.persistContext(context);
+            context.setChanged(false);
+        } catch (ContextDAO.PersistenceException e) {
+            System.err.println(e.getMessage());
+            throw new SystemExit(1, e);
+        }
     }
 
 }
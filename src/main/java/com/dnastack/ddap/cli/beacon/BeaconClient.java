@@ -0,0 +1,141 @@
+package com.dnastack.ddap.cli.beacon;
+
+import com.dnastack.ddap.cli.client.DdapTransport;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * Sends Beacon queries asynchronously, at most {@code parallelism} at a time. Queries share the transport's
+ * connection pool, so against a Beacon that speaks HTTP/2 they are multiplexed over a single connection.
+ * <p>
+ * Connection failures, {@code 429 Too Many Requests} and server errors are retried after a growing, randomized
+ * delay. Other answers, successful or not, are returned as they are.
+ */
+public class BeaconClient implements Closeable {
+
+    private static final int MAX_ATTEMPTS = 4;
+    private static final long INITIAL_RETRY_DELAY_IN_MILLIS = 200;
+
+    private final OkHttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final HttpUrl queryUrl;
+    private final String accessToken;
+    private final ScheduledExecutorService retries;
+
+    public BeaconClient(DdapTransport transport,
+                        ObjectMapper objectMapper,
+                        String queryUrl,
+                        String accessToken,
+                        int parallelism) {
+        final Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(parallelism);
+        dispatcher.setMaxRequestsPerHost(parallelism);
+        this.httpClient = transport.client()
+                                   .newBuilder()
+                                   .dispatcher(dispatcher)
+                                   .followRedirects(true)
+                                   .build();
+        this.objectMapper = objectMapper;
+        this.queryUrl = HttpUrl.get(queryUrl);
+        this.accessToken = accessToken;
+        this.retries = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "ddap-cli-beacon-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sends a query. The result always completes normally; failures are recorded in it.
+     *
+     * @param line The line of the input holding the query.
+     */
+    public CompletableFuture<BeaconResult> query(long line, BeaconQuery query) {
+        final HttpUrl.Builder url = queryUrl.newBuilder();
+        query.getParameters().forEach(url::addQueryParameter);
+        final Request request = new Request.Builder()
+            .url(url.build())
+            .header("Authorization", "Bearer " + accessToken)
+            .header("Accept", "application/json")
+            .build();
+        final CompletableFuture<BeaconResult> result = new CompletableFuture<>();
+        send(request, new BeaconResult(line, query.getParameters(), null, 0, 0, null, null), System.nanoTime(), result);
+        return result;
+    }
+
+    private void send(Request request, BeaconResult result, long startedAt, CompletableFuture<BeaconResult> future) {
+        result.setAttempts(result.getAttempts() + 1);
+        httpClient.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                retryOrComplete(request, result, startedAt, future, null, e.getMessage());
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (ResponseBody body = response.body()) {
+                    if (response.code() == 429 || response.code() >= 500) {
+                        retryOrComplete(request, result, startedAt, future, response.code(), response.message());
+                        return;
+                    }
+                    result.setStatus(response.code());
+                    final String text = (body == null) ? "" : body.string();
+                    try {
+                        result.setResponse(text.isEmpty() ? null : objectMapper.readTree(text));
+                    } catch (IOException e) {
+                        result.setError(format("Response is not JSON: %s", e.getMessage()));
+                    }
+                    complete(result, startedAt, future);
+                } catch (IOException e) {
+                    retryOrComplete(request, result, startedAt, future, response.code(), e.getMessage());
+                }
+            }
+        });
+    }
+
+    private void retryOrComplete(Request request,
+                                 BeaconResult result,
+                                 long startedAt,
+                                 CompletableFuture<BeaconResult> future,
+                                 Integer status,
+                                 String error) {
+        if (result.getAttempts() < MAX_ATTEMPTS) {
+            final long delay = INITIAL_RETRY_DELAY_IN_MILLIS << (result.getAttempts() - 1);
+            retries.schedule(() -> send(request, result, startedAt, future),
+                ThreadLocalRandom.current().nextLong(delay / 2, delay + 1),
+                TimeUnit.MILLISECONDS);
+            return;
+        }
+        result.setStatus(status);
+        result.setError(error);
+        complete(result, startedAt, future);
+    }
+
+    private static void complete(BeaconResult result, long startedAt, CompletableFuture<BeaconResult> future) {
+        result.setLatencyMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        future.complete(result);
+    }
+
+    @Override
+    public void close() {
+        retries.shutdownNow();
+        httpClient.dispatcher().executorService().shutdown();
+    }
+}
@@ -0,0 +1,56 @@
+package com.dnastack.ddap.cli.beacon;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.lang.String.format;
+
+/**
+ * The query parameters of one GA4GH Beacon variant query.
+ */
+@Data
+@AllArgsConstructor
+public class BeaconQuery {
+
+    private static final String[] POSITIONAL_PARAMETERS = {"referenceName", "start", "referenceBases", "alternateBases", "assemblyId"};
+
+    private final Map<String, String> parameters;
+
+    /**
+     * Parses a line holding either a JSON object of query parameters, or the reference name, start, reference bases,
+     * alternate bases and (optionally) assembly ID separated by whitespace.
+     *
+     * @param assemblyId The assembly ID of queries that do not give one. Null leaves it out.
+     * @throws IllegalArgumentException If the line is neither.
+     */
+    public static BeaconQuery parse(String line, String assemblyId, ObjectMapper objectMapper) {
+        final String trimmed = line.trim();
+        final Map<String, String> parameters = new LinkedHashMap<>();
+        if (trimmed.startsWith("{")) {
+            try {
+                parameters.putAll(objectMapper.readValue(trimmed, new TypeReference<LinkedHashMap<String, String>>() {}));
+            } catch (IOException e) {
+                throw new IllegalArgumentException(format("Invalid query [%s]: %s", trimmed, e.getMessage()), e);
+            }
+        } else {
+            final String[] fields = trimmed.split("\\s+");
+            if (fields.length < 4 || fields.length > POSITIONAL_PARAMETERS.length) {
+                throw new IllegalArgumentException(format("Invalid query [%s]: expected reference name, start, reference "
+                                                          + "bases, alternate bases and optionally assembly ID", trimmed));
+            }
+            for (int i = 0; i < fields.length; i++) {
+                parameters.put(POSITIONAL_PARAMETERS[i], fields[i]);
+            }
+        }
+        if (assemblyId != null) {
+            parameters.putIfAbsent("assemblyId", assemblyId);
+        }
+        return new BeaconQuery(parameters);
+    }
+}
@@ -0,0 +1,37 @@
+package com.dnastack.ddap.cli.beacon;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * The answer to one query, as written to the output. A query that could not be sent or answered has an error instead
+ * of a response.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BeaconResult {
+    /**
+     * The line of the input holding the query, from 1.
+     */
+    private long line;
+    private Map<String, String> query;
+    private Integer status;
+    private int attempts;
+    /**
+     * From sending the first attempt until the last answer arrived, including waits between attempts.
+     */
+    private long latencyMillis;
+    private JsonNode response;
+    private String error;
+
+    public boolean isSuccess() {
+        return error == null && status != null && status >= 200 && status < 300;
+    }
+}
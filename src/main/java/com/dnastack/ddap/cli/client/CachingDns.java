@@ -0,0 +1,47 @@
+package com.dnastack.ddap.cli.client;
+
+import okhttp3.Dns;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers successful lookups for a fixed time so that every connection to the same DDAP host shares one lookup.
+ */
+class CachingDns implements Dns {
+
+    private static class Entry {
+        private final List<InetAddress> addresses;
+        private final long expiresAt;
+
+        Entry(List<InetAddress> addresses, long expiresAt) {
+            this.addresses = addresses;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final Dns delegate;
+    private final long ttlMillis;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    CachingDns(Dns delegate, long ttl, TimeUnit unit) {
+        this.delegate = delegate;
+        this.ttlMillis = unit.toMillis(ttl);
+    }
+
+    @Override
+    public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+        final long now = System.currentTimeMillis();
+        final Entry cached = entries.get(hostname);
+        if (cached != null && cached.expiresAt > now) {
+            return cached.addresses;
+        }
+        final List<InetAddress> addresses = delegate.lookup(hostname);
+        entries.put(hostname, new Entry(addresses, now + ttlMillis));
+        return addresses;
+    }
+}
@@ -0,0 +1,104 @@
+package com.dnastack.ddap.cli.client;
+
+import com.dnastack.ddap.cli.timing.Timings;
+import feign.Request;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Dns;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The single HTTP transport of an invocation. Every client built from it shares one connection pool, dispatcher and
+ * DNS cache, so the DDAP login and all subsequent API calls reuse the same (HTTP/2 where available) connection.
+ */
+public class DdapTransport {
+
+    private static final int CONNECT_TIMEOUT_IN_SECONDS = 30;
+    private static final int READ_TIMEOUT_IN_SECONDS = 60;
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    private static final int KEEP_ALIVE_IN_MINUTES = 5;
+    private static final int DNS_TTL_IN_SECONDS = 60;
+    private static final int DISPATCHER_KEEP_ALIVE_IN_SECONDS = 60;
+
+    private final OkHttpClient httpClient;
+
+    public DdapTransport() {
+        this.httpClient = new OkHttpClient.Builder()
+            .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_IN_MINUTES, TimeUnit.MINUTES))
+            .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+            .dns(new CachingDns(Dns.SYSTEM, DNS_TTL_IN_SECONDS, TimeUnit.SECONDS))
+            .connectTimeout(CONNECT_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS)
+            .readTimeout(READ_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS)
+            .followRedirects(false)
+            .eventListenerFactory(Timings.eventListenerFactory())
+            .dispatcher(newDispatcher())
+            .build();
+    }
+
+    /**
+     * Runs asynchronous calls. They all go to the DDAP host, so that host may have as many in flight as the dispatcher
+     * allows overall, rather than OkHttp's default of 5.
+     */
+    private static Dispatcher newDispatcher() {
+        final Dispatcher dispatcher = new Dispatcher(newDispatcherExecutor());
+        dispatcher.setMaxRequestsPerHost(dispatcher.getMaxRequests());
+        return dispatcher;
+    }
+
+    /**
+     * The executor running asynchronous calls and their callbacks. Its threads do not inherit the thread locals of
+     * whichever invocation happens to start them, since the daemon shares them between invocations.
+     */
+    private static ExecutorService newDispatcherExecutor() {
+        final AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadPoolExecutor(0,
+            Integer.MAX_VALUE,
+            DISPATCHER_KEEP_ALIVE_IN_SECONDS,
+            TimeUnit.SECONDS,
+            new SynchronousQueue<>(),
+            runnable -> {
+                final Thread thread = new Thread(null,
+                    runnable,
+                    "ddap-cli-dispatcher-" + threadCount.incrementAndGet(),
+                    0,
+                    false);
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    /**
+     * A client that does not follow redirects, for calls that need to inspect them (such as the DDAP login).
+     */
+    public OkHttpClient client() {
+        return httpClient;
+    }
+
+    /**
+     * A client that follows redirects and runs every request through the given interceptor.
+     */
+    public OkHttpClient interceptingClient(Interceptor interceptor) {
+        return httpClient.newBuilder()
+            .addInterceptor(interceptor)
+            .followRedirects(true)
+            .build();
+    }
+
+    /**
+     * Feign options matching this transport, so that Feign never derives a client with its own settings.
+     */
+    public Request.Options feignOptions() {
+        return new Request.Options((int) TimeUnit.SECONDS.toMillis(CONNECT_TIMEOUT_IN_SECONDS),
+            (int) TimeUnit.SECONDS.toMillis(READ_TIMEOUT_IN_SECONDS),
+            true);
+    }
+}
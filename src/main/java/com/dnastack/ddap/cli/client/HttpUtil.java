@@ -1,6 +1,7 @@
 package com.dnastack.ddap.cli.client;
 
 import com.dnastack.ddap.cli.client.dam.DdapErrorResponse;
+import com.dnastack.ddap.cli.client.dam.DdapUnavailableException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import feign.FeignException;
 import feign.Response;
@@ -24,7 +25,8 @@ public class HttpUtil {
 
     public static String parseDdapErrorMessage(ObjectMapper objectMapper, FeignException fe) {
         if (fe.content() == null) {
-            return "";
+            // Raised by the client itself rather than read from a response.
+            return (fe instanceof DdapUnavailableException) ? fe.getMessage() : "";
         }
 
         try {
@@ -0,0 +1,333 @@
+package com.dnastack.ddap.cli.client.dam;
+
+import com.dnastack.ddap.cli.client.dam.model.DamInfo;
+import com.dnastack.ddap.cli.client.dam.model.ResourceResponse;
+import com.dnastack.ddap.cli.client.dam.model.ResourceTokens;
+import com.dnastack.ddap.cli.timing.LatencyLog;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import feign.Feign;
+import feign.FeignException;
+import feign.RetryableException;
+import feign.codec.DecodeException;
+import feign.template.UriTemplate;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.dnastack.ddap.cli.client.dam.DdapFrontendClient.CLEAR_CART_TOKEN_PATH;
+import static com.dnastack.ddap.cli.client.dam.DdapFrontendClient.DAMS_PATH;
+import static com.dnastack.ddap.cli.client.dam.DdapFrontendClient.DAM_RESOURCES_PATH;
+import static com.dnastack.ddap.cli.client.dam.DdapFrontendClient.RESOURCES_PATH;
+import static java.lang.String.format;
+
+/**
+ * The calls of {@link DdapFrontendClient} that commands overlap, made without blocking the calling thread. Requests
+ * are queued on the transport's dispatcher, which runs them and completes the returned futures on its own threads, so
+ * callers should not print from stages chained onto them.
+ * <p>
+ * Calls fail as their synchronous counterparts do: with the {@link FeignException} Feign would have thrown, or a
+ * {@link DdapUnavailableException} past the call's deadline or while the frontend's circuit breaker is open. A failed
+ * GET is sent once more if it could not connect or read. Cancelling a returned future cancels its HTTP call.
+ */
+public class AsyncDdapFrontendClient {
+
+    private final OkHttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final String ddapRootUrl;
+    private final LatencyLog latencyLog;
+    private final ResiliencePolicy policy;
+    private final FrontendHealth health;
+    private final FeignClientBuilder.DebugLogger debugLogger;
+
+    /**
+     * Reads a successful response body as it arrives, on a dispatcher thread.
+     */
+    @FunctionalInterface
+    public interface BodyReader<T> {
+        T read(InputStream body) throws IOException;
+    }
+
+    /**
+     * @param sessionHttpClient A client carrying the DDAP session, sharing the transport's dispatcher.
+     * @param debugLogging      Logs requests and responses as the Feign client does. Responses are logged from the
+     *                          dispatcher's threads, which the daemon routes to its own console.
+     */
+    public AsyncDdapFrontendClient(OkHttpClient sessionHttpClient,
+                                   ObjectMapper objectMapper,
+                                   String ddapRootUrl,
+                                   boolean debugLogging,
+                                   LatencyLog latencyLog,
+                                   ResiliencePolicy policy,
+                                   FrontendHealth health) {
+        this.httpClient = sessionHttpClient;
+        this.objectMapper = objectMapper;
+        this.ddapRootUrl = ddapRootUrl;
+        this.debugLogger = debugLogging ? new FeignClientBuilder.DebugLogger() : null;
+        this.latencyLog = latencyLog;
+        this.policy = policy;
+        this.health = health;
+    }
+
+    public CompletableFuture<ResourceTokens> authorizeStatus(URI uri) {
+        return get("authorizeStatus", HttpUrl.get(uri), type(ResourceTokens.class));
+    }
+
+    public CompletableFuture<Void> clearCartToken(String realm, String cliSessionId) {
+        final Request request = new Request.Builder()
+            .url(url(CLEAR_CART_TOKEN_PATH, Map.of("realm", realm, "cliSessionId", cliSessionId)))
+            .post(RequestBody.create(null, new byte[0]))
+            .build();
+        return new AsyncCall<Void>("clearCartToken", request, null).start();
+    }
+
+    public CompletableFuture<ResourceResponse> getResources(String realm) {
+        return get("getResources", url(RESOURCES_PATH, Map.of("realm", realm)), type(ResourceResponse.class));
+    }
+
+    public CompletableFuture<Map<String, DamInfo>> getDamInfos() {
+        return get("getDamInfos",
+            url(DAMS_PATH, Map.of()),
+            objectMapper.getTypeFactory().constructMapType(Map.class, String.class, DamInfo.class));
+    }
+
+    /**
+     * The resources of a single DAM, read by the given reader while they are downloaded. A GET that fails while its
+     * body is read is sent again, so the reader must not keep anything from an earlier read.
+     */
+    public <T> CompletableFuture<T> streamDamResources(String realm, String damId, BodyReader<T> reader) {
+        final Request request = new Request.Builder()
+            .url(url(DAM_RESOURCES_PATH, Map.of("realm", realm, "damId", damId)))
+            .get()
+            .build();
+        return new AsyncCall<>("streamDamResources", request, reader).start();
+    }
+
+    /**
+     * Expands a path template of {@link DdapFrontendClient} the way Feign does.
+     */
+    private HttpUrl url(String pathTemplate, Map<String, String> variables) {
+        return HttpUrl.get(ddapRootUrl + UriTemplate.create(pathTemplate, StandardCharsets.UTF_8).expand(variables));
+    }
+
+    private JavaType type(Class<?> type) {
+        return objectMapper.getTypeFactory().constructType(type);
+    }
+
+    private <T> CompletableFuture<T> get(String endpoint, HttpUrl url, JavaType type) {
+        final BodyReader<T> reader = body -> {
+            try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+                // An empty body is read as null, as Feign's JacksonDecoder does.
+                return (parser.nextToken() == null) ? null : objectMapper.readValue(parser, type);
+            }
+        };
+        return new AsyncCall<>(endpoint, new Request.Builder().url(url).get().build(), reader).start();
+    }
+
+    /**
+     * One call of a client method, made of at most two requests sent one after the other.
+     */
+    private class AsyncCall<T> implements Callback {
+        private final String endpoint;
+        /**
+         * The name Feign gives the client method in its logs and errors.
+         */
+        private final String configKey;
+        private final Request request;
+        private final BodyReader<T> reader;
+        private final FrontendHealth.EndpointLatencies latencies;
+        private final CompletableFuture<T> outcome = new CompletableFuture<>();
+        private final long startedAt = System.nanoTime();
+        private Call call;
+        private long sentAt;
+        private boolean retryAvailable;
+
+        /**
+         * @param reader Reads the response body, or null if it is ignored.
+         */
+        AsyncCall(String endpoint, Request request, BodyReader<T> reader) {
+            this.endpoint = endpoint;
+            this.configKey = configKey(endpoint);
+            this.request = request;
+            this.reader = reader;
+            this.latencies = health.latencies(endpoint);
+            this.retryAvailable = "GET".equals(request.method());
+        }
+
+        CompletableFuture<T> start() {
+            final CircuitBreaker circuitBreaker = health.circuitBreaker();
+            if (!circuitBreaker.tryAcquire()) {
+                return CompletableFuture.failedFuture(new DdapUnavailableException(format("DDAP is unavailable: its last %d calls failed. Not calling it again for %d seconds.",
+                    circuitBreaker.getConsecutiveFailures(),
+                    circuitBreaker.secondsUntilTrial())));
+            }
+            latencies.countCall();
+            final Duration timeout = policy.timeout(endpoint);
+            final ScheduledFuture<?> deadline = ResilientInvocationHandler.deadlines().schedule(() -> fail(
+                new DdapUnavailableException(format("DDAP did not answer %s within %d seconds", endpoint, timeout.toSeconds()))),
+                timeout.toNanos(),
+                TimeUnit.NANOSECONDS);
+            outcome.whenComplete((result, t) -> {
+                deadline.cancel(false);
+                latencyLog.record(endpoint, System.nanoTime() - startedAt);
+                if (t != null && !(t instanceof FeignException)) {
+                    // The caller cancelled the call or stopped waiting for it.
+                    circuitBreaker.release();
+                    cancel();
+                }
+            });
+            send();
+            return outcome;
+        }
+
+        private synchronized void send() {
+            if (outcome.isDone()) {
+                return;
+            }
+            sentAt = System.nanoTime();
+            if (debugLogger != null) {
+                debugLogger.request(configKey, feignRequest());
+            }
+            call = httpClient.newCall(request);
+            call.enqueue(this);
+        }
+
+        private synchronized void cancel() {
+            if (call != null) {
+                call.cancel();
+            }
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            if (debugLogger != null) {
+                debugLogger.ioException(configKey, e, elapsedMillis());
+            }
+            final boolean retry;
+            synchronized (this) {
+                retry = retryAvailable && !outcome.isDone();
+                retryAvailable = false;
+            }
+            if (retry) {
+                send();
+            } else {
+                fail(new RetryableException(-1, format("%s executing %s %s", e.getMessage(), request.method(), request.url()),
+                    feign.Request.HttpMethod.valueOf(request.method()),
+                    e,
+                    null));
+            }
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) {
+            final T result;
+            try (ResponseBody body = response.body()) {
+                final boolean success = response.code() >= 200 && response.code() < 300;
+                InputStream content = body.byteStream();
+                if (!success || debugLogger != null) {
+                    final byte[] bytes = body.bytes();
+                    if (debugLogger != null) {
+                        debugLogger.response(configKey, feignResponse(response, bytes), elapsedMillis());
+                    }
+                    if (!success) {
+                        fail(FeignException.errorStatus(configKey, feignResponse(response, bytes)));
+                        return;
+                    }
+                    content = new ByteArrayInputStream(bytes);
+                }
+                result = (reader == null) ? null : reader.read(content);
+            } catch (JsonProcessingException | RuntimeException e) {
+                fail(new DecodeException(response.code(), e.getMessage(), e));
+                return;
+            } catch (IOException e) {
+                onFailure(call, e);
+                return;
+            }
+            latencies.record(System.nanoTime() - sentAt);
+            if (outcome.complete(result)) {
+                health.circuitBreaker().onSuccess();
+            }
+        }
+
+        /**
+         * Fails the call unless it is already over. Transport errors, deadlines and 5xx statuses trip the circuit
+         * breaker; any other answer shows that DDAP is up.
+         */
+        private void fail(FeignException e) {
+            if (!outcome.completeExceptionally(e)) {
+                return;
+            }
+            if (e instanceof RetryableException || e.status() >= 500) {
+                health.circuitBreaker().onFailure();
+            } else {
+                health.circuitBreaker().onSuccess();
+            }
+            if (e instanceof DdapUnavailableException) {
+                cancel();
+            }
+        }
+
+
+        private long elapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sentAt);
+        }
+
+        private feign.Request feignRequest() {
+            return feign.Request.create(feign.Request.HttpMethod.valueOf(request.method()),
+                request.url().toString(),
+                feignHeaders(request.headers()),
+                null,
+                StandardCharsets.UTF_8);
+        }
+
+        private feign.Response feignResponse(Response response, byte[] content) {
+            return feign.Response.builder()
+                .status(response.code())
+                .reason(response.message())
+                .headers(feignHeaders(response.headers()))
+                .body(content)
+                .request(feignRequest())
+                .build();
+        }
+    }
+
+    private static String configKey(String endpoint) {
+        for (Method method : DdapFrontendClient.class.getMethods()) {
+            if (method.getName().equals(endpoint)) {
+                return Feign.configKey(DdapFrontendClient.class, method);
+            }
+        }
+        throw new IllegalArgumentException(format("No client method named %s", endpoint));
+    }
+
+    private static Map<String, Collection<String>> feignHeaders(Headers headers) {
+        final Map<String, Collection<String>> feignHeaders = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> header : headers.toMultimap().entrySet()) {
+            feignHeaders.put(header.getKey(), header.getValue());
+        }
+        return feignHeaders;
+    }
+}
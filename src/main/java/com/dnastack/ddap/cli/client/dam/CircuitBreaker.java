@@ -0,0 +1,74 @@
+package com.dnastack.ddap.cli.client.dam;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops calls to DDAP after several consecutive failures. Once open, it lets a single trial call through after a
+ * while: if that succeeds it closes again, otherwise it stays open for another while.
+ */
+public class CircuitBreaker {
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private int consecutiveFailures;
+    private boolean open;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(int failureThreshold, long openDuration, TimeUnit unit) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = unit.toNanos(openDuration);
+    }
+
+    /**
+     * @return True if a call may be made now, after which one of {@link #onSuccess()}, {@link #onFailure()} or
+     * {@link #release()} must be called.
+     */
+    public synchronized boolean tryAcquire() {
+        if (!open) {
+            return true;
+        }
+        if (!trialInFlight && System.nanoTime() - openedAt >= openNanos) {
+            trialInFlight = true;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        open = false;
+        trialInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (open || consecutiveFailures >= failureThreshold) {
+            open = true;
+            openedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * Ends a call that tells nothing about DDAP's health, such as an interrupted one.
+     */
+    public synchronized void release() {
+        trialInFlight = false;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * Seconds until a trial call is let through, rounded up, or 0 if calls are let through now.
+     */
+    public synchronized long secondsUntilTrial() {
+        if (!open) {
+            return 0;
+        }
+        final long remainingNanos = openNanos - (System.nanoTime() - openedAt);
+        return Math.max(0, (remainingNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+}
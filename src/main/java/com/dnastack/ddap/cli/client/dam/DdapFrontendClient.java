@@ -3,8 +3,10 @@ package com.dnastack.ddap.cli.client.dam;
 import com.dnastack.ddap.cli.client.dam.model.DamInfo;
 import com.dnastack.ddap.cli.client.dam.model.ResourceResponse;
 import com.dnastack.ddap.cli.client.dam.model.ResourceTokens;
+import feign.HeaderMap;
 import feign.Param;
 import feign.RequestLine;
+import feign.Response;
 
 import java.net.URI;
 import java.util.Map;
@@ -13,16 +15,43 @@ public interface DdapFrontendClient {
 
     String API_VERSION = "v1alpha";
 
+    // Path templates, shared with AsyncDdapFrontendClient.
+    String CLEAR_CART_TOKEN_PATH = "/api/" + API_VERSION + "/realm/{realm}/cli/{cliSessionId}/authorize/clear";
+    String RESOURCES_PATH = "/api/v1beta/{realm}/resources";
+    String DAMS_PATH = "/api/" + API_VERSION + "/realm/master/dam";
+    String DAM_RESOURCES_PATH = "/api/" + API_VERSION + "/realm/{realm}/dam/{damId}/resources";
+
     @RequestLine("GET {url}")
     ResourceTokens authorizeStatus(URI uri);
 
-    @RequestLine("POST /api/" + API_VERSION + "/realm/{realm}/cli/{cliSessionId}/authorize/clear")
+    @RequestLine("POST " + CLEAR_CART_TOKEN_PATH)
     void clearCartToken(@Param("realm") String realm, @Param("cliSessionId") String cliSessionId);
 
-    @RequestLine("GET /api/v1beta/{realm}/resources")
+    @RequestLine("GET " + RESOURCES_PATH)
     ResourceResponse getResources(@Param("realm") String realm);
 
-    @RequestLine("GET /api/" + API_VERSION + "/realm/master/dam")
+    /**
+     * The same catalog as {@link #getResources(String)}, undecoded, so that it can be read as a stream. The caller
+     * must close the response and check its status.
+     *
+     * @param headers Extra request headers, such as conditional request headers.
+     */
+    @RequestLine("GET " + RESOURCES_PATH)
+    Response streamResources(@Param("realm") String realm, @HeaderMap Map<String, Object> headers);
+
+    @RequestLine("GET " + DAMS_PATH)
     Map<String, DamInfo> getDamInfos();
 
+    /**
+     * The same as {@link #getDamInfos()}, undecoded. The caller must close the response and check its status.
+     */
+    @RequestLine("GET " + DAMS_PATH)
+    Response streamDamInfos(@HeaderMap Map<String, Object> headers);
+
+    /**
+     * The resources of a single DAM, undecoded. The caller must close the response and check its status.
+     */
+    @RequestLine("GET " + DAM_RESOURCES_PATH)
+    Response streamDamResources(@Param("realm") String realm, @Param("damId") String damId);
+
 }
@@ -0,0 +1,16 @@
+package com.dnastack.ddap.cli.client.dam;
+
+import feign.FeignException;
+
+/**
+ * A DDAP frontend call that was not answered in time, or not made because DDAP has been failing. It is reported as a
+ * 503, so that callers handle it like any other failed call.
+ */
+public class DdapUnavailableException extends FeignException {
+
+    private static final int SERVICE_UNAVAILABLE = 503;
+
+    DdapUnavailableException(String message) {
+        super(SERVICE_UNAVAILABLE, message);
+    }
+}
@@ -1,24 +1,88 @@
 package com.dnastack.ddap.cli.client.dam;
 
+import com.dnastack.ddap.cli.client.DdapTransport;
+import com.dnastack.ddap.cli.timing.LatencyLog;
+import com.dnastack.ddap.cli.timing.Timings;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import feign.Feign;
 import feign.Logger;
+import feign.Request;
+import feign.Response;
+import feign.Retryer;
 import feign.jackson.JacksonDecoder;
 import feign.okhttp.OkHttpClient;
 
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+
 public class FeignClientBuilder {
 
-    public static Feign.Builder getBuilder(ObjectMapper objectMapper, boolean debugLogging) {
+    public static Feign.Builder getBuilder(ObjectMapper objectMapper,
+                                           boolean debugLogging,
+                                           DdapTransport transport,
+                                           okhttp3.OkHttpClient sessionHttpClient,
+                                           LatencyLog latencyLog,
+                                           ResiliencePolicy resiliencePolicy,
+                                           FrontendHealth frontendHealth) {
+        final okhttp3.OkHttpClient cancellableHttpClient = sessionHttpClient.newBuilder()
+            .addInterceptor(ResilientInvocationHandler.attemptInterceptor())
+            .build();
         return Feign.builder()
-            .client(new OkHttpClient())
+            .client(new OkHttpClient(cancellableHttpClient))
+            .options(transport.feignOptions())
             .decoder(new JacksonDecoder(objectMapper))
+            // Failed GETs are sent again by the resilient handler, within the call's deadline.
+            .retryer(Retryer.NEVER_RETRY)
+            .invocationHandlerFactory((target, dispatch) -> timedInvocationHandler(
+                new ResilientInvocationHandler(target, dispatch, resiliencePolicy, frontendHealth),
+                latencyLog))
             .logLevel(debugLogging ? Logger.Level.FULL : Logger.Level.NONE)
-            .logger(new Logger() {
-                @Override
-                protected void log(String configKey, String format, Object... args) {
-                    System.out.printf(configKey + " " + format + "%n", args);
-                }
-            });
+            .logger(new DebugLogger());
+    }
+
+    /**
+     * Logs requests and responses to standard out. {@link AsyncDdapFrontendClient} logs through it as well, so that
+     * its calls read the same as Feign's.
+     */
+    static class DebugLogger extends Logger {
+
+        @Override
+        protected void log(String configKey, String format, Object... args) {
+            System.out.printf(configKey + " " + format + "%n", args);
+        }
+
+        void request(String configKey, Request request) {
+            logRequest(configKey, Level.FULL, request);
+        }
+
+        /**
+         * @return The response, with its body buffered if it was read to be logged.
+         */
+        Response response(String configKey, Response response, long elapsedMillis) throws IOException {
+            return logAndRebufferResponse(configKey, Level.FULL, response, elapsedMillis);
+        }
+
+        void ioException(String configKey, IOException e, long elapsedMillis) {
+            logIOException(configKey, Level.FULL, e, elapsedMillis);
+        }
+    }
+
+    /**
+     * An invocation handler timing each call of a client method as a phase named after it and recording its latency
+     * under the method's name. Methods returning a response are timed until its headers are read.
+     */
+    private static InvocationHandler timedInvocationHandler(InvocationHandler handler, LatencyLog latencyLog) {
+        return (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return handler.invoke(proxy, method, args);
+            }
+            final long start = System.nanoTime();
+            try (Timings.Phase ignored = Timings.phase(method.getDeclaringClass().getSimpleName() + "." + method.getName())) {
+                return handler.invoke(proxy, method, args);
+            } finally {
+                latencyLog.record(method.getName(), System.nanoTime() - start);
+            }
+        };
     }
 
 }
@@ -0,0 +1,84 @@
+package com.dnastack.ddap.cli.client.dam;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the calls made so far tell about one DDAP frontend: whether it keeps failing, and how long each endpoint
+ * usually takes to answer. It outlives clients, so that the daemon keeps it between requests.
+ */
+public class FrontendHealth {
+
+    private static final int FAILURE_THRESHOLD = 5;
+    private static final int OPEN_IN_SECONDS = 30;
+    /**
+     * Recent latencies kept per endpoint.
+     */
+    private static final int LATENCY_WINDOW = 256;
+    /**
+     * Latencies needed before an endpoint is hedged, so that one-shot invocations never are.
+     */
+    private static final int MIN_LATENCIES = 20;
+    /**
+     * The share of an endpoint's calls that may be hedged, whatever its latencies.
+     */
+    private static final double HEDGE_BUDGET = 0.1;
+    private static final long MIN_HEDGE_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker(FAILURE_THRESHOLD, OPEN_IN_SECONDS, TimeUnit.SECONDS);
+    private final Map<String, EndpointLatencies> latenciesByEndpoint = new ConcurrentHashMap<>();
+
+    public CircuitBreaker circuitBreaker() {
+        return circuitBreaker;
+    }
+
+    EndpointLatencies latencies(String endpoint) {
+        return latenciesByEndpoint.computeIfAbsent(endpoint, ignored -> new EndpointLatencies());
+    }
+
+    static class EndpointLatencies {
+        private final long[] nanos = new long[LATENCY_WINDOW];
+        private int size;
+        private int next;
+        private long calls;
+        private long hedges;
+
+        synchronized void record(long latencyNanos) {
+            nanos[next] = latencyNanos;
+            next = (next + 1) % nanos.length;
+            size = Math.min(size + 1, nanos.length);
+        }
+
+        synchronized void countCall() {
+            calls++;
+        }
+
+        /**
+         * How long to wait for an answer before hedging a call.
+         *
+         * @return The delay in nanoseconds, or -1 if the call should not be hedged.
+         */
+        synchronized long hedgeDelayNanos(double percentile) {
+            if (percentile <= 0 || size < MIN_LATENCIES) {
+                return -1;
+            }
+            final long[] sorted = Arrays.copyOf(nanos, size);
+            Arrays.sort(sorted);
+            final int index = (int) Math.ceil(Math.min(percentile, 100) / 100 * size) - 1;
+            return Math.max(MIN_HEDGE_DELAY_NANOS, sorted[Math.max(0, index)]);
+        }
+
+        /**
+         * @return True if the budget allows one more hedge, which is then counted.
+         */
+        synchronized boolean tryHedge() {
+            if (hedges + 1 > HEDGE_BUDGET * calls) {
+                return false;
+            }
+            hedges++;
+            return true;
+        }
+    }
+}
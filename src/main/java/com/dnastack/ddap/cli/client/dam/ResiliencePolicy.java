@@ -0,0 +1,38 @@
+package com.dnastack.ddap.cli.client.dam;
+
+import lombok.Value;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * How long each DDAP frontend call may take, and how slow a GET must be before a second request is sent for it.
+ */
+@Value
+public class ResiliencePolicy {
+
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+    public static final double DEFAULT_HEDGE_PERCENTILE = 95.0;
+
+    /**
+     * The deadline of calls without a timeout of their own.
+     */
+    Duration defaultTimeout;
+    /**
+     * Deadlines by client method name, such as {@code getResources}.
+     */
+    Map<String, Duration> timeouts;
+    /**
+     * The percentile of an endpoint's recent latencies after which an unanswered GET is sent again, or 0 to never
+     * send a GET again before the first one fails.
+     */
+    double hedgePercentile;
+
+    public static ResiliencePolicy defaults() {
+        return new ResiliencePolicy(DEFAULT_TIMEOUT, Map.of(), DEFAULT_HEDGE_PERCENTILE);
+    }
+
+    public Duration timeout(String endpoint) {
+        return timeouts.getOrDefault(endpoint, defaultTimeout);
+    }
+}
@@ -0,0 +1,318 @@
+package com.dnastack.ddap.cli.client.dam;
+
+import feign.FeignException;
+import feign.InvocationHandlerFactory;
+import feign.RequestLine;
+import feign.Response;
+import feign.RetryableException;
+import feign.Target;
+import okhttp3.Call;
+import okhttp3.Interceptor;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * Feign's invocation handler with a deadline per call, at which the HTTP call is cancelled, and a circuit breaker that
+ * fails calls fast with a {@link DdapUnavailableException} while DDAP keeps failing. Timeouts, transport errors and
+ * 5xx statuses count as failures; any other answer shows that DDAP is up.
+ * <p>
+ * A GET is sent a second time if the first request fails to connect or read, or, within a budget, if it has not been
+ * answered once the hedge percentile of the endpoint's recent latencies has passed. The first answer wins and the other
+ * request is cancelled. Hedges run on a thread started by the calling thread, so that they inherit its output routing
+ * and timings.
+ */
+class ResilientInvocationHandler implements InvocationHandler {
+
+    private static final ThreadLocal<Attempt> CURRENT_ATTEMPT = new ThreadLocal<>();
+    private static final Interceptor ATTEMPT_INTERCEPTOR = chain -> {
+        final Attempt attempt = CURRENT_ATTEMPT.get();
+        if (attempt != null) {
+            attempt.bind(chain.call());
+        }
+        return chain.proceed(chain.request());
+    };
+
+    private final InvocationHandler objectMethods;
+    private final Map<Method, InvocationHandlerFactory.MethodHandler> dispatch;
+    private final ResiliencePolicy policy;
+    private final FrontendHealth health;
+
+    ResilientInvocationHandler(Target<?> target,
+                               Map<Method, InvocationHandlerFactory.MethodHandler> dispatch,
+                               ResiliencePolicy policy,
+                               FrontendHealth health) {
+        this.objectMethods = new InvocationHandlerFactory.Default().create(target, dispatch);
+        this.dispatch = dispatch;
+        this.policy = policy;
+        this.health = health;
+    }
+
+    /**
+     * The OkHttp interceptor through which this handler cancels the HTTP calls it no longer waits for. It must be
+     * added to the client Feign sends requests with.
+     */
+    static Interceptor attemptInterceptor() {
+        return ATTEMPT_INTERCEPTOR;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return objectMethods.invoke(proxy, method, args);
+        }
+        final CircuitBreaker circuitBreaker = health.circuitBreaker();
+        if (!circuitBreaker.tryAcquire()) {
+            throw new DdapUnavailableException(format("DDAP is unavailable: its last %d calls failed. Not calling it again for %d seconds.",
+                circuitBreaker.getConsecutiveFailures(),
+                circuitBreaker.secondsUntilTrial()));
+        }
+        final Object result;
+        try {
+            result = new ResilientCall(method, args).run();
+        } catch (Throwable t) {
+            if (Thread.currentThread().isInterrupted()) {
+                circuitBreaker.release();
+            } else if (isFailure(t)) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+            throw t;
+        }
+        if (isServerError(result)) {
+            circuitBreaker.onFailure();
+        } else {
+            circuitBreaker.onSuccess();
+        }
+        return result;
+    }
+
+    private static boolean isFailure(Throwable t) {
+        return t instanceof RetryableException || (t instanceof FeignException && ((FeignException) t).status() >= 500);
+    }
+
+    private static boolean isServerError(Object result) {
+        return result instanceof Response && ((Response) result).status() >= 500;
+    }
+
+    /**
+     * The scheduler of call deadlines, shared with {@link AsyncDdapFrontendClient}.
+     */
+    static ScheduledExecutorService deadlines() {
+        return Deadlines.SCHEDULER;
+    }
+
+    /**
+     * Created on first use, since most invocations make no DDAP call.
+     */
+    private static class Deadlines {
+        private static final ScheduledExecutorService SCHEDULER = newScheduler();
+
+        private static ScheduledExecutorService newScheduler() {
+            final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+                final Thread thread = new Thread(runnable, "ddap-cli-deadline");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.setRemoveOnCancelPolicy(true);
+            return scheduler;
+        }
+    }
+
+    /**
+     * One HTTP request sent for a call, which can be cancelled from another thread.
+     */
+    private static class Attempt {
+        private Call call;
+        private boolean cancelled;
+
+        synchronized void bind(Call call) {
+            this.call = call;
+            if (cancelled) {
+                call.cancel();
+            }
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (call != null) {
+                call.cancel();
+            }
+        }
+    }
+
+    /**
+     * One call of a client method, made of at most two attempts.
+     */
+    private class ResilientCall {
+        private final String endpoint;
+        private final InvocationHandlerFactory.MethodHandler handler;
+        private final Object[] args;
+        private final FrontendHealth.EndpointLatencies latencies;
+        private final CompletableFuture<Object> outcome = new CompletableFuture<>();
+        private final CountDownLatch firstFailed = new CountDownLatch(1);
+        private final List<Attempt> attempts = new ArrayList<>(2);
+        private int running;
+        private boolean secondAvailable;
+        private boolean hedgerWaiting;
+        private boolean retryOnCaller;
+
+        ResilientCall(Method method, Object[] args) {
+            final RequestLine requestLine = method.getAnnotation(RequestLine.class);
+            this.endpoint = method.getName();
+            this.handler = dispatch.get(method);
+            this.args = args;
+            this.latencies = health.latencies(endpoint);
+            this.secondAvailable = requestLine != null && requestLine.value().startsWith("GET ");
+        }
+
+        Object run() throws Throwable {
+            latencies.countCall();
+            final Duration timeout = policy.timeout(endpoint);
+            final ScheduledFuture<?> deadline = deadlines().schedule(() -> expire(timeout),
+                timeout.toNanos(),
+                TimeUnit.NANOSECONDS);
+            final long hedgeDelayNanos = secondAvailable ? latencies.hedgeDelayNanos(policy.getHedgePercentile()) : -1;
+            Thread hedger = null;
+            if (hedgeDelayNanos >= 0) {
+                hedgerWaiting = true;
+                hedger = new Thread(() -> hedgeAfter(hedgeDelayNanos), "ddap-cli-hedge");
+                hedger.setDaemon(true);
+                hedger.start();
+            }
+            try {
+                attempt(newAttempt(false));
+                final Attempt retry;
+                synchronized (this) {
+                    retry = (retryOnCaller && !outcome.isDone()) ? newAttempt(true) : null;
+                }
+                if (retry != null) {
+                    attempt(retry);
+                }
+                return outcome.get();
+            } catch (ExecutionException e) {
+                throw e.getCause();
+            } catch (InterruptedException e) {
+                cancelAttempts(null);
+                Thread.currentThread().interrupt();
+                throw new DdapUnavailableException(format("Interrupted while calling %s", endpoint));
+            } finally {
+                deadline.cancel(false);
+                if (hedger != null) {
+                    hedger.interrupt();
+                }
+            }
+        }
+
+        private synchronized Attempt newAttempt(boolean second) {
+            if (second) {
+                secondAvailable = false;
+            }
+            final Attempt attempt = new Attempt();
+            attempts.add(attempt);
+            running++;
+            return attempt;
+        }
+
+        private void attempt(Attempt attempt) {
+            final long start = System.nanoTime();
+            CURRENT_ATTEMPT.set(attempt);
+            try {
+                final Object result = handler.invoke(args);
+                if (!isServerError(result)) {
+                    latencies.record(System.nanoTime() - start);
+                }
+                succeed(attempt, result);
+            } catch (Throwable t) {
+                fail(t);
+            } finally {
+                CURRENT_ATTEMPT.remove();
+            }
+        }
+
+        private synchronized void succeed(Attempt attempt, Object result) {
+            running--;
+            if (outcome.complete(result)) {
+                cancelAttempts(attempt);
+            } else if (result instanceof Response) {
+                // The other attempt won.
+                ((Response) result).close();
+            }
+        }
+
+        private synchronized void fail(Throwable t) {
+            running--;
+            if (outcome.isDone()) {
+                return;
+            }
+            if (!(t instanceof RetryableException)) {
+                // The other request would be answered the same.
+                outcome.completeExceptionally(t);
+                cancelAttempts(null);
+                return;
+            }
+            if (running > 0) {
+                return;
+            }
+            if (!secondAvailable) {
+                outcome.completeExceptionally(t);
+            } else if (hedgerWaiting) {
+                firstFailed.countDown();
+            } else {
+                retryOnCaller = true;
+            }
+        }
+
+        /**
+         * Sends the second request once the delay has passed without an answer, or as soon as the first fails.
+         */
+        private void hedgeAfter(long delayNanos) {
+            try {
+                firstFailed.await(delayNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                // The call is over.
+            }
+            final Attempt hedge;
+            synchronized (this) {
+                hedgerWaiting = false;
+                // The first request may have failed after the wait ended.
+                final boolean failed = firstFailed.getCount() == 0;
+                if (outcome.isDone() || !secondAvailable || (!failed && !latencies.tryHedge())) {
+                    return;
+                }
+                hedge = newAttempt(true);
+            }
+            attempt(hedge);
+        }
+
+        private void expire(Duration timeout) {
+            if (outcome.completeExceptionally(new DdapUnavailableException(format("DDAP did not answer %s within %d seconds",
+                endpoint,
+                timeout.toSeconds())))) {
+                cancelAttempts(null);
+            }
+        }
+
+        private synchronized void cancelAttempts(Attempt winner) {
+            for (Attempt attempt : attempts) {
+                if (attempt != winner) {
+                    attempt.cancel();
+                }
+            }
+        }
+    }
+}
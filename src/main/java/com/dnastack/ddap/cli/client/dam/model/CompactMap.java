@@ -0,0 +1,104 @@
+package com.dnastack.ddap.cli.client.dam.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable map that keeps the iteration order of the map it copies. Its keys and values are held in two arrays
+ * rather than a table of entries, which suits the many small maps (views, interfaces, roles, labels) of a catalog.
+ * Lookups scan the keys, so larger maps are copied into an unmodifiable {@link LinkedHashMap} instead.
+ */
+public final class CompactMap<V> extends AbstractMap<String, V> {
+
+    private static final int MAX_COMPACT_SIZE = 16;
+
+    private final String[] keys;
+    private final Object[] values;
+
+    private CompactMap(Map<String, ? extends V> map) {
+        this.keys = new String[map.size()];
+        this.values = new Object[map.size()];
+        int i = 0;
+        for (Map.Entry<String, ? extends V> entry : map.entrySet()) {
+            keys[i] = entry.getKey();
+            values[i] = entry.getValue();
+            i++;
+        }
+    }
+
+    public static <V> Map<String, V> copyOf(Map<String, ? extends V> map) {
+        if (map == null || map.isEmpty()) {
+            return Map.of();
+        }
+        if (map.size() > MAX_COMPACT_SIZE) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(map));
+        }
+        return new CompactMap<>(map);
+    }
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        final int index = indexOf(key);
+        return (index >= 0) ? (V) values[index] : null;
+    }
+
+    private int indexOf(Object key) {
+        for (int i = 0; i < keys.length; i++) {
+            // Keys read by Jackson are interned, so most matches are found by identity.
+            if (keys[i] == key || keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, V>> iterator() {
+                return new Iterator<>() {
+                    private int next = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < keys.length;
+                    }
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Entry<String, V> next() {
+                        if (next >= keys.length) {
+                            throw new NoSuchElementException();
+                        }
+                        final Entry<String, V> entry = new SimpleImmutableEntry<>(keys[next], (V) values[next]);
+                        next++;
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return keys.length;
+            }
+        };
+    }
+}
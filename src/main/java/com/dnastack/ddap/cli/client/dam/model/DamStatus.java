@@ -0,0 +1,28 @@
+package com.dnastack.ddap.cli.client.dam.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
+
+/**
+ * How one DAM answered when its resources were listed separately.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(NON_NULL)
+public class DamStatus {
+
+    public enum State {
+        OK, TIMED_OUT, FAILED
+    }
+
+    private String name;
+    private State state;
+    private Integer resourceCount;
+    private Long elapsedMillis;
+    private String error;
+}
@@ -1,25 +1,97 @@
 package com.dnastack.ddap.cli.client.dam.model;
 
-import com.fasterxml.jackson.annotation.JsonAnyGetter;
-import com.fasterxml.jackson.annotation.JsonAnySetter;
-import com.fasterxml.jackson.annotation.JsonIgnore;
-import lombok.Data;
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
-@Data
+@Getter
+@ToString
+@EqualsAndHashCode
+@JsonDeserialize(using = Interface.Deserializer.class)
 public class Interface {
+    private final Map<String, String> labels;
+    /**
+     * Every other field, such as {@code uri}, as a list of values.
+     */
+    private final Map<String, List<String>> bindings;
 
-    private Map<String, String> labels;
+    private Interface(Map<String, String> labels, Map<String, List<String>> bindings) {
+        this.labels = CompactMap.copyOf(labels);
+        this.bindings = CompactMap.copyOf(bindings);
+    }
+
+    /**
+     * Reads the interface object at the parser's current token. Values other than strings and arrays of them are
+     * skipped.
+     */
+    static Interface read(JsonParser parser) throws IOException {
+        final Map<String, String> labels = new LinkedHashMap<>();
+        final Map<String, List<String>> bindings = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            final JsonToken value = parser.nextToken();
+            if ("labels".equals(name) && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    final String label = parser.getCurrentName();
+                    if (parser.nextToken().isScalarValue()) {
+                        labels.put(label, parser.getValueAsString());
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else if (value == JsonToken.START_ARRAY) {
+                final List<String> values = new ArrayList<>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (parser.currentToken().isScalarValue()) {
+                        values.add(parser.getValueAsString());
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                bindings.put(name, List.copyOf(values));
+            } else if (value.isScalarValue() && value != JsonToken.VALUE_NULL) {
+                bindings.put(name, List.of(parser.getValueAsString()));
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new Interface(labels, bindings);
+    }
+
+    static class Deserializer extends StdDeserializer<Interface> {
+        Deserializer() {
+            super(Interface.class);
+        }
 
-    @JsonIgnore
-    @JsonAnySetter
-    private final Map<String, List<String>> bindings = new HashMap<>();
+        @Override
+        public Interface deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            return read(parser);
+        }
+    }
+
+    @JsonValue
+    Map<String, Object> toJson() {
+        final Map<String, Object> fields = new LinkedHashMap<>();
+        if (!labels.isEmpty()) {
+            fields.put("labels", labels);
+        }
+        fields.putAll(bindings);
+        return fields;
+    }
 
-    @JsonAnyGetter
-    public Map<String, List<String>> getBindings() {
-        return bindings;
+    public List<String> getUri() {
+        return bindings.getOrDefault("uri", List.of());
     }
 }
@@ -1,31 +1,69 @@
 package com.dnastack.ddap.cli.client.dam.model;
 
-import com.fasterxml.jackson.annotation.JsonAnyGetter;
-import com.fasterxml.jackson.annotation.JsonAnySetter;
-import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.annotation.JsonProperty;
-import lombok.Data;
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
-import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
-
-@Data
+/**
+ * The interfaces of a view, by interface type.
+ */
+@ToString
+@EqualsAndHashCode
+@JsonDeserialize(using = Interfaces.Deserializer.class)
 public class Interfaces {
-    @JsonInclude(NON_NULL)
-    @JsonProperty("gcp:gs")
-    private GcsInterface gcs;
+    public static final String GCS = "gcp:gs";
+    public static final String HTTP_GCS = "http:gcp:gs";
+
+    private final Map<String, Interface> interfacesByType;
+
+    Interfaces(Map<String, Interface> interfacesByType) {
+        this.interfacesByType = CompactMap.copyOf(interfacesByType);
+    }
+
+    @JsonValue
+    public Map<String, Interface> getInterfacesByType() {
+        return interfacesByType;
+    }
 
-    @JsonInclude(NON_NULL)
-    @JsonProperty("http:gcp:gs")
-    private GcsInterface httpGcs;
+    public Interface get(String type) {
+        return interfacesByType.get(type);
+    }
+
+    public Interface getGcs() {
+        return interfacesByType.get(GCS);
+    }
+
+    public Interface getHttpGcs() {
+        return interfacesByType.get(HTTP_GCS);
+    }
 
-    @JsonAnySetter
-    private final Map<String, Interface> otherInterfaces = new HashMap<>();
+    static class Deserializer extends StdDeserializer<Interfaces> {
+        Deserializer() {
+            super(Interfaces.class);
+        }
 
-    @JsonAnyGetter
-    public Map<String, Interface> getOtherInterfaces() {
-        return otherInterfaces;
+        @Override
+        public Interfaces deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            final Map<String, Interface> interfacesByType = new LinkedHashMap<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                // A catalog repeats a handful of interface types, so every view shares the same key strings.
+                final String type = parser.getCurrentName().intern();
+                if (parser.nextToken() == JsonToken.START_OBJECT) {
+                    interfacesByType.put(type, Interface.read(parser));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return new Interfaces(interfacesByType);
+        }
     }
 }
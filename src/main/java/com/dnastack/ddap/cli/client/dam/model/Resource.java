@@ -1,11 +1,170 @@
 package com.dnastack.ddap.cli.client.dam.model;
 
-import lombok.Data;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
-@Data
+/**
+ * A resource of the catalog. Its fields are kept as they were read, with objects and arrays left as buffered tokens,
+ * and are only decoded into the typed model ({@link #getUi()}, {@link #getViews()}) when first asked for. Writing a
+ * resource replays its tokens, so resources that are only listed are never decoded.
+ */
+@JsonSerialize(using = Resource.Serializer.class)
+@JsonDeserialize(using = Resource.Deserializer.class)
 public class Resource {
-    private Map<String, View> views;
-    private Map<String, String> ui;
+
+    private static final TypeReference<Map<String, String>> UI_TYPE = new TypeReference<>() {};
+    private static final TypeReference<Map<String, View>> VIEWS_TYPE = new TypeReference<>() {};
+
+    private final ObjectCodec codec;
+    /**
+     * Scalars as their value, objects and arrays as a {@link TokenBuffer} (or, for resources built by
+     * {@link #of(Map, ObjectCodec)}, as maps and lists).
+     */
+    private final Map<String, Object> fields;
+    private volatile Map<String, String> ui;
+    private volatile Map<String, View> views;
+
+    private Resource(ObjectCodec codec, Map<String, Object> fields) {
+        this.codec = codec;
+        this.fields = CompactMap.copyOf(fields);
+    }
+
+    /**
+     * A resource holding already decoded fields, such as those left by a projection.
+     */
+    public static Resource of(Map<String, Object> fields, ObjectCodec codec) {
+        return new Resource(codec, fields);
+    }
+
+    /**
+     * Reads the resource object at the parser's current token, buffering its tokens.
+     */
+    public static Resource read(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a resource object");
+        }
+        final Map<String, Object> fields = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            final JsonToken value = parser.nextToken();
+            if (value.isScalarValue()) {
+                fields.put(name, scalarValue(parser));
+            } else {
+                final TokenBuffer tokens = new TokenBuffer(parser);
+                tokens.copyCurrentStructure(parser);
+                fields.put(name, tokens);
+            }
+        }
+        return new Resource(parser.getCodec(), fields);
+    }
+
+    private static Object scalarValue(JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getNumberValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            default:
+                return parser.getEmbeddedObject();
+        }
+    }
+
+    public Set<String> getFieldNames() {
+        return fields.keySet();
+    }
+
+    public String getId() {
+        final Object id = fields.get("id");
+        return (id == null) ? null : String.valueOf(id);
+    }
+
+    public Map<String, String> getUi() {
+        if (ui == null) {
+            ui = CompactMap.copyOf(decode("ui", UI_TYPE));
+        }
+        return ui;
+    }
+
+    public Map<String, View> getViews() {
+        if (views == null) {
+            views = CompactMap.copyOf(decode("views", VIEWS_TYPE));
+        }
+        return views;
+    }
+
+    private <T> T decode(String name, TypeReference<T> type) {
+        final Object value = fields.get(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            final TokenBuffer tokens;
+            if (value instanceof TokenBuffer) {
+                tokens = (TokenBuffer) value;
+            } else {
+                tokens = new TokenBuffer(codec, false);
+                codec.writeValue(tokens, value);
+            }
+            try (JsonParser parser = tokens.asParser(codec)) {
+                return codec.readValue(parser, type);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Could not read field [%s] of resource [%s]", name, getId()), e);
+        }
+    }
+
+    static class Serializer extends StdSerializer<Resource> {
+        Serializer() {
+            super(Resource.class);
+        }
+
+        @Override
+        public void serialize(Resource resource, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject();
+            for (Map.Entry<String, Object> field : resource.fields.entrySet()) {
+                generator.writeFieldName(field.getKey());
+                if (field.getValue() instanceof TokenBuffer) {
+                    ((TokenBuffer) field.getValue()).serialize(generator);
+                } else {
+                    provider.defaultSerializeValue(field.getValue(), generator);
+                }
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    static class Deserializer extends StdDeserializer<Resource> {
+        Deserializer() {
+            super(Resource.class);
+        }
+
+        @Override
+        public Resource deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            return read(parser);
+        }
+    }
 }
@@ -1,11 +1,20 @@
 package com.dnastack.ddap.cli.client.dam.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 
 import java.util.List;
 import java.util.Map;
 
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
+
 @Data
 public class ResourceResponse {
-    private List<Map<String, Object>> data;
+    private List<Resource> data;
+
+    /**
+     * Per DAM ID, when resources were listed from each DAM separately.
+     */
+    @JsonInclude(NON_NULL)
+    private Map<String, DamStatus> damStatus;
 }
@@ -1,13 +1,28 @@
 package com.dnastack.ddap.cli.client.dam.model;
 
-import lombok.Data;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Value;
 
 import java.util.Map;
 
-@Data
+@Value
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class View {
     private Map<String, String> ui;
     private Interfaces interfaces;
     private Map<String, Object> roles;
     private String defaultRole;
+
+    @JsonCreator
+    public View(@JsonProperty("ui") Map<String, String> ui,
+                @JsonProperty("interfaces") Interfaces interfaces,
+                @JsonProperty("roles") Map<String, Object> roles,
+                @JsonProperty("defaultRole") String defaultRole) {
+        this.ui = CompactMap.copyOf(ui);
+        this.interfaces = (interfaces == null) ? new Interfaces(Map.of()) : interfaces;
+        this.roles = CompactMap.copyOf(roles);
+        this.defaultRole = defaultRole;
+    }
 }
@@ -1,89 +1,102 @@
 package com.dnastack.ddap.cli.client.ddap;
 
+import com.dnastack.ddap.cli.client.DdapTransport;
 import com.dnastack.ddap.cli.login.Credentials;
+import com.dnastack.ddap.cli.timing.LatencyLog;
+import com.dnastack.ddap.cli.timing.Timings;
 import java.io.IOException;
 import java.net.HttpCookie;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.time.Duration;
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
+import okhttp3.FormBody;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okhttp3.Response;
 
 public class DdapHttpClient {
 
-    private static HttpClient buildClient() {
-        return HttpClient.newBuilder()
-            .connectTimeout(Duration.ofSeconds(30))
-            .build();
+    private final DdapTransport transport;
+    private final LatencyLog latencyLog;
+
+    public DdapHttpClient(DdapTransport transport, LatencyLog latencyLog) {
+        this.transport = transport;
+        this.latencyLog = latencyLog;
     }
 
     public List<HttpCookie> loginToDdap(String ddapBaseUri, Credentials credentials) {
-        HttpRequest request;
+        final long start = System.nanoTime();
+        try (Timings.Phase ignored = Timings.phase("DdapHttpClient.loginToDdap")) {
+            return login(ddapBaseUri, credentials);
+        } finally {
+            latencyLog.record("loginToDdap", System.nanoTime() - start);
+        }
+    }
+
+    private List<HttpCookie> login(String ddapBaseUri, Credentials credentials) {
+        Request request;
 
         if (credentials.getSessionId() != null && credentials.getSessionDecryptionKey() != null) {
             return loginWithOldSessionId(ddapBaseUri, credentials);
         }
 
         if (credentials.getUsername() != null && credentials.getPassword() != null) {
-            String form = String
-                .format("username=%s&password=%s", credentials.getUsername(), credentials.getPassword());
-            request = HttpRequest.newBuilder()
-                .uri(URI.create(ddapBaseUri).resolve("/login"))
-                .header("Content-Type", "application/x-www-form-urlencoded")
-                .POST(HttpRequest.BodyPublishers.ofString(form))
+            FormBody form = new FormBody.Builder()
+                .add("username", credentials.getUsername())
+                .add("password", credentials.getPassword())
+                .build();
+            request = new Request.Builder()
+                .url(HttpUrl.get(ddapBaseUri).resolve("/login"))
+                .post(form)
                 .build();
         } else {
-            request = HttpRequest.newBuilder()
-                .uri(URI.create(ddapBaseUri))
-                .GET()
+            request = new Request.Builder()
+                .url(ddapBaseUri)
+                .get()
                 .build();
         }
 
-        try {
-            HttpResponse<String> response = DdapHttpClient.buildClient()
-                .send(request, HttpResponse.BodyHandlers.ofString());
-
-            if (response.statusCode() == 302 && response.headers().firstValue("location").map(l -> l.endsWith("error"))
-                .orElse(false)) {
+        try (Response response = transport.client().newCall(request).execute()) {
+            if (response.code() == 302 && location(response).map(l -> l.endsWith("error")).orElse(false)) {
                 throw new DdapClientException("Could not login to DDAP");
             }
             return extractCookies(response);
-        } catch (IOException | InterruptedException e) {
+        } catch (IOException e) {
             throw new DdapClientException(e);
         }
     }
 
     private List<HttpCookie> loginWithOldSessionId(String ddapBaseUri, Credentials credentials) {
-        HttpRequest request = HttpRequest.newBuilder()
-            .uri(URI.create(ddapBaseUri))
+        Request request = new Request.Builder()
+            .url(ddapBaseUri)
             .header("Cookie", String
                 .format("SESSION=%s;SESSION_DECRYPTION_KEY=%s;", credentials.getSessionId(), credentials
                     .getSessionDecryptionKey()))
-            .GET()
+            .get()
             .build();
 
-        try {
-            HttpResponse<String> response = DdapHttpClient.buildClient()
-                .send(request, HttpResponse.BodyHandlers.ofString());
-            if (response.statusCode() == 302 && response.headers().firstValue("location")
-                .map(l -> l.endsWith("/login") || response.statusCode() == 401)
+        try (Response response = transport.client().newCall(request).execute()) {
+            if (response.code() == 302 && location(response)
+                .map(l -> l.endsWith("/login") || response.code() == 401)
                 .orElse(false)) {
-                return loginToDdap(ddapBaseUri, new Credentials(credentials.getUsername(), credentials
+                // Part of the same login, so it is not recorded or timed again.
+                return login(ddapBaseUri, new Credentials(credentials.getUsername(), credentials
                     .getPassword(), null, null));
             } else {
                 return extractCookies(response);
             }
-        } catch (IOException | InterruptedException e) {
+        } catch (IOException e) {
             throw new DdapClientException(e);
         }
     }
 
+    private static Optional<String> location(Response response) {
+        return Optional.ofNullable(response.header("Location"));
+    }
 
-    private List<HttpCookie> extractCookies(HttpResponse<?> response) {
-        return response.headers().allValues("Set-Cookie")
+    private List<HttpCookie> extractCookies(Response response) {
+        return response.headers("Set-Cookie")
             .stream()
             .map(HttpCookie::parse)
             .flatMap(Collection::stream)
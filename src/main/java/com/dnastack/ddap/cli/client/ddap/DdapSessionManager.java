@@ -0,0 +1,85 @@
+package com.dnastack.ddap.cli.client.ddap;
+
+import com.dnastack.ddap.cli.login.Context;
+import com.dnastack.ddap.cli.login.Credentials;
+import com.dnastack.ddap.cli.login.SessionRefreshLease;
+
+import java.net.HttpCookie;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Owns the DDAP session cookies stored in a {@link Context}. The session is only checked against DDAP when it has
+ * not been confirmed within the context's freshness window, or when DDAP rejects it during a later call. Checks and
+ * logins go through a {@link SessionRefreshLease}, so that concurrent processes share one new session.
+ */
+public class DdapSessionManager {
+
+    private final String ddapRootUrl;
+    private final Context context;
+    private final DdapHttpClient ddapHttpClient;
+    private final SessionRefreshLease refreshLease;
+
+    public DdapSessionManager(String ddapRootUrl,
+                              Context context,
+                              DdapHttpClient ddapHttpClient,
+                              SessionRefreshLease refreshLease) {
+        this.ddapRootUrl = ddapRootUrl;
+        this.context = context;
+        this.ddapHttpClient = ddapHttpClient;
+        this.refreshLease = refreshLease;
+    }
+
+    public synchronized void ensureSession() {
+        if (!context.isSessionFresh(System.currentTimeMillis())) {
+            refreshLease.refresh(context, false, this::refreshSession);
+        }
+    }
+
+    /**
+     * Re-establishes the session after DDAP rejected the given cookie header. Does nothing if the session was already
+     * replaced since that header was built.
+     */
+    public synchronized void refreshSession(String rejectedCookieHeader) {
+        if (rejectedCookieHeader.equals(sessionCookieHeader())) {
+            refreshLease.refresh(context, true, this::refreshSession);
+        }
+    }
+
+    public synchronized String sessionCookieHeader() {
+        final Credentials credentials = context.getCredentials();
+        return String.format("SESSION=%s;SESSION_DECRYPTION_KEY=%s",
+            credentials.getSessionId(),
+            credentials.getSessionDecryptionKey());
+    }
+
+    private void refreshSession() {
+        final Credentials credentials = context.getCredentials() != null ? context.getCredentials() : new Credentials();
+        final long now = System.currentTimeMillis();
+        final List<HttpCookie> cookies = ddapHttpClient.loginToDdap(ddapRootUrl, credentials);
+
+        boolean sessionCookieReceived = false;
+        Long expiresAt = null;
+        for (HttpCookie cookie : cookies) {
+            if (cookie.getName().equals("SESSION")) {
+                credentials.setSessionId(cookie.getValue());
+            } else if (cookie.getName().equals("SESSION_DECRYPTION_KEY")) {
+                credentials.setSessionDecryptionKey(cookie.getValue());
+            } else {
+                continue;
+            }
+            sessionCookieReceived = true;
+            if (cookie.getMaxAge() > 0) {
+                final long cookieExpiresAt = now + TimeUnit.SECONDS.toMillis(cookie.getMaxAge());
+                expiresAt = (expiresAt == null) ? cookieExpiresAt : Math.min(expiresAt, cookieExpiresAt);
+            }
+        }
+
+        context.setCredentials(credentials);
+        context.setSessionConfirmedAt(now);
+        if (sessionCookieReceived) {
+            context.setSessionExpiresAt(expiresAt);
+        }
+        context.setChanged(true);
+    }
+}
@@ -0,0 +1,50 @@
+package com.dnastack.ddap.cli.client.ddap;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+
+/**
+ * Attaches the DDAP session cookies to every request and re-establishes the session once if DDAP rejects it, either
+ * with a 401 or by redirecting to the login page.
+ */
+public class SessionInterceptor implements Interceptor {
+
+    private final DdapSessionManager sessionManager;
+
+    public SessionInterceptor(DdapSessionManager sessionManager) {
+        this.sessionManager = sessionManager;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        final String cookieHeader = sessionManager.sessionCookieHeader();
+        final Response response = chain.proceed(withCookie(chain.request(), cookieHeader));
+        if (!isSessionRejected(response)) {
+            return response;
+        }
+
+        response.close();
+        sessionManager.refreshSession(cookieHeader);
+        return chain.proceed(withCookie(chain.request(), sessionManager.sessionCookieHeader()));
+    }
+
+    private static Request withCookie(Request request, String cookieHeader) {
+        return request.newBuilder()
+            .header("Cookie", cookieHeader)
+            .build();
+    }
+
+    private static boolean isSessionRejected(Response response) {
+        if (response.code() == 401) {
+            return true;
+        }
+        final String location = response.header("Location");
+        if (response.isRedirect() && location != null && location.endsWith("/login")) {
+            return true;
+        }
+        return response.request().url().encodedPath().endsWith("/login");
+    }
+}
@@ -0,0 +1,260 @@
+package com.dnastack.ddap.cli.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.lang.String.format;
+
+/**
+ * Serves commands from the {@code ddap-cli} launcher script so that they run in an already warm JVM.
+ * <p>
+ * The daemon listens on a loopback port and writes {@code <port> <secret>} to {@code ~/.ddap-cli-daemon}, readable
+ * only by the owner. The script first sends a random nonce, to which the daemon answers {@code p <proof>}, the hex
+ * SHA-256 of {@code <secret>:<nonce>}, so that the script only sends the secret to a listener that knows it. A
+ * request is then the secret, the caller's working directory, the argument count and the arguments,
+ * each ended by a NUL byte, which cannot occur in an argument or a path (unlike a newline). The response is a stream of framed output lines (see {@link FramedOutputStream}) followed by
+ * {@code x <exit status>}.
+ */
+public class DaemonServer {
+
+    public static final String DAEMON_FILE_NAME = ".ddap-cli-daemon";
+    private static final Set<String> FORWARDED_COMMANDS = Set.of("login", "list", "get-access");
+    private static final int SECRET_LENGTH_IN_BYTES = 32;
+    private static final int BACKLOG = 64;
+    private static final int MAX_FIELD_LENGTH_IN_BYTES = 1024 * 1024;
+    private static final int MAX_ARGUMENTS = 4096;
+    private static final int MAX_NONCE_LENGTH_IN_BYTES = 256;
+
+    @FunctionalInterface
+    public interface CommandExecutor {
+        int execute(String[] args, File workingDirectory);
+    }
+
+    public static class DaemonException extends Exception {
+        DaemonException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * Commands may close {@code System.out} (Jackson does by default), which must not end output for later requests.
+     */
+    private static class UnclosablePrintStream extends PrintStream {
+        UnclosablePrintStream(OutputStream out) {
+            super(out, true);
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
+    }
+
+    private final File homeDirectory;
+    private final CommandExecutor commandExecutor;
+    private final byte[] secret;
+
+    public DaemonServer(File homeDirectory, CommandExecutor commandExecutor) {
+        this.homeDirectory = homeDirectory;
+        this.commandExecutor = commandExecutor;
+        this.secret = newSecret();
+    }
+
+    public File daemonFile() {
+        return new File(homeDirectory, DAEMON_FILE_NAME);
+    }
+
+    /**
+     * Accepts requests until the JVM is stopped.
+     */
+    public void serve() throws DaemonException {
+        final PrintStream consoleOut = System.out;
+        final PrintStream consoleErr = System.err;
+        final ThreadRoutedOutputStream routedOut = new ThreadRoutedOutputStream(consoleOut);
+        final ThreadRoutedOutputStream routedErr = new ThreadRoutedOutputStream(consoleErr);
+
+        final ServerSocket serverSocket;
+        try {
+            serverSocket = new ServerSocket(0, BACKLOG, InetAddress.getLoopbackAddress());
+        } catch (IOException e) {
+            throw new DaemonException("Unable to open daemon socket", e);
+        }
+        writeDaemonFile(serverSocket.getLocalPort());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> daemonFile().delete()));
+
+        System.setOut(new UnclosablePrintStream(routedOut));
+        System.setErr(new UnclosablePrintStream(routedErr));
+        consoleOut.printf("ddap-cli daemon listening on %s:%d%n",
+            serverSocket.getInetAddress().getHostAddress(),
+            serverSocket.getLocalPort());
+
+        final ExecutorService workers = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "ddap-cli-daemon-request");
+            thread.setDaemon(true);
+            return thread;
+        });
+        while (true) {
+            try {
+                final Socket socket = serverSocket.accept();
+                workers.execute(() -> handle(socket, routedOut, routedErr, consoleErr));
+            } catch (IOException e) {
+                consoleErr.printf("Failed to accept daemon connection: %s%n", e.getMessage());
+            }
+        }
+    }
+
+    private void handle(Socket socket,
+                        ThreadRoutedOutputStream routedOut,
+                        ThreadRoutedOutputStream routedErr,
+                        PrintStream consoleErr) {
+        try (socket) {
+            final InputStream input = new BufferedInputStream(socket.getInputStream());
+            final OutputStream socketOutput = new BufferedOutputStream(socket.getOutputStream());
+            final String nonce = readField(input, MAX_NONCE_LENGTH_IN_BYTES);
+            if (nonce == null) {
+                return;
+            }
+            socketOutput.write(format("p %s%n", proof(nonce)).getBytes(StandardCharsets.US_ASCII));
+            socketOutput.flush();
+
+            final String presentedSecret = readField(input, secret.length);
+            if (presentedSecret == null
+                || !MessageDigest.isEqual(secret, presentedSecret.getBytes(StandardCharsets.US_ASCII))) {
+                return;
+            }
+            final File workingDirectory = new File(requireField(input));
+            final String[] args = new String[argumentCount(requireField(input))];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = requireField(input);
+            }
+
+            final FramedOutputStream out = new FramedOutputStream(socketOutput, 'o');
+            final FramedOutputStream err = new FramedOutputStream(socketOutput, 'e');
+            final int status = execute(args, workingDirectory, out, err, routedOut, routedErr);
+            out.close();
+            err.close();
+            socketOutput.write(format("x %d%n", status).getBytes(StandardCharsets.US_ASCII));
+            socketOutput.flush();
+        } catch (IOException | RuntimeException e) {
+            consoleErr.printf("Failed to serve daemon request: %s%n", e);
+        }
+    }
+
+    private String proof(String nonce) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(secret);
+        digest.update((":" + nonce).getBytes(StandardCharsets.UTF_8));
+        return hex(digest.digest());
+    }
+
+    /**
+     * Reads a field up to its terminating NUL byte.
+     *
+     * @return The field, or null if the stream ends before the NUL or the field is longer than the maximum.
+     */
+    private static String readField(InputStream input, int maxLengthInBytes) throws IOException {
+        final ByteArrayOutputStream field = new ByteArrayOutputStream();
+        int b;
+        while ((b = input.read()) != 0) {
+            if (b == -1 || field.size() == maxLengthInBytes) {
+                return null;
+            }
+            field.write(b);
+        }
+        return field.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String requireField(InputStream input) throws IOException {
+        final String field = readField(input, MAX_FIELD_LENGTH_IN_BYTES);
+        if (field == null) {
+            throw new IOException("Malformed request: a field is truncated or too long");
+        }
+        return field;
+    }
+
+    private static int argumentCount(String field) throws IOException {
+        try {
+            final int count = Integer.parseInt(field);
+            if (count >= 0 && count <= MAX_ARGUMENTS) {
+                return count;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below.
+        }
+        throw new IOException(format("Malformed request: invalid argument count [%s]", field));
+    }
+
+    private int execute(String[] args,
+                        File workingDirectory,
+                        OutputStream out,
+                        OutputStream err,
+                        ThreadRoutedOutputStream routedOut,
+                        ThreadRoutedOutputStream routedErr) {
+        routedOut.route(out);
+        routedErr.route(err);
+        try {
+            if (args.length == 0 || !FORWARDED_COMMANDS.contains(args[0])) {
+                System.err.println("Command is not served by the daemon");
+                return 1;
+            }
+            return commandExecutor.execute(args, workingDirectory);
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            return 1;
+        } finally {
+            routedOut.clear();
+            routedErr.clear();
+        }
+    }
+
+    private void writeDaemonFile(int port) throws DaemonException {
+        final Path daemonFile = daemonFile().toPath();
+        final String contents = format("%d %s%n", port, new String(secret, StandardCharsets.US_ASCII));
+        try {
+            Files.deleteIfExists(daemonFile);
+            Files.createFile(daemonFile, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+            Files.write(daemonFile, contents.getBytes(StandardCharsets.US_ASCII), StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new DaemonException(format("Unable to write daemon file [%s]", daemonFile), e);
+        }
+    }
+
+    private static byte[] newSecret() {
+        final byte[] random = new byte[SECRET_LENGTH_IN_BYTES];
+        new SecureRandom().nextBytes(random);
+        return hex(random).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static String hex(byte[] bytes) {
+        final StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
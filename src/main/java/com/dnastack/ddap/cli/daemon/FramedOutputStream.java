@@ -0,0 +1,73 @@
+package com.dnastack.ddap.cli.daemon;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Frames one output channel of a daemon request for the launcher script. Every complete line is sent as
+ * {@code <channel> <line>}; a trailing partial line is sent on {@link #close()} with the upper-case channel, meaning
+ * "no newline".
+ */
+class FramedOutputStream extends OutputStream {
+
+    private final OutputStream socketOutput;
+    private final char channel;
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+    FramedOutputStream(OutputStream socketOutput, char channel) {
+        this.socketOutput = socketOutput;
+        this.channel = channel;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        synchronized (socketOutput) {
+            if (b == '\n') {
+                writeFrame(channel);
+            } else {
+                line.write(b);
+            }
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        synchronized (socketOutput) {
+            int start = off;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    line.write(b, start, i - start);
+                    writeFrame(channel);
+                    start = i + 1;
+                }
+            }
+            line.write(b, start, off + len - start);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        synchronized (socketOutput) {
+            socketOutput.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (socketOutput) {
+            if (line.size() > 0) {
+                writeFrame(Character.toUpperCase(channel));
+            }
+            socketOutput.flush();
+        }
+    }
+
+    private void writeFrame(char frameChannel) throws IOException {
+        socketOutput.write(frameChannel);
+        socketOutput.write(' ');
+        line.writeTo(socketOutput);
+        socketOutput.write('\n');
+        line.reset();
+    }
+}
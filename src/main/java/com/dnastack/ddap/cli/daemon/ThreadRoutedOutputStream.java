@@ -0,0 +1,46 @@
+package com.dnastack.ddap.cli.daemon;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Sends writes to a per-thread target, so that concurrent daemon requests each get their own {@code System.out} and
+ * {@code System.err}. Threads started while handling a request inherit its target.
+ */
+class ThreadRoutedOutputStream extends OutputStream {
+
+    private final OutputStream fallback;
+    private final InheritableThreadLocal<OutputStream> target = new InheritableThreadLocal<>();
+
+    ThreadRoutedOutputStream(OutputStream fallback) {
+        this.fallback = fallback;
+    }
+
+    void route(OutputStream outputStream) {
+        target.set(outputStream);
+    }
+
+    void clear() {
+        target.remove();
+    }
+
+    private OutputStream current() {
+        final OutputStream outputStream = target.get();
+        return outputStream != null ? outputStream : fallback;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        current().write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        current().write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        current().flush();
+    }
+}
@@ -0,0 +1,239 @@
+package com.dnastack.ddap.cli.download;
+
+import com.dnastack.ddap.cli.client.DdapTransport;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.lang.String.format;
+
+/**
+ * Lists the objects of a bucket interface through the Cloud Storage JSON API, page by page, handing each object's
+ * metadata to a consumer as it is read.
+ * <p>
+ * Each listed prefix has its own producer, which requests the next page as soon as it has read one, while the
+ * consumer is still writing it. Read pages wait in a bounded queue, so memory use does not grow with the bucket.
+ * With {@code split}, the first level below the prefix is listed with the {@code /} delimiter, and each prefix found
+ * there is listed by a producer of its own, up to {@code parallelism} at a time. Objects of different producers are
+ * then interleaved rather than in name order.
+ */
+public class BucketListing {
+
+    private static final String GCS_SCHEME = "gs://";
+    private static final String GCS_JSON_API = "https://storage.googleapis.com/storage/v1/b/";
+    private static final String DELIMITER = "/";
+    private static final int MAX_RESULTS = 1000;
+    /**
+     * Pages each producer may read ahead of the consumer.
+     */
+    private static final int PAGES_AHEAD = 2;
+
+    @FunctionalInterface
+    public interface ObjectConsumer {
+        /**
+         * Accepts the metadata of an object, as a buffer positioned before its JSON object.
+         */
+        void accept(TokenBuffer object) throws IOException;
+    }
+
+    public static class ListingException extends Exception {
+        ListingException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * One page of one prefix, or the failure of its producer.
+     */
+    private static class Page {
+        private final List<TokenBuffer> objects;
+        private final List<String> prefixes;
+        private final boolean last;
+        private final ListingException failure;
+
+        private Page(List<TokenBuffer> objects, List<String> prefixes, boolean last, ListingException failure) {
+            this.objects = objects;
+            this.prefixes = prefixes;
+            this.last = last;
+            this.failure = failure;
+        }
+    }
+
+    private final OkHttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final int parallelism;
+
+    public BucketListing(DdapTransport transport, ObjectMapper objectMapper, int parallelism) {
+        this.httpClient = transport.client()
+                                   .newBuilder()
+                                   .followRedirects(true)
+                                   .build();
+        this.objectMapper = objectMapper;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * The JSON API URL of a bucket URI as listed for an interface: a {@code gs://} URI or a JSON API bucket URL.
+     *
+     * @throws IllegalArgumentException If the URI is neither.
+     */
+    public static String bucketUrl(String bucketUri) {
+        if (bucketUri.startsWith(GCS_SCHEME)) {
+            final String bucket = bucketUri.substring(GCS_SCHEME.length()).split("/", 2)[0];
+            return GCS_JSON_API + bucket;
+        }
+        if (RangedDownload.JSON_API_BUCKET.matcher(bucketUri).matches()) {
+            return bucketUri.endsWith("/") ? bucketUri.substring(0, bucketUri.length() - 1) : bucketUri;
+        }
+        throw new IllegalArgumentException(format("Not a gs:// URI or storage JSON API bucket URL [%s]", bucketUri));
+    }
+
+    /**
+     * Lists the objects under a prefix.
+     *
+     * @return The number of objects listed.
+     */
+    public long list(String bucketUrl, String accessToken, String prefix, boolean split, ObjectConsumer consumer)
+        throws ListingException, IOException {
+        final BlockingQueue<Page> pages = new ArrayBlockingQueue<>(parallelism * PAGES_AHEAD);
+        final ExecutorService producers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            final Thread thread = new Thread(runnable, "ddap-cli-ls");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long count = 0;
+        try {
+            producers.execute(() -> produce(bucketUrl, accessToken, prefix, split ? DELIMITER : null, pages));
+            int running = 1;
+            while (running > 0) {
+                final Page page = pages.take();
+                if (page.failure != null) {
+                    throw page.failure;
+                }
+                for (TokenBuffer object : page.objects) {
+                    consumer.accept(object);
+                    count++;
+                }
+                for (String subPrefix : page.prefixes) {
+                    producers.execute(() -> produce(bucketUrl, accessToken, subPrefix, null, pages));
+                    running++;
+                }
+                if (page.last) {
+                    running--;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ListingException("Interrupted while listing", e);
+        } finally {
+            producers.shutdownNow();
+        }
+        return count;
+    }
+
+    private void produce(String bucketUrl, String accessToken, String prefix, String delimiter, BlockingQueue<Page> pages) {
+        try {
+            String pageToken = null;
+            do {
+                final List<TokenBuffer> objects = new ArrayList<>();
+                final List<String> prefixes = new ArrayList<>();
+                try {
+                    pageToken = readPage(bucketUrl, accessToken, prefix, delimiter, pageToken, objects, prefixes);
+                } catch (ListingException e) {
+                    pages.put(new Page(List.of(), List.of(), true, e));
+                    return;
+                } catch (IOException e) {
+                    final ListingException failure = new ListingException(format("Unable to list [%s] under [%s]: %s",
+                        bucketUrl,
+                        prefix,
+                        e.getMessage()), e);
+                    pages.put(new Page(List.of(), List.of(), true, failure));
+                    return;
+                }
+                pages.put(new Page(objects, prefixes, pageToken == null, null));
+            } while (pageToken != null);
+        } catch (InterruptedException e) {
+            // The listing was abandoned.
+        }
+    }
+
+    /**
+     * Reads one page into the given lists.
+     *
+     * @return The token of the next page, or null if this was the last.
+     */
+    private String readPage(String bucketUrl,
+                            String accessToken,
+                            String prefix,
+                            String delimiter,
+                            String pageToken,
+                            List<TokenBuffer> objects,
+                            List<String> prefixes) throws ListingException, IOException {
+        final HttpUrl.Builder url = HttpUrl.get(bucketUrl + "/o")
+                                           .newBuilder()
+                                           .addQueryParameter("maxResults", String.valueOf(MAX_RESULTS));
+        if (prefix != null && !prefix.isEmpty()) {
+            url.addQueryParameter("prefix", prefix);
+        }
+        if (delimiter != null) {
+            url.addQueryParameter("delimiter", delimiter);
+        }
+        if (pageToken != null) {
+            url.addQueryParameter("pageToken", pageToken);
+        }
+        final Request request = new Request.Builder()
+            .url(url.build())
+            .header("Authorization", "Bearer " + accessToken)
+            .build();
+
+        String nextPageToken = null;
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new ListingException(format("Unable to list [%s]%n%d : %s",
+                    bucketUrl,
+                    response.code(),
+                    response.message()), null);
+            }
+            try (InputStream body = response.body().byteStream();
+                 JsonParser parser = objectMapper.getFactory().createParser(body)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw new ListingException(format("Unexpected listing from [%s]", bucketUrl), null);
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    final String name = parser.getCurrentName();
+                    final JsonToken value = parser.nextToken();
+                    if ("nextPageToken".equals(name)) {
+                        nextPageToken = parser.getValueAsString();
+                    } else if ("items".equals(name) && value == JsonToken.START_ARRAY) {
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            final TokenBuffer object = new TokenBuffer(parser);
+                            object.copyCurrentStructure(parser);
+                            objects.add(object);
+                        }
+                    } else if ("prefixes".equals(name) && value == JsonToken.START_ARRAY) {
+                        while (parser.nextToken() == JsonToken.VALUE_STRING) {
+                            prefixes.add(parser.getText());
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+        }
+        return nextPageToken;
+    }
+}
@@ -0,0 +1,250 @@
+package com.dnastack.ddap.cli.download;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32C;
+
+import static java.lang.String.format;
+
+/**
+ * Compares local files with the size and checksums of the objects they were downloaded from.
+ * <p>
+ * A file's CRC32C is computed over memory-mapped segments on all worker threads at once, and the segments' CRCs are
+ * then combined, so that a single large file is hashed as fast as the cores and the disk allow. MD5 cannot be split
+ * this way, so it is only computed when asked for (or when an object has no CRC32C), over one file per thread.
+ */
+public class FileVerifier implements Closeable {
+
+    /**
+     * The reflected CRC32C (Castagnoli) polynomial.
+     */
+    private static final int CRC32C_POLYNOMIAL = 0x82F63B78;
+
+    public enum Status {
+        OK,
+        MISSING,
+        SIZE_MISMATCH,
+        CHECKSUM_MISMATCH,
+        NO_CHECKSUM,
+        UNREADABLE
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Result {
+        private final String objectName;
+        private final Path file;
+        private final Status status;
+        /**
+         * What did not match, or why the file could not be verified. Null if it matched.
+         */
+        private final String detail;
+        /**
+         * Bytes hashed.
+         */
+        private final long bytes;
+    }
+
+    private final ExecutorService workers;
+    private final long segmentSize;
+
+    public FileVerifier(int parallelism, long segmentSize) {
+        this.workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            final Thread thread = new Thread(runnable, "ddap-cli-verify");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Verifies a file against an object's metadata. The result completes once the file has been hashed.
+     *
+     * @param md5 Whether to compare the MD5 too, if the object has one.
+     */
+    public CompletableFuture<Result> verify(Path file, ObjectMetadata expected, boolean md5) {
+        if (!Files.isRegularFile(file)) {
+            return CompletableFuture.completedFuture(result(expected, file, Status.MISSING, "no such file", 0));
+        }
+        final long size;
+        try {
+            size = Files.size(file);
+        } catch (IOException e) {
+            return CompletableFuture.completedFuture(result(expected, file, Status.UNREADABLE, e.getMessage(), 0));
+        }
+        if (size != expected.getSize()) {
+            return CompletableFuture.completedFuture(result(expected,
+                file,
+                Status.SIZE_MISMATCH,
+                format("size expected %d but was %d", expected.getSize(), size),
+                0));
+        }
+        final boolean checkCrc32c = expected.getCrc32c() != null;
+        final boolean checkMd5 = expected.getMd5Hash() != null && (md5 || !checkCrc32c);
+        if (!checkCrc32c && !checkMd5) {
+            return CompletableFuture.completedFuture(result(expected, file, Status.NO_CHECKSUM, "object has no checksum", 0));
+        }
+
+        final CompletableFuture<String> crc32c = checkCrc32c ?
+            crc32c(file, size) :
+            CompletableFuture.completedFuture(null);
+        final CompletableFuture<String> md5Hash = checkMd5 ?
+            CompletableFuture.supplyAsync(() -> md5(file, size), workers) :
+            CompletableFuture.completedFuture(null);
+        return crc32c.thenCombine(md5Hash, (actualCrc32c, actualMd5) -> {
+            final long hashed = (checkCrc32c ? size : 0) + (checkMd5 ? size : 0);
+            if (checkCrc32c && !expected.getCrc32c().equals(actualCrc32c)) {
+                return result(expected,
+                    file,
+                    Status.CHECKSUM_MISMATCH,
+                    format("crc32c expected %s but was %s", expected.getCrc32c(), actualCrc32c),
+                    hashed);
+            }
+            if (checkMd5 && !expected.getMd5Hash().equals(actualMd5)) {
+                return result(expected,
+                    file,
+                    Status.CHECKSUM_MISMATCH,
+                    format("md5 expected %s but was %s", expected.getMd5Hash(), actualMd5),
+                    hashed);
+            }
+            return result(expected, file, Status.OK, null, hashed);
+        }).exceptionally(e -> {
+            final Throwable cause = (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+            return result(expected, file, Status.UNREADABLE, cause.getMessage(), 0);
+        });
+    }
+
+    private static Result result(ObjectMetadata expected, Path file, Status status, String detail, long bytes) {
+        return new Result(expected.getName(), file, status, detail, bytes);
+    }
+
+    /**
+     * The base64-encoded, big-endian CRC32C of a file, as Cloud Storage reports it.
+     */
+    private CompletableFuture<String> crc32c(Path file, long size) {
+        final List<CompletableFuture<Integer>> segments = new ArrayList<>();
+        for (long position = 0; position < size || position == 0; position += segmentSize) {
+            final long start = position;
+            final long length = Math.min(segmentSize, size - start);
+            segments.add(CompletableFuture.supplyAsync(() -> {
+                final CRC32C crc = new CRC32C();
+                if (length > 0) {
+                    crc.update(map(file, start, length));
+                }
+                return (int) crc.getValue();
+            }, workers));
+        }
+        return CompletableFuture.allOf(segments.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            int crc = segments.get(0).join();
+            for (int i = 1; i < segments.size(); i++) {
+                final long length = Math.min(segmentSize, size - i * segmentSize);
+                crc = combineCrc32c(crc, segments.get(i).join(), length);
+            }
+            return Base64.getEncoder().encodeToString(ByteBuffer.allocate(Integer.BYTES).putInt(crc).array());
+        });
+    }
+
+    private String md5(Path file, long size) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (long position = 0; position < size; position += segmentSize) {
+            digest.update(map(file, position, Math.min(segmentSize, size - position)));
+        }
+        return Base64.getEncoder().encodeToString(digest.digest());
+    }
+
+    private static MappedByteBuffer map(Path file, long position, long length) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(format("Unable to read [%s]: %s", file, e.getMessage()), e);
+        }
+    }
+
+    /**
+     * The CRC32C of two consecutive pieces of data from the CRCs of each and the length of the second, by applying
+     * {@code length2} zero bytes to the first CRC as a matrix over GF(2) (as zlib's {@code crc32_combine} does).
+     */
+    static int combineCrc32c(int crc1, int crc2, long length2) {
+        if (length2 <= 0) {
+            return crc1;
+        }
+        final int[] even = new int[32];
+        final int[] odd = new int[32];
+        // The operator for one zero bit.
+        odd[0] = CRC32C_POLYNOMIAL;
+        int row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        // Operators for two and four zero bits.
+        gf2MatrixSquare(even, odd);
+        gf2MatrixSquare(odd, even);
+
+        int crc = crc1;
+        long remaining = length2;
+        do {
+            // Apply zero bytes to the CRC, doubling the operator each time.
+            gf2MatrixSquare(even, odd);
+            if ((remaining & 1) != 0) {
+                crc = gf2MatrixTimes(even, crc);
+            }
+            remaining >>= 1;
+            if (remaining == 0) {
+                break;
+            }
+            gf2MatrixSquare(odd, even);
+            if ((remaining & 1) != 0) {
+                crc = gf2MatrixTimes(odd, crc);
+            }
+            remaining >>= 1;
+        } while (remaining != 0);
+        return crc ^ crc2;
+    }
+
+    private static int gf2MatrixTimes(int[] matrix, int vector) {
+        int sum = 0;
+        int remaining = vector;
+        for (int i = 0; remaining != 0; i++, remaining >>>= 1) {
+            if ((remaining & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(int[] square, int[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = gf2MatrixTimes(matrix, matrix[n]);
+        }
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+}
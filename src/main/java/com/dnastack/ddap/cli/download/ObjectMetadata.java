@@ -0,0 +1,17 @@
+package com.dnastack.ddap.cli.download;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+/**
+ * The fields of a Cloud Storage object's metadata needed to verify a copy of it. Checksums are base64-encoded, the
+ * CRC32C in big-endian byte order.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ObjectMetadata {
+    private String name;
+    private long size;
+    private String crc32c;
+    private String md5Hash;
+}
@@ -0,0 +1,280 @@
+package com.dnastack.ddap.cli.download;
+
+import com.dnastack.ddap.cli.client.DdapTransport;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.lang.String.format;
+
+/**
+ * Downloads an object from a bucket interface ({@code gcp:gs} or {@code http:gcp:gs}) in byte ranges fetched at the
+ * same time, each written where it belongs in a file preallocated to the object's size.
+ * <p>
+ * The first range also reveals the object's size and ETag; the other ranges are requested with {@code If-Match}, so
+ * that an object replaced during the download fails it rather than mixing versions. Ranges are fetched over HTTP/1.1
+ * connections pooled for the download, one per concurrent range, since ranges multiplexed over a single HTTP/2
+ * connection would share its window. The object is written to a {@code .part} file that replaces the destination
+ * once every range has arrived.
+ */
+public class RangedDownload {
+
+    private static final String GCS_SCHEME = "gs://";
+    private static final String GCS_XML_API = "https://storage.googleapis.com/";
+    static final Pattern JSON_API_BUCKET = Pattern.compile("^https?://.+/storage/v1/b/[^/]+/?$");
+    private static final Pattern CONTENT_RANGE = Pattern.compile("^bytes (\\d+)-(\\d+)/(\\d+)$");
+    private static final String PART_SUFFIX = ".part";
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long KEEP_ALIVE_IN_MINUTES = 1;
+
+    public static class DownloadException extends Exception {
+        DownloadException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Result {
+        private final long size;
+        private final int ranges;
+    }
+
+    private final OkHttpClient httpClient;
+    private final long chunkSize;
+    private final int parallelism;
+
+    public RangedDownload(DdapTransport transport, long chunkSize, int parallelism) {
+        this.httpClient = transport.client()
+                                   .newBuilder()
+                                   .protocols(List.of(Protocol.HTTP_1_1))
+                                   .connectionPool(new ConnectionPool(parallelism, KEEP_ALIVE_IN_MINUTES, TimeUnit.MINUTES))
+                                   .followRedirects(true)
+                                   .build();
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * The URL of an object under a bucket URI as listed for an interface: a {@code gs://} URI, a JSON API bucket URL
+     * ({@code .../storage/v1/b/<bucket>}) or any other URL under which object paths are appended.
+     */
+    public static String objectUrl(String bucketUri, String objectPath) {
+        final String object = objectPath.startsWith("/") ? objectPath.substring(1) : objectPath;
+        if (bucketUri.startsWith(GCS_SCHEME)) {
+            return GCS_XML_API + withoutTrailingSlash(bucketUri.substring(GCS_SCHEME.length())) + "/" + encodePath(object);
+        }
+        if (JSON_API_BUCKET.matcher(bucketUri).matches()) {
+            return withoutTrailingSlash(bucketUri) + "/o/" + encode(object) + "?alt=media";
+        }
+        return withoutTrailingSlash(bucketUri) + "/" + encodePath(object);
+    }
+
+    private static String withoutTrailingSlash(String uri) {
+        return uri.endsWith("/") ? uri.substring(0, uri.length() - 1) : uri;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    private static String encodePath(String path) {
+        final List<String> segments = new ArrayList<>();
+        for (String segment : path.split("/", -1)) {
+            segments.add(encode(segment));
+        }
+        return String.join("/", segments);
+    }
+
+    /**
+     * Downloads the object at the given URL to the destination, replacing it.
+     */
+    public Result download(String url, String accessToken, Path destination) throws DownloadException {
+        final Path part = destination.resolveSibling(destination.getFileName() + PART_SUFFIX);
+        try (FileChannel channel = FileChannel.open(part,
+                                                    StandardOpenOption.CREATE,
+                                                    StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            final Result result = download(url, accessToken, channel);
+            channel.force(false);
+            Files.move(part, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return result;
+        } catch (IOException e) {
+            throw new DownloadException(format("Unable to download [%s] to [%s]: %s", url, destination, e.getMessage()), e);
+        } finally {
+            try {
+                Files.deleteIfExists(part);
+            } catch (IOException e) {
+                // Left behind; the next download of the same object truncates it.
+            }
+        }
+    }
+
+    private Result download(String url, String accessToken, FileChannel channel) throws DownloadException, IOException {
+        final Request first = request(url, accessToken, 0, chunkSize - 1, null);
+        final long size;
+        final String etag;
+        try (Response response = httpClient.newCall(first).execute()) {
+            if (response.code() == 416) {
+                // Only an empty object has no first byte.
+                return new Result(0, 0);
+            }
+            if (response.code() == 200) {
+                // The server ignores ranges, so the whole object arrives in this response.
+                final long written = write(response.body(), channel, 0);
+                return new Result(written, 1);
+            }
+            if (response.code() != 206) {
+                throw failure(url, response);
+            }
+            final long[] range = contentRange(url, response);
+            size = range[2];
+            etag = response.header("ETag");
+            if (size > 0) {
+                // Preallocate, so that ranges are written into place rather than extending the file out of order.
+                channel.write(ByteBuffer.wrap(new byte[1]), size - 1);
+            }
+            write(response.body(), channel, range[0]);
+        }
+
+        final List<long[]> ranges = new ArrayList<>();
+        for (long start = chunkSize; start < size; start += chunkSize) {
+            ranges.add(new long[]{start, Math.min(start + chunkSize, size) - 1});
+        }
+        if (ranges.isEmpty()) {
+            return new Result(size, 1);
+        }
+
+        final ExecutorService workers = Executors.newFixedThreadPool(Math.min(parallelism, ranges.size()), runnable -> {
+            final Thread thread = new Thread(runnable, "ddap-cli-download");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            final List<Future<Void>> fetches = new ArrayList<>();
+            for (long[] range : ranges) {
+                fetches.add(workers.submit(() -> {
+                    fetchRange(url, accessToken, etag, range[0], range[1], channel);
+                    return null;
+                }));
+            }
+            for (Future<Void> fetch : fetches) {
+                await(fetch);
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        return new Result(size, ranges.size() + 1);
+    }
+
+    private void fetchRange(String url, String accessToken, String etag, long start, long end, FileChannel channel)
+        throws DownloadException, IOException {
+        for (int attempt = 1; ; attempt++) {
+            try (Response response = httpClient.newCall(request(url, accessToken, start, end, etag)).execute()) {
+                if (response.code() == 206 && contentRange(url, response)[0] == start) {
+                    final long written = write(response.body(), channel, start);
+                    if (written == end - start + 1) {
+                        return;
+                    }
+                    if (attempt == MAX_ATTEMPTS) {
+                        throw new DownloadException(format("Range %d-%d of [%s] was cut short", start, end, url), null);
+                    }
+                } else if (response.code() < 500 || attempt == MAX_ATTEMPTS) {
+                    throw failure(url, response);
+                }
+            } catch (IOException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static Request request(String url, String accessToken, long start, long end, String etag) {
+        final Request.Builder request = new Request.Builder()
+            .url(url)
+            .header("Authorization", "Bearer " + accessToken)
+            .header("Range", format("bytes=%d-%d", start, end))
+            // A compressed range could not be written into place.
+            .header("Accept-Encoding", "identity");
+        if (etag != null) {
+            request.header("If-Match", etag);
+        }
+        return request.build();
+    }
+
+    private static long write(ResponseBody body, FileChannel channel, long position) throws IOException {
+        if (body == null) {
+            return 0;
+        }
+        final BufferedSource source = body.source();
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        long offset = position;
+        while (source.read(buffer) != -1) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                offset += channel.write(buffer, offset);
+            }
+            buffer.clear();
+        }
+        return offset - position;
+    }
+
+    private static long[] contentRange(String url, Response response) throws DownloadException {
+        final String contentRange = response.header("Content-Range");
+        final Matcher matcher = (contentRange == null) ? null : CONTENT_RANGE.matcher(contentRange.trim());
+        if (matcher == null || !matcher.matches()) {
+            throw new DownloadException(format("Unexpected Content-Range [%s] from [%s]", contentRange, url), null);
+        }
+        return new long[]{Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2)), Long.parseLong(matcher.group(3))};
+    }
+
+    private static DownloadException failure(String url, Response response) {
+        final String reason = (response.code() == 412) ? "the object changed during the download" : response.message();
+        return new DownloadException(format("Unable to download [%s]%n%d : %s", url, response.code(), reason), null);
+    }
+
+    private static void await(Future<Void> fetch) throws DownloadException, IOException {
+        try {
+            fetch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DownloadException("Interrupted while downloading", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof DownloadException) {
+                throw (DownloadException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new DownloadException(cause.getMessage(), cause);
+        }
+    }
+}
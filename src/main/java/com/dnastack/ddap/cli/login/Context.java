@@ -1,23 +1,41 @@
 package com.dnastack.ddap.cli.login;
 
-import com.dnastack.ddap.cli.client.dam.model.DamInfo;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.util.Map;
-import lombok.RequiredArgsConstructor;
+import java.util.concurrent.TimeUnit;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 public class Context {
 
+    public static final int DEFAULT_SESSION_FRESHNESS_IN_SECONDS = 5 * 60;
+
     private String url;
     private String realm;
     private Credentials credentials;
 
+    /**
+     * Epoch millis of the last time DDAP accepted the stored session cookies.
+     */
+    private Long sessionConfirmedAt;
+    /**
+     * Epoch millis at which the stored session cookies expire, or null if DDAP issued session-scoped cookies.
+     */
+    private Long sessionExpiresAt;
+    /**
+     * How long a confirmed session is trusted without checking it against DDAP again. Null means the default.
+     */
+    private Integer sessionFreshnessSeconds;
+    /**
+     * Incremented each time the context is stored, so that a context loaded before another process stored a newer
+     * one is not written over it.
+     */
+    private long version;
+
     public Context(String url, String realm, Credentials credentials) {
         this.url = url;
         this.realm = realm;
@@ -27,4 +45,16 @@ public class Context {
     @JsonIgnore
     private boolean changed = false;
 
+    public boolean isSessionFresh(long nowMillis) {
+        if (credentials == null || credentials.getSessionId() == null || sessionConfirmedAt == null) {
+            return false;
+        }
+        final int freshnessSeconds = (sessionFreshnessSeconds != null) ?
+            sessionFreshnessSeconds :
+            DEFAULT_SESSION_FRESHNESS_IN_SECONDS;
+        final boolean withinWindow = nowMillis < sessionConfirmedAt + TimeUnit.SECONDS.toMillis(freshnessSeconds);
+        final boolean notExpired = sessionExpiresAt == null || nowMillis < sessionExpiresAt;
+        return withinWindow && notExpired;
+    }
+
 }
@@ -1,5 +1,6 @@
 package com.dnastack.ddap.cli.login;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -7,13 +8,35 @@ import lombok.AllArgsConstructor;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
 
 import static java.lang.String.format;
 
+/**
+ * Stores the login context in {@code ~/.ddap-cli}, readable by its owner only.
+ * <p>
+ * Many processes may share the file. Writers take an exclusive lock on {@code ~/.ddap-cli.lock} and replace the
+ * context file with an atomic rename, so readers never lock and never see a partly written file. Each write
+ * increments the context's version, and a context is never written over a newer version than the one it was loaded
+ * from, so that a process holding a stale session does not overwrite a newer one.
+ */
 @AllArgsConstructor
 public class ContextDAO {
+    private static final String CONTEXT_FILE_NAME = ".ddap-cli";
+    private static final String LOCK_FILE_NAME = ".ddap-cli.lock";
+    private static final String OWNER_ONLY = "rw-------";
+
     private final File homeDirectory;
     private final ObjectMapper objectMapper;
 
@@ -23,33 +46,97 @@ public class ContextDAO {
         }
     }
 
-    public void persist(Context context) throws PersistenceException {
-        final File contextFile = contextFile();
-        if (!contextFile.exists()) {
+    /**
+     * Writes the context if the stored context is still the version it was loaded from (or there is none), and
+     * advances its version.
+     *
+     * @return False if another process stored a newer context first, which is then kept.
+     */
+    public boolean persist(Context context) throws PersistenceException {
+        return write(context, false);
+    }
+
+    /**
+     * Writes the context whatever version is stored, as after a new login.
+     */
+    public void replace(Context context) throws PersistenceException {
+        write(context, true);
+    }
+
+    private boolean write(Context context, boolean replace) throws PersistenceException {
+        // File locks are held by the whole JVM, so threads of one process (the daemon) must take turns first.
+        synchronized (ContextDAO.class) {
+            return lockAndWrite(context, replace);
+        }
+    }
+
+    private boolean lockAndWrite(Context context, boolean replace) throws PersistenceException {
+        final Path contextFile = contextFile().toPath();
+        try (FileChannel lockChannel = FileChannel.open(new File(homeDirectory, LOCK_FILE_NAME).toPath(),
+                                                        StandardOpenOption.CREATE,
+                                                        StandardOpenOption.WRITE);
+             FileLock ignored = lockChannel.lock()) {
+            final long storedVersion = storedVersion(contextFile);
+            if (!replace && storedVersion > context.getVersion()) {
+                return false;
+            }
+
+            final long previousVersion = context.getVersion();
+            context.setVersion(Math.max(storedVersion, previousVersion) + 1);
+            final Path temporaryFile = contextFile.resolveSibling(CONTEXT_FILE_NAME + "." + ProcessHandle.current().pid());
             try {
-                contextFile.createNewFile();
-            } catch (IOException e) {
-                throw new PersistenceException(format("Unable to create persistence file [%s]", contextFile), e);
+                try (FileChannel channel = FileChannel.open(createOwnerOnlyFile(temporaryFile), StandardOpenOption.WRITE);
+                     OutputStream output = Channels.newOutputStream(channel)) {
+                    objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValue(output, context);
+                    channel.force(true);
+                }
+                Files.move(temporaryFile, contextFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException | RuntimeException e) {
+                context.setVersion(previousVersion);
+                throw e;
+            } finally {
+                Files.deleteIfExists(temporaryFile);
             }
+            return true;
+        } catch (IOException e) {
+            throw new PersistenceException(format("Unable to write context file [%s]", contextFile), e);
         }
-        try {
-            objectMapper.writer().writeValue(contextFile, context);
+    }
+
+    /**
+     * The version of the stored context, or -1 if there is none. A context that cannot be read is replaced.
+     */
+    private long storedVersion(Path contextFile) {
+        try (InputStream input = Files.newInputStream(contextFile)) {
+            return objectMapper.readValue(input, Context.class).getVersion();
         } catch (IOException e) {
-            throw new PersistenceException(format("Unable to serialize context [%s]", context), e);
+            return -1;
+        }
+    }
+
+    private static Path createOwnerOnlyFile(Path file) throws IOException {
+        Files.deleteIfExists(file);
+        try {
+            return Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString(OWNER_ONLY)));
+        } catch (UnsupportedOperationException e) {
+            final Path created = Files.createFile(file);
+            created.toFile().setReadable(false, false);
+            created.toFile().setReadable(true, true);
+            return created;
         }
     }
 
     public File contextFile() {
-        return new File(homeDirectory, ".ddap-cli");
+        return new File(homeDirectory, CONTEXT_FILE_NAME);
     }
 
     public Context load() throws PersistenceException {
         final File contextFile = contextFile();
-        try (final FileReader reader = new FileReader(contextFile)) {
-            return objectMapper.readValue(reader, Context.class);
+        try (InputStream input = Files.newInputStream(contextFile.toPath())) {
+            return objectMapper.readValue(input, Context.class);
         } catch (JsonParseException | JsonMappingException e) {
             throw new PersistenceException(format("Could not parse contents of context file [%s]", contextFile), e);
-        } catch (FileNotFoundException e) {
+        } catch (FileNotFoundException | NoSuchFileException e) {
             throw new PersistenceException(format("Context file does not exist [%s]", contextFile), e);
         } catch (IOException e) {
             throw new PersistenceException(format("Unable to read context file [%s]", contextFile), e);
@@ -0,0 +1,131 @@
+package com.dnastack.ddap.cli.login;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * A host-wide lease on re-establishing the DDAP session stored in {@code ~/.ddap-cli}, held as an exclusive lock on
+ * {@code ~/.ddap-cli.refresh.lock}. While one process logs in, the others wait for the lease and then take the
+ * session it stored rather than logging in themselves, so that an expired session costs one login per host however
+ * many processes notice it.
+ */
+public class SessionRefreshLease {
+    private static final String LEASE_FILE_NAME = ".ddap-cli.refresh.lock";
+
+    private final File homeDirectory;
+    private final ContextDAO contextDAO;
+
+    public SessionRefreshLease(File homeDirectory, ContextDAO contextDAO) {
+        this.homeDirectory = homeDirectory;
+        this.contextDAO = contextDAO;
+    }
+
+    /**
+     * Re-establishes the session of the given context while holding the lease, unless the stored context holds a
+     * session that another process established meanwhile, which is then adopted instead. A new session is stored
+     * before the lease is released.
+     *
+     * @param rejected True if DDAP rejected the context's session, in which case only a different session is adopted.
+     * @param login    Establishes a new session in the context.
+     */
+    public void refresh(Context context, boolean rejected, Runnable login) {
+        // File locks are held by the whole JVM, so threads of one process (the daemon) must take turns first.
+        synchronized (SessionRefreshLease.class) {
+            final FileChannel lease;
+            try {
+                lease = openLocked();
+            } catch (IOException e) {
+                // Without a lease (for example, in a read-only home directory), each process logs in on its own.
+                login.run();
+                return;
+            }
+
+            try (lease) {
+                final Context stored = loadStored();
+                if (stored != null && canAdopt(context, stored, rejected, System.currentTimeMillis())) {
+                    adopt(context, stored);
+                    return;
+                }
+                login.run();
+                store(context, stored);
+            } catch (IOException e) {
+                // Closing the lease released it anyway.
+            }
+        }
+    }
+
+    /**
+     * Opens the lease file and waits for its lock. The file is closed again if it cannot be locked.
+     */
+    private FileChannel openLocked() throws IOException {
+        final FileChannel channel = FileChannel.open(new File(homeDirectory, LEASE_FILE_NAME).toPath(),
+                                                     StandardOpenOption.CREATE,
+                                                     StandardOpenOption.WRITE);
+        try {
+            channel.lock();
+            return channel;
+        } catch (IOException | RuntimeException e) {
+            try {
+                channel.close();
+            } catch (IOException closeFailure) {
+                e.addSuppressed(closeFailure);
+            }
+            throw e;
+        }
+    }
+
+    private Context loadStored() {
+        try {
+            return contextDAO.load();
+        } catch (ContextDAO.PersistenceException e) {
+            return null;
+        }
+    }
+
+    private static boolean canAdopt(Context context, Context stored, boolean rejected, long nowMillis) {
+        final Credentials own = context.getCredentials();
+        final Credentials storedCredentials = stored.getCredentials();
+        // A new login has no session yet, and must not take over whichever session was stored before.
+        if (own == null || own.getSessionId() == null || storedCredentials == null || storedCredentials.getSessionId() == null) {
+            return false;
+        }
+        if (!Objects.equals(context.getUrl(), stored.getUrl())
+            || !Objects.equals(own.getUsername(), storedCredentials.getUsername())) {
+            return false;
+        }
+        if (rejected) {
+            final boolean notExpired = stored.getSessionExpiresAt() == null || nowMillis < stored.getSessionExpiresAt();
+            return notExpired && !storedCredentials.getSessionId().equals(own.getSessionId());
+        }
+        // A session that was merely due for a check is taken only if another process has just confirmed it.
+        return stored.isSessionFresh(nowMillis);
+    }
+
+    private static void adopt(Context context, Context stored) {
+        context.getCredentials().setSessionId(stored.getCredentials().getSessionId());
+        context.getCredentials().setSessionDecryptionKey(stored.getCredentials().getSessionDecryptionKey());
+        context.setSessionConfirmedAt(stored.getSessionConfirmedAt());
+        context.setSessionExpiresAt(stored.getSessionExpiresAt());
+        context.setVersion(stored.getVersion());
+        context.setChanged(false);
+    }
+
+    /**
+     * Stores the new session over the stored context: whatever that holds, this session was established after it.
+     */
+    private void store(Context context, Context stored) {
+        if (stored != null) {
+            context.setVersion(Math.max(context.getVersion(), stored.getVersion()));
+        }
+        try {
+            if (contextDAO.persist(context)) {
+                context.setChanged(false);
+            }
+        } catch (ContextDAO.PersistenceException e) {
+            // The context stays changed, so the command stores it (or reports why it cannot) later.
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.dnastack.ddap.cli.metadata;
+
+import com.dnastack.ddap.cli.client.dam.model.ResourceTokens;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * Serves a DDAP-issued token under the paths of the Compute Engine metadata server, so that Google client libraries
+ * pointed at it (with {@code GCE_METADATA_HOST}) pick the token up as their default credentials.
+ * <p>
+ * The server listens on a loopback port and, like the real metadata server, only answers requests that carry
+ * {@code Metadata-Flavor: Google} and were not forwarded by a proxy. That keeps out browsers and proxies, but not
+ * other users of the machine, who can all connect to the port. With a secret path, the server answers only below a
+ * random path chosen for the run, which clients learn from {@code GCE_METADATA_HOST} (they append their paths to it).
+ * <p>
+ * The token is held in memory and acquired again in the background shortly before it expires; until a new token
+ * arrives, the current one is served.
+ */
+public class MetadataServer {
+
+    private static final String FLAVOR_HEADER = "Metadata-Flavor";
+    private static final String FLAVOR = "Google";
+    private static final String SERVICE_ACCOUNT_PATH = "/computeMetadata/v1/instance/service-accounts/default/";
+    private static final String DEFAULT_ACCOUNT = "default";
+    private static final int WORKER_THREADS = 4;
+    private static final int SECRET_LENGTH_IN_BYTES = 24;
+    /**
+     * How long before expiry a new token is acquired, at most half of the token's lifetime.
+     */
+    private static final long REFRESH_LEAD_IN_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    /**
+     * Expiry times are derived from {@code expires_in}, which is rounded to seconds.
+     */
+    private static final long EXPIRY_PRECISION_IN_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    private static final long RETRY_INTERVAL_IN_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    /**
+     * Reported for tokens that DDAP issued without an expiry, which are never acquired again.
+     */
+    private static final long UNKNOWN_EXPIRY_IN_SECONDS = 300;
+
+    public interface TokenSource {
+        /**
+         * Returns unexpired cached tokens for the served interface, such as those of a recent {@code get-access}.
+         */
+        Optional<ResourceTokens> cached();
+
+        /**
+         * Authorizes the served interface and returns new tokens.
+         */
+        ResourceTokens authorize() throws Exception;
+    }
+
+    public static class MetadataException extends Exception {
+        MetadataException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * A token and the time it expires at, or null if it does not expire.
+     */
+    private static class ServedToken {
+        private final String accessToken;
+        private final String account;
+        private final Long expiresAt;
+        private final long obtainedAt;
+
+        private ServedToken(String accessToken, String account, Long expiresAt, long obtainedAt) {
+            this.accessToken = accessToken;
+            this.account = account;
+            this.expiresAt = expiresAt;
+            this.obtainedAt = obtainedAt;
+        }
+    }
+
+    private final InetSocketAddress address;
+    /**
+     * The path all others are served below: empty, or a slash and the run's secret.
+     */
+    private final String pathPrefix;
+    private final TokenSource tokenSource;
+    private final ObjectMapper objectMapper;
+    private final PrintStream messages;
+    private volatile ServedToken servedToken;
+
+    /**
+     * @param secretPath Serve only below a random path, so that a client must know it to get the token.
+     */
+    public MetadataServer(int port, boolean secretPath, TokenSource tokenSource, ObjectMapper objectMapper, PrintStream messages) {
+        this.address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        this.pathPrefix = secretPath ? "/" + newSecret() : "";
+        this.tokenSource = tokenSource;
+        this.objectMapper = objectMapper;
+        this.messages = messages;
+    }
+
+    /**
+     * Acquires the first token, then serves it and keeps it fresh until the JVM is stopped.
+     *
+     * @throws MetadataException If the first token cannot be acquired or the port cannot be opened.
+     */
+    public void serve() throws MetadataException {
+        try {
+            final Optional<ServedToken> cached = cached();
+            servedToken = cached.isPresent() ? cached.get() : authorize();
+        } catch (Exception e) {
+            throw new MetadataException(format("Unable to acquire a token: %s", e.getMessage()), e);
+        }
+
+        final HttpServer server;
+        try {
+            server = HttpServer.create(address, 0);
+        } catch (IOException e) {
+            throw new MetadataException(format("Unable to listen on [%s:%d]: %s",
+                address.getHostString(),
+                address.getPort(),
+                e.getMessage()), e);
+        }
+        final ExecutorService workers = Executors.newFixedThreadPool(WORKER_THREADS, runnable -> {
+            final Thread thread = new Thread(runnable, "ddap-cli-metadata-request");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(workers);
+        server.createContext("/", this::handle);
+        server.start();
+        messages.printf("Serving metadata on %s:%d. Point Google client libraries at it with:%n",
+            server.getAddress().getAddress().getHostAddress(),
+            server.getAddress().getPort());
+        messages.printf("export GCE_METADATA_HOST=%s:%d%s%n",
+            server.getAddress().getAddress().getHostAddress(),
+            server.getAddress().getPort(),
+            pathPrefix);
+        if (pathPrefix.isEmpty()) {
+            messages.println("Every user of this machine can read the token from this port. Use --secret-path to prevent that.");
+        }
+
+        try {
+            keepFresh();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            server.stop(0);
+            workers.shutdownNow();
+        }
+    }
+
+    private void keepFresh() throws InterruptedException {
+        while (true) {
+            final ServedToken current = servedToken;
+            if (current.expiresAt == null) {
+                Thread.sleep(Long.MAX_VALUE);
+            }
+            final long lifetime = current.expiresAt - current.obtainedAt;
+            final long refreshAt = current.expiresAt - Math.min(REFRESH_LEAD_IN_MILLIS, lifetime / 2);
+            final long now = System.currentTimeMillis();
+            if (now < refreshAt) {
+                Thread.sleep(refreshAt - now);
+            }
+            try {
+                // The cache still holds the served token, but may also hold a newer one from another process.
+                final Optional<ServedToken> cached = cached()
+                    .filter(token -> token.expiresAt == null || token.expiresAt > current.expiresAt + EXPIRY_PRECISION_IN_MILLIS);
+                servedToken = cached.isPresent() ? cached.get() : authorize();
+                messages.println("Token refreshed");
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                messages.printf("Unable to refresh token, retrying in %d seconds: %s%n",
+                    TimeUnit.MILLISECONDS.toSeconds(RETRY_INTERVAL_IN_MILLIS),
+                    e.getMessage());
+                Thread.sleep(RETRY_INTERVAL_IN_MILLIS);
+            }
+        }
+    }
+
+    private Optional<ServedToken> cached() {
+        final long now = System.currentTimeMillis();
+        return tokenSource.cached()
+                          .filter(tokens -> tokens.getAccessToken() != null)
+                          .map(tokens -> served(tokens, now));
+    }
+
+    private ServedToken authorize() throws Exception {
+        final long now = System.currentTimeMillis();
+        final ResourceTokens tokens = tokenSource.authorize();
+        if (tokens == null || tokens.getAccessToken() == null) {
+            throw new IllegalStateException("DDAP returned no access token");
+        }
+        return served(tokens, now);
+    }
+
+    private static ServedToken served(ResourceTokens tokens, long now) {
+        final String expiresIn = tokens.getCredentials().get("expires_in");
+        Long expiresAt = null;
+        if (expiresIn != null) {
+            try {
+                expiresAt = now + TimeUnit.SECONDS.toMillis(Long.parseLong(expiresIn.trim()));
+            } catch (NumberFormatException e) {
+                // Served as a token without an expiry.
+            }
+        }
+        final String account = tokens.getCredentials().getOrDefault("account", DEFAULT_ACCOUNT);
+        return new ServedToken(tokens.getAccessToken(), account, expiresAt, now);
+    }
+
+    private static String newSecret() {
+        final byte[] secret = new byte[SECRET_LENGTH_IN_BYTES];
+        new SecureRandom().nextBytes(secret);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(secret);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            exchange.getResponseHeaders().set(FLAVOR_HEADER, FLAVOR);
+            final String requestPath = exchange.getRequestURI().getPath();
+            if (!requestPath.startsWith(pathPrefix + "/")) {
+                send(exchange, 404, "text/plain", "Not found.");
+                return;
+            }
+            if (!FLAVOR.equals(exchange.getRequestHeaders().getFirst(FLAVOR_HEADER))
+                || exchange.getRequestHeaders().containsKey("X-Forwarded-For")) {
+                send(exchange, 403, "text/plain", "Missing Metadata-Flavor:Google header.");
+                return;
+            }
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, "text/plain", "Method not allowed.");
+                return;
+            }
+            final String path = requestPath.substring(pathPrefix.length());
+            final ServedToken token = servedToken;
+            switch (path) {
+                case "/":
+                    send(exchange, 200, "application/text", "computeMetadata/\n");
+                    break;
+                case SERVICE_ACCOUNT_PATH + "token":
+                    sendToken(exchange, token);
+                    break;
+                case SERVICE_ACCOUNT_PATH + "email":
+                    send(exchange, 200, "application/text", token.account);
+                    break;
+                case SERVICE_ACCOUNT_PATH:
+                    final Map<String, Object> serviceAccount = new LinkedHashMap<>();
+                    serviceAccount.put("aliases", List.of(DEFAULT_ACCOUNT));
+                    serviceAccount.put("email", token.account);
+                    serviceAccount.put("scopes", List.of());
+                    send(exchange, 200, "application/json", objectMapper.writeValueAsString(serviceAccount));
+                    break;
+                default:
+                    send(exchange, 404, "text/plain", "Not found.");
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void sendToken(HttpExchange exchange, ServedToken token) throws IOException {
+        final long expiresInSeconds;
+        if (token.expiresAt == null) {
+            expiresInSeconds = UNKNOWN_EXPIRY_IN_SECONDS;
+        } else {
+            expiresInSeconds = TimeUnit.MILLISECONDS.toSeconds(token.expiresAt - System.currentTimeMillis());
+            if (expiresInSeconds <= 0) {
+                send(exchange, 503, "text/plain", "Token expired and not yet refreshed.");
+                return;
+            }
+        }
+        final Map<String, Object> body = new LinkedHashMap<>();
+        body.put("access_token", token.accessToken);
+        body.put("expires_in", expiresInSeconds);
+        body.put("token_type", "Bearer");
+        send(exchange, 200, "application/json", objectMapper.writeValueAsString(body));
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, (bytes.length == 0) ? -1 : bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+}
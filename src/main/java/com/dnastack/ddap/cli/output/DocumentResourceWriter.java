@@ -0,0 +1,56 @@
+package com.dnastack.ddap.cli.output;
+
+import com.dnastack.ddap.cli.client.dam.model.DamStatus;
+import com.dnastack.ddap.cli.client.dam.model.Resource;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLGenerator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * Writes the catalog as a single document, shaped like DDAP's response, in the format of the given mapper (JSON or
+ * YAML).
+ */
+public class DocumentResourceWriter implements ResourceWriter {
+
+    private final JsonGenerator generator;
+    private final OutputStream outputStream;
+
+    public DocumentResourceWriter(ObjectMapper objectMapper, OutputStream outputStream) throws IOException {
+        this.outputStream = outputStream;
+        this.generator = objectMapper.getFactory()
+                                     .createGenerator(outputStream)
+                                     .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
+                                     .configure(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT, false);
+        generator.writeStartObject();
+        generator.writeFieldName("data");
+        generator.writeStartArray();
+    }
+
+    @Override
+    public void write(Resource resource) throws IOException {
+        generator.writeObject(resource);
+    }
+
+    @Override
+    public void finish(Map<String, DamStatus> damStatus) throws IOException {
+        generator.writeEndArray();
+        if (damStatus != null) {
+            generator.writeObjectField("damStatus", damStatus);
+        }
+        generator.writeEndObject();
+        generator.flush();
+        // YAML documents already end with a line break.
+        if (!(generator instanceof YAMLGenerator)) {
+            outputStream.write('\n');
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
@@ -0,0 +1,62 @@
+package com.dnastack.ddap.cli.output;
+
+import com.dnastack.ddap.cli.client.dam.model.Interface;
+import com.dnastack.ddap.cli.client.dam.model.Resource;
+import com.dnastack.ddap.cli.client.dam.model.View;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One interface of one view of one resource, as written by the flat formats. Resources without views, and views
+ * without interfaces, still get a row, with the missing parts null.
+ */
+@Data
+@AllArgsConstructor
+class InterfaceRow {
+
+    static final List<String> COLUMNS = List.of("resource", "label", "view", "interface", "uri");
+
+    private final String resource;
+    private final String label;
+    private final String view;
+    private final String interfaceType;
+    private final List<String> uris;
+
+    List<String> values() {
+        return List.of(nullToEmpty(resource),
+                       nullToEmpty(label),
+                       nullToEmpty(view),
+                       nullToEmpty(interfaceType),
+                       String.join(",", uris));
+    }
+
+    private static String nullToEmpty(String value) {
+        return (value == null) ? "" : value;
+    }
+
+    static List<InterfaceRow> of(Resource resource) {
+        final String resourceId = resource.getId();
+        final String label = resource.getUi().get("label");
+        final Map<String, View> views = resource.getViews();
+        final List<InterfaceRow> rows = new ArrayList<>();
+        if (views.isEmpty()) {
+            rows.add(new InterfaceRow(resourceId, label, null, null, List.of()));
+        }
+        views.forEach((viewName, view) -> {
+            final Map<String, Interface> interfaces = view.getInterfaces().getInterfacesByType();
+            if (interfaces.isEmpty()) {
+                rows.add(new InterfaceRow(resourceId, label, viewName, null, List.of()));
+            }
+            interfaces.forEach((interfaceType, anInterface) -> rows.add(new InterfaceRow(resourceId,
+                                                                                         label,
+                                                                                         viewName,
+                                                                                         interfaceType,
+                                                                                         anInterface.getUri())));
+        });
+        return rows;
+    }
+}
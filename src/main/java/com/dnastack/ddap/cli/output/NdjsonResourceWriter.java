@@ -0,0 +1,68 @@
+package com.dnastack.ddap.cli.output;
+
+import com.dnastack.ddap.cli.client.dam.model.DamStatus;
+import com.dnastack.ddap.cli.client.dam.model.Resource;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * Writes newline-delimited JSON: one object per interface of each view of each resource (see {@link InterfaceRow}).
+ */
+public class NdjsonResourceWriter implements ResourceWriter {
+
+    private final JsonGenerator generator;
+    private boolean rowWritten;
+
+    public NdjsonResourceWriter(ObjectMapper jsonMapper, OutputStream outputStream) throws IOException {
+        this.generator = jsonMapper.getFactory()
+                                   .createGenerator(outputStream)
+                                   .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
+                                   .setRootValueSeparator(new SerializedString("\n"));
+    }
+
+    @Override
+    public void write(Resource resource) throws IOException {
+        for (InterfaceRow row : InterfaceRow.of(resource)) {
+            generator.writeStartObject();
+            writeStringField("resource", row.getResource());
+            writeStringField("label", row.getLabel());
+            writeStringField("view", row.getView());
+            writeStringField("interface", row.getInterfaceType());
+            generator.writeArrayFieldStart("uri");
+            for (String uri : row.getUris()) {
+                generator.writeString(uri);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+            rowWritten = true;
+        }
+    }
+
+    private void writeStringField(String name, String value) throws IOException {
+        if (value != null) {
+            generator.writeStringField(name, value);
+        }
+    }
+
+    /**
+     * Ends the last line, if any: without rows the output is empty. The DAM status is not written, since every line is
+     * a row.
+     */
+    @Override
+    public void finish(Map<String, DamStatus> damStatus) throws IOException {
+        if (rowWritten) {
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
@@ -0,0 +1,24 @@
+package com.dnastack.ddap.cli.output;
+
+import com.dnastack.ddap.cli.client.dam.model.DamStatus;
+import com.dnastack.ddap.cli.client.dam.model.Resource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Writes a catalog one resource at a time, as it is read.
+ */
+public interface ResourceWriter extends Closeable {
+
+    void write(Resource resource) throws IOException;
+
+    /**
+     * Completes the output. Closing a writer without finishing it flushes what was written but leaves the output
+     * incomplete, so that a failed listing does not look like a complete one.
+     *
+     * @param damStatus The status of each DAM if DAMs were listed separately, otherwise null.
+     */
+    void finish(Map<String, DamStatus> damStatus) throws IOException;
+}
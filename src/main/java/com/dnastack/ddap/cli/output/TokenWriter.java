@@ -0,0 +1,93 @@
+package com.dnastack.ddap.cli.output;
+
+import com.dnastack.ddap.cli.client.dam.model.ResourceTokens;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLGenerator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the tokens acquired by {@code get-access}, keyed by interface ID.
+ */
+public class TokenWriter {
+
+    private TokenWriter() {
+    }
+
+    /**
+     * Writes a single document with the given mapper (JSON or YAML). A single interface's tokens are written on their
+     * own rather than in a map.
+     */
+    public static void writeDocument(ObjectMapper objectMapper, OutputStream outputStream, Map<String, ResourceTokens> tokensByInterfaceId) throws IOException {
+        final Object value = tokensByInterfaceId.size() == 1 ? tokensByInterfaceId.values().iterator().next() : tokensByInterfaceId;
+        final JsonGenerator generator = objectMapper.getFactory()
+                                                    .createGenerator(outputStream)
+                                                    .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+        try (generator) {
+            generator.writeObject(value);
+        }
+        // YAML documents already end with a line break.
+        if (!(generator instanceof YAMLGenerator)) {
+            outputStream.write('\n');
+        }
+    }
+
+    /**
+     * Writes one JSON object per line, with the interface ID and its credentials.
+     */
+    public static void writeNdjson(ObjectMapper jsonMapper, OutputStream outputStream, Map<String, ResourceTokens> tokensByInterfaceId) throws IOException {
+        try (JsonGenerator generator = jsonMapper.getFactory()
+                                                 .createGenerator(outputStream)
+                                                 .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
+                                                 .setRootValueSeparator(new SerializedString("\n"))) {
+            for (Map.Entry<String, ResourceTokens> tokens : tokensByInterfaceId.entrySet()) {
+                generator.writeStartObject();
+                generator.writeStringField("interface", tokens.getKey());
+                generator.writeObjectField("credentials", tokens.getValue().getCredentials());
+                generator.writeEndObject();
+            }
+            if (!tokensByInterfaceId.isEmpty()) {
+                generator.writeRaw('\n');
+            }
+        }
+    }
+
+    /**
+     * Writes a header of {@code interface} and every credential name, then one row per interface.
+     */
+    public static void writeTsv(OutputStream outputStream, Map<String, ResourceTokens> tokensByInterfaceId) throws IOException {
+        final Set<String> credentialNames = new LinkedHashSet<>();
+        tokensByInterfaceId.values().forEach(tokens -> {
+            if (tokens.getCredentials() != null) {
+                credentialNames.addAll(tokens.getCredentials().keySet());
+            }
+        });
+
+        final Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+        final List<String> header = new ArrayList<>();
+        header.add("interface");
+        header.addAll(credentialNames);
+        TsvResourceWriter.writeRow(writer, header);
+        for (Map.Entry<String, ResourceTokens> tokens : tokensByInterfaceId.entrySet()) {
+            final Map<String, String> credentials = (tokens.getValue().getCredentials() == null) ? Map.of() : tokens.getValue().getCredentials();
+            final List<String> row = new ArrayList<>();
+            row.add(tokens.getKey());
+            for (String credentialName : credentialNames) {
+                row.add(String.valueOf(credentials.getOrDefault(credentialName, "")));
+            }
+            TsvResourceWriter.writeRow(writer, row);
+        }
+        writer.flush();
+    }
+}
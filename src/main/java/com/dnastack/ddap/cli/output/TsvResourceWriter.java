@@ -0,0 +1,92 @@
+package com.dnastack.ddap.cli.output;
+
+import com.dnastack.ddap.cli.client.dam.model.DamStatus;
+import com.dnastack.ddap.cli.client.dam.model.Resource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes tab-separated values: a header, then one row per interface of each view of each resource (see
+ * {@link InterfaceRow}), with the URIs of an interface separated by commas.
+ */
+public class TsvResourceWriter implements ResourceWriter {
+
+    private final Writer writer;
+
+    public TsvResourceWriter(OutputStream outputStream) throws IOException {
+        this.writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+        writeRow(writer, InterfaceRow.COLUMNS);
+    }
+
+    @Override
+    public void write(Resource resource) throws IOException {
+        for (InterfaceRow row : InterfaceRow.of(resource)) {
+            writeRow(writer, row.values());
+        }
+    }
+
+    /**
+     * The DAM status is not written, since every line is a row.
+     */
+    @Override
+    public void finish(Map<String, DamStatus> damStatus) throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+    }
+
+    /**
+     * Writes one line, escaping backslashes, tabs and line breaks in the values.
+     */
+    static void writeRow(Writer writer, List<String> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write('\t');
+            }
+            final String value = values.get(i);
+            if (!needsEscaping(value)) {
+                writer.write(value);
+                continue;
+            }
+            for (int j = 0; j < value.length(); j++) {
+                final char c = value.charAt(j);
+                switch (c) {
+                    case '\\':
+                        writer.write("\\\\");
+                        break;
+                    case '\t':
+                        writer.write("\\t");
+                        break;
+                    case '\n':
+                        writer.write("\\n");
+                        break;
+                    case '\r':
+                        writer.write("\\r");
+                        break;
+                    default:
+                        writer.write(c);
+                }
+            }
+        }
+        writer.write('\n');
+    }
+
+    private static boolean needsEscaping(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '\\' || c == '\t' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
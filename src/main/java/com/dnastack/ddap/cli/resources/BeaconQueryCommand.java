@@ -0,0 +1,104 @@
+package com.dnastack.ddap.cli.resources;
+
+import com.dnastack.ddap.cli.beacon.BeaconClient;
+import com.dnastack.ddap.cli.beacon.BeaconQuery;
+import com.dnastack.ddap.cli.beacon.BeaconResult;
+import com.dnastack.ddap.cli.client.DdapTransport;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+
+import static java.lang.String.format;
+
+@AllArgsConstructor
+public class BeaconQueryCommand {
+
+    private final DdapTransport transport;
+    private final ObjectMapper objectMapper;
+    private final int parallelism;
+    /**
+     * Where the answers are written, one JSON document per line. It is flushed, but not closed.
+     */
+    private final OutputStream output;
+    /**
+     * Where the summary is printed.
+     */
+    private final PrintStream messages;
+
+    public static class BeaconQueryException extends Exception {
+        BeaconQueryException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * Sends every query read from the input to a beacon, several at a time, and writes the answers in the order of
+     * the queries. Blank lines and lines starting with "#" are skipped. The input is not closed.
+     *
+     * @return The number of queries that failed.
+     */
+    public long query(String beaconUrl, String accessToken, String assemblyId, BufferedReader input) throws BeaconQueryException {
+        long queries = 0;
+        long failures = 0;
+        final long startedAt = System.nanoTime();
+        try (BeaconClient beaconClient = new BeaconClient(transport, objectMapper, beaconUrl, accessToken, parallelism);
+             JsonGenerator generator = objectMapper.getFactory()
+                                                   .createGenerator(output)
+                                                   .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
+                                                   .setRootValueSeparator(new SerializedString("\n"))) {
+            // Answers are written in the order of the queries, so only the oldest pending query is waited for.
+            final Deque<CompletableFuture<BeaconResult>> pending = new ArrayDeque<>();
+            long line = 0;
+            String text;
+            while ((text = input.readLine()) != null) {
+                line++;
+                if (text.isBlank() || text.startsWith("#")) {
+                    continue;
+                }
+                if (pending.size() >= parallelism) {
+                    failures += write(generator, pending.poll().join());
+                }
+                CompletableFuture<BeaconResult> result;
+                try {
+                    result = beaconClient.query(line, BeaconQuery.parse(text, assemblyId, objectMapper));
+                } catch (IllegalArgumentException e) {
+                    result = CompletableFuture.completedFuture(new BeaconResult(line, null, null, 0, 0, null, e.getMessage()));
+                }
+                pending.add(result);
+                queries++;
+                while (!pending.isEmpty() && pending.peek().isDone()) {
+                    failures += write(generator, pending.poll().join());
+                }
+            }
+            while (!pending.isEmpty()) {
+                failures += write(generator, pending.poll().join());
+            }
+            if (queries > 0) {
+                generator.writeRaw('\n');
+            }
+        } catch (IOException e) {
+            throw new BeaconQueryException(format("Unable to run queries: %s", e.getMessage()), e);
+        }
+
+        final double seconds = Math.max(System.nanoTime() - startedAt, 1) / 1e9;
+        messages.printf("%d queries, %d failed (%.1f queries/s)%n", queries, failures, queries / seconds);
+        return failures;
+    }
+
+    /**
+     * @return 1 if the query failed, else 0.
+     */
+    private int write(JsonGenerator generator, BeaconResult result) throws IOException {
+        objectMapper.writeValue(generator, result);
+        return result.isSuccess() ? 0 : 1;
+    }
+}
@@ -0,0 +1,45 @@
+package com.dnastack.ddap.cli.resources;
+
+import com.dnastack.ddap.cli.login.Context;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Optional;
+
+import static java.lang.String.format;
+
+/**
+ * Keys for data cached on behalf of the logged-in principal, which must not be served to anyone else.
+ */
+class CacheKeys {
+
+    /**
+     * A hash of the DDAP URL, realm, principal and the given parts, or empty if the principal is unknown. Logins
+     * without a username are identified by their session.
+     */
+    static Optional<String> forPrincipal(Context context, String... parts) {
+        final String principal;
+        if (context.getCredentials() != null && context.getCredentials().getUsername() != null) {
+            principal = "user:" + context.getCredentials().getUsername();
+        } else if (context.getCredentials() != null && context.getCredentials().getSessionId() != null) {
+            principal = "session:" + context.getCredentials().getSessionId();
+        } else {
+            return Optional.empty();
+        }
+        return Optional.of(sha256Hex(String.join("\n", context.getUrl(), context.getRealm(), principal, String.join("\n", parts))));
+    }
+
+    private static String sha256Hex(String value) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
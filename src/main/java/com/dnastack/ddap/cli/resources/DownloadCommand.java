@@ -0,0 +1,48 @@
+package com.dnastack.ddap.cli.resources;
+
+import com.dnastack.ddap.cli.client.DdapTransport;
+import com.dnastack.ddap.cli.download.RangedDownload;
+import lombok.AllArgsConstructor;
+
+import java.io.File;
+import java.io.PrintStream;
+
+@AllArgsConstructor
+public class DownloadCommand {
+
+    private final DdapTransport transport;
+    private final long chunkSize;
+    private final int parallelism;
+    /**
+     * Where the transfer summary is printed.
+     */
+    private final PrintStream messages;
+
+    public static class DownloadException extends Exception {
+        DownloadException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * Downloads an object of a bucket interface in ranges fetched at once, and prints how fast it went.
+     *
+     * @param bucketUri The bucket URI of the interface, as listed.
+     */
+    public void download(String bucketUri, String objectPath, String accessToken, File destination) throws DownloadException {
+        final String url = RangedDownload.objectUrl(bucketUri, objectPath);
+        final long startedAt = System.nanoTime();
+        final RangedDownload.Result result;
+        try {
+            result = new RangedDownload(transport, chunkSize, parallelism).download(url, accessToken, destination.toPath());
+        } catch (RangedDownload.DownloadException e) {
+            throw new DownloadException(e.getMessage(), e);
+        }
+        final double seconds = Math.max(System.nanoTime() - startedAt, 1) / 1e9;
+        messages.printf("Downloaded %d bytes in %d ranges to %s (%.1f MiB/s)%n",
+            result.getSize(),
+            result.getRanges(),
+            destination.getPath(),
+            result.getSize() / seconds / (1024 * 1024));
+    }
+}
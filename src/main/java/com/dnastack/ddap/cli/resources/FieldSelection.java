@@ -0,0 +1,127 @@
+package com.dnastack.ddap.cli.resources;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of field paths such as {@code id,ui.label,views.*.interfaces}, where {@code *} stands for any key of a map.
+ * Selecting a field selects everything below it.
+ */
+public class FieldSelection {
+
+    private static final String ANY_KEY = "*";
+
+    public static final FieldSelection ALL = new FieldSelection(true);
+
+    private final boolean all;
+    private final Map<String, FieldSelection> children = new LinkedHashMap<>();
+
+    private FieldSelection(boolean all) {
+        this.all = all;
+    }
+
+    public static FieldSelection none() {
+        return new FieldSelection(false);
+    }
+
+    /**
+     * Parses comma-separated, dot-separated paths.
+     */
+    public static FieldSelection parse(String paths) {
+        final FieldSelection selection = none();
+        for (String path : paths.split(",")) {
+            if (!path.trim().isEmpty()) {
+                selection.add(path.trim().split("\\."), 0);
+            }
+        }
+        return selection;
+    }
+
+    private void add(String[] path, int index) {
+        if (all) {
+            return;
+        }
+        final FieldSelection child = children.get(path[index]);
+        if (index == path.length - 1) {
+            children.put(path[index], ALL);
+        } else {
+            final FieldSelection next = (child == null) ? none() : child;
+            if (next != ALL) {
+                next.add(path, index + 1);
+                children.put(path[index], next);
+            }
+        }
+    }
+
+    /**
+     * Adds a path to this selection.
+     */
+    public FieldSelection with(String path) {
+        add(path.split("\\."), 0);
+        return this;
+    }
+
+    public boolean isAll() {
+        return all;
+    }
+
+    /**
+     * The selection below a field, or null if nothing below it is selected.
+     */
+    public FieldSelection child(String name) {
+        if (all) {
+            return ALL;
+        }
+        final FieldSelection named = children.get(name);
+        final FieldSelection any = children.get(ANY_KEY);
+        if (named == null || any == null) {
+            return (named != null) ? named : any;
+        }
+        return named.union(any);
+    }
+
+    private FieldSelection union(FieldSelection other) {
+        if (all || other.all) {
+            return ALL;
+        }
+        final FieldSelection union = none();
+        for (String name : children.keySet()) {
+            union.children.put(name, children.get(name));
+        }
+        for (String name : other.children.keySet()) {
+            final FieldSelection mine = union.children.get(name);
+            union.children.put(name, (mine == null) ? other.children.get(name) : mine.union(other.children.get(name)));
+        }
+        return union;
+    }
+
+    /**
+     * Copies of the selected parts of a value read as plain maps, lists and scalars.
+     */
+    @SuppressWarnings("unchecked")
+    public Object prune(Object value) {
+        if (all) {
+            return value;
+        }
+        if (value instanceof Map) {
+            final Map<String, Object> pruned = new LinkedHashMap<>();
+            ((Map<String, Object>) value).forEach((name, fieldValue) -> {
+                final FieldSelection child = child(name);
+                if (child != null) {
+                    pruned.put(name, child.prune(fieldValue));
+                }
+            });
+            return pruned;
+        }
+        if (value instanceof List) {
+            final List<Object> pruned = new ArrayList<>();
+            for (Object element : (List<Object>) value) {
+                pruned.add(prune(element));
+            }
+            return pruned;
+        }
+        return value;
+    }
+}
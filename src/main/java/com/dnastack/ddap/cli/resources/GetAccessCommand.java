@@ -4,15 +4,25 @@ import com.dnastack.ddap.cli.client.dam.*;
 import com.dnastack.ddap.cli.client.dam.model.DamInfo;
 import com.dnastack.ddap.cli.client.dam.model.ResourceTokens;
 import com.dnastack.ddap.cli.login.Context;
+import com.dnastack.ddap.cli.resources.completion.AuthorizationCompletionStrategy;
+import com.dnastack.ddap.cli.timing.Timings;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import feign.FeignException;
 import lombok.AllArgsConstructor;
+import lombok.Getter;
 
+import java.io.PrintStream;
 import java.net.URI;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
-import java.util.function.Supplier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.dnastack.ddap.cli.client.HttpUtil.parseDdapErrorMessage;
 import static java.lang.String.format;
@@ -21,11 +31,15 @@ import static java.lang.String.format;
 public class GetAccessCommand {
 
     private static final int TIMEOUT_IN_SECONDS = 10 * 60;
-    private static final int INTERVAL_IN_SECONDS = 1;
 
     private final Context context;
-    private final DdapFrontendClient ddapFrontendClient;
+    private final AsyncDdapFrontendClient ddapFrontendClient;
     private final ObjectMapper objectMapper;
+    private final AuthorizationCompletionStrategy completionStrategy;
+    /**
+     * Where authorization links and progress are printed.
+     */
+    private final PrintStream messages;
 
     public static class GetAccessException extends Exception {
         GetAccessException(String message, Throwable cause) {
@@ -33,10 +47,106 @@ public class GetAccessCommand {
         }
     }
 
+    /**
+     * Tokens for every interface that was authorized, and the reason for every interface that was not.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class AccessTokens {
+        private final Map<String, ResourceTokens> tokensByInterfaceId;
+        private final Map<String, GetAccessException> failuresByInterfaceId;
+    }
+
+    @AllArgsConstructor
+    private static class Authorization {
+        private final String interfaceId;
+        private final String cliSessionId;
+        private final String authorizeUrl;
+        private final URI authorizeStatusUri;
+    }
+
     public ResourceTokens getAccessToken(String interfaceId) throws GetAccessException {
+        final AccessTokens accessTokens = getAccessTokens(List.of(interfaceId), 1);
+        final GetAccessException failure = accessTokens.getFailuresByInterfaceId().get(interfaceId);
+        if (failure != null) {
+            throw failure;
+        }
+        return accessTokens.getTokensByInterfaceId().get(interfaceId);
+    }
+
+    /**
+     * Authorizes several interfaces at once. The stale tokens of every interface are cleared concurrently and every
+     * authorization link is printed up front, then the status of at most {@code parallelism} interfaces is polled at a
+     * time, all within the same timeout.
+     */
+    public AccessTokens getAccessTokens(List<String> interfaceIds, int parallelism) {
+        final Instant deadline = Instant.now().plusSeconds(TIMEOUT_IN_SECONDS);
+        final Map<String, ResourceTokens> tokensByInterfaceId = new LinkedHashMap<>();
+        final Map<String, GetAccessException> failuresByInterfaceId = new LinkedHashMap<>();
+        final ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, interfaceIds.size())));
+        try {
+            // Get rid of old/stale stored tokens first, for every interface at once
+            final Map<Authorization, Future<?>> clearings = new LinkedHashMap<>();
+            for (String interfaceId : interfaceIds) {
+                final Authorization authorization = newAuthorization(interfaceId);
+                clearings.put(authorization, ddapFrontendClient.clearCartToken(context.getRealm(),
+                    authorization.cliSessionId));
+            }
+
+            final List<Authorization> started = new ArrayList<>();
+            try (Timings.Phase ignored = Timings.phase("clear-cart-tokens")) {
+                for (Map.Entry<Authorization, Future<?>> clearing : clearings.entrySet()) {
+                    final Authorization authorization = clearing.getKey();
+                    try {
+                        await(authorization.interfaceId, clearing.getValue());
+                        displayLinkToAuthorization(authorization.interfaceId, authorization.authorizeUrl);
+                        started.add(authorization);
+                    } catch (GetAccessException e) {
+                        failuresByInterfaceId.put(authorization.interfaceId, e);
+                    }
+                }
+            }
+            if (started.isEmpty()) {
+                return new AccessTokens(tokensByInterfaceId, failuresByInterfaceId);
+            }
+
+            messages.printf("Waiting for web authorization to complete for next %d seconds...%n", TIMEOUT_IN_SECONDS);
+            final Map<Authorization, Future<ResourceTokens>> polls = new LinkedHashMap<>();
+            for (Authorization authorization : started) {
+                polls.put(authorization, workers.submit(() -> {
+                    final ResourceTokens tokens = completionStrategy.awaitTokens(authorization.cliSessionId,
+                        authorization.authorizeStatusUri,
+                        deadline);
+                    if (interfaceIds.size() == 1) {
+                        messages.println("Authorization successful");
+                    } else {
+                        messages.printf("Authorization successful for resource [%s]%n", authorization.interfaceId);
+                    }
+                    return tokens;
+                }));
+            }
+            try (Timings.Phase ignored = Timings.phase("authorization-wait")) {
+                for (Map.Entry<Authorization, Future<ResourceTokens>> poll : polls.entrySet()) {
+                    final String interfaceId = poll.getKey().interfaceId;
+                    try {
+                        tokensByInterfaceId.put(interfaceId, await(interfaceId, poll.getValue()));
+                    } catch (GetAccessException e) {
+                        failuresByInterfaceId.put(interfaceId, e);
+                    }
+                }
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+
+        return new AccessTokens(tokensByInterfaceId, failuresByInterfaceId);
+    }
+
+    private Authorization newAuthorization(String interfaceId) {
         String cliSessionId = UUID.randomUUID().toString(); // Ideally it should check first if same UUID exists
         String baseUrl = String.format("%s/api", context.getUrl());
-        String redirectUrl = getRedirectUrl(baseUrl, context.getRealm(), cliSessionId, interfaceId);
+        String redirectUrl = completionStrategy.redirectUri(cliSessionId,
+            getRedirectUrl(baseUrl, context.getRealm(), cliSessionId, interfaceId));
         String authorizeUrl = String.format(
             "%s/v1beta/%s/resources/authorize?resource=%s&redirect_uri=%s",
             baseUrl, context.getRealm(), interfaceId, redirectUrl
@@ -45,46 +155,34 @@ public class GetAccessCommand {
             "%s/v1alpha/realm/%s/cli/%s/authorize/status?resource=%s",
             baseUrl, context.getRealm(), cliSessionId, interfaceId)
         );
+        return new Authorization(interfaceId, cliSessionId, authorizeUrl, authorizeStatusUri);
+    }
 
-        ddapFrontendClient.clearCartToken(context.getRealm(), cliSessionId); // Get rid of old/stale stored tokens first
-        displayLinkToAuthorization(interfaceId, authorizeUrl);
+    private <T> T await(String interfaceId, Future<T> future) throws GetAccessException {
         try {
-            System.out.printf("Waiting for web authorization to complete for next %d seconds...%n", TIMEOUT_IN_SECONDS);
-            ResourceTokens tokens = pollStatus(() -> ddapFrontendClient.authorizeStatus(authorizeStatusUri));
-            System.out.println("Authorization successful");
-
-            return tokens;
-        } catch (FeignException fe) {
-            final String message = parseDdapErrorMessage(objectMapper, fe);
-            throw new GetAccessException(format("Could not get access to %s%n%d : %s%n",
-                interfaceId,
-                fe.status(),
-                message), fe);
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GetAccessException("Interrupted while waiting for authorization", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof FeignException) {
+                final FeignException fe = (FeignException) cause;
+                final String message = parseDdapErrorMessage(objectMapper, fe);
+                throw new GetAccessException(format("Could not get access to %s%n%d : %s%n",
+                    interfaceId,
+                    fe.status(),
+                    message), fe);
+            }
+            throw new GetAccessException(format("Could not get access to %s%n%s%n", interfaceId, cause.getMessage()), cause);
         }
     }
 
     private void displayLinkToAuthorization(String interfaceId, String authorizeUrl) {
-        System.out.printf("Visit this link in a web browser to authorize for resource [%s] : %s%n", interfaceId, authorizeUrl);
+        messages.printf("Visit this link in a web browser to authorize for resource [%s] : %s%n", interfaceId, authorizeUrl);
     }
 
     private static String getRedirectUrl(String ddapBaseUrl, String realm, String cliSessionId, String interfaceId) {
         return String.format("%s/v1alpha/realm/%s/cli/%s/authorize/callback?resource=%s", ddapBaseUrl, realm, cliSessionId, interfaceId);
     }
-
-    private static ResourceTokens pollStatus(Supplier<ResourceTokens> pollingAction) {
-        final Instant start = Instant.now();
-        do {
-            final ResourceTokens tokens = pollingAction.get();
-            if (tokens != null) {
-                return tokens;
-            }
-            try {
-                Thread.sleep(TimeUnit.SECONDS.toMillis(INTERVAL_IN_SECONDS));
-            } catch (InterruptedException e) {
-                throw new RuntimeException("Interrupted while polling for authorize status.");
-            }
-        } while (start.plusMillis(TimeUnit.SECONDS.toMillis(TIMEOUT_IN_SECONDS)).isAfter(Instant.now()));
-
-        throw new RuntimeException("Exceeded timeout while waiting for authorize.");
-    }
 }
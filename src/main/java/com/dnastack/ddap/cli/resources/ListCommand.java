@@ -1,16 +1,38 @@
 package com.dnastack.ddap.cli.resources;
 
+import com.dnastack.ddap.cli.client.dam.AsyncDdapFrontendClient;
 import com.dnastack.ddap.cli.client.dam.DdapFrontendClient;
+import com.dnastack.ddap.cli.client.dam.model.DamInfo;
+import com.dnastack.ddap.cli.client.dam.model.DamStatus;
+import com.dnastack.ddap.cli.client.dam.model.Resource;
 import com.dnastack.ddap.cli.client.dam.model.ResourceResponse;
 import com.dnastack.ddap.cli.login.Context;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import feign.FeignException;
+import feign.Response;
 import lombok.AllArgsConstructor;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
+import static com.dnastack.ddap.cli.client.HttpUtil.isSuccess;
 import static com.dnastack.ddap.cli.client.HttpUtil.parseDdapErrorMessage;
 import static java.lang.String.format;
 
@@ -18,6 +40,7 @@ import static java.lang.String.format;
 public class ListCommand {
     private final Context context;
     private final DdapFrontendClient ddapFrontendClient;
+    private final AsyncDdapFrontendClient asyncFrontendClient;
     private final ObjectMapper objectMapper;
 
     public static class ListException extends Exception {
@@ -26,12 +49,195 @@ public class ListCommand {
         }
     }
 
-    public ResourceResponse listResources() throws ListException {
+    @FunctionalInterface
+    public interface ResourceConsumer {
+        void accept(Resource resource) throws IOException;
+    }
+
+    /**
+     * Reads the catalog one resource at a time and hands each to the consumer as soon as it has been parsed, so that
+     * only one resource is held in memory however large the catalog is.
+     *
+     * @param filter Applied while each resource is parsed; resources it rejects are not handed to the consumer.
+     * @return The number of resources handed to the consumer.
+     */
+    public int streamResources(ResourceFilter filter, ResourceConsumer consumer) throws ListException {
+        final Response response;
         try {
-            return  ddapFrontendClient.getResources(context.getRealm());
+            response = ddapFrontendClient.streamResources(context.getRealm(), Map.of());
+        } catch (FeignException fe) {
+            final String message = parseDdapErrorMessage(objectMapper, fe);
+            throw new ListException(format("Could not list resources%n%d : %s%n", fe.status(), message), fe);
+        }
+        return streamResponse(response, filter, consumer);
+    }
+
+    private int streamResponse(Response response, ResourceFilter filter, ResourceConsumer consumer) throws ListException {
+        try (response) {
+            if (!isSuccess(response.status())) {
+                final String message = parseDdapErrorMessage(objectMapper, response.body());
+                throw new ListException(format("Could not list resources%n%d : %s%n", response.status(), message), null);
+            }
+            if (response.body() == null) {
+                return 0;
+            }
+            try (InputStream body = response.body().asInputStream();
+                 JsonParser parser = objectMapper.getFactory().createParser(body)) {
+                return streamData(parser, filter, consumer);
+            }
+        } catch (IOException e) {
+            throw new ListException(format("Could not read resources: %s", e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Like {@link #streamResources(ResourceFilter, ResourceConsumer)}, but reads the catalog from a local snapshot
+     * that is only downloaded again when DDAP reports that it changed. Without a known principal, the catalog is
+     * streamed from DDAP directly.
+     */
+    public int streamResources(SnapshotStore snapshotStore, ResourceFilter filter, ResourceConsumer consumer) throws ListException {
+        final Optional<String> snapshotKey = CacheKeys.forPrincipal(context, "resources");
+        if (snapshotKey.isEmpty()) {
+            return streamResources(filter, consumer);
+        }
+        try (SnapshotStore.Snapshot snapshot = snapshotStore.fetch(snapshotKey.get(),
+            headers -> ddapFrontendClient.streamResources(context.getRealm(), headers))) {
+            warnIfStale(snapshot, "resources");
+            return streamData(snapshot.getParser(), filter, consumer);
         } catch (FeignException fe) {
             final String message = parseDdapErrorMessage(objectMapper, fe);
             throw new ListException(format("Could not list resources%n%d : %s%n", fe.status(), message), fe);
+        } catch (SnapshotStore.SnapshotException e) {
+            throw snapshotFailure("resources", e);
+        } catch (IOException e) {
+            throw new ListException(format("Could not read resources: %s", e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Lists the resources of every DAM of the realm's DDAP, querying all DAMs at once. A DAM that does not answer
+     * within the deadline, or fails, is left out of the data and reported as such in
+     * {@link ResourceResponse#getDamStatus()}, so that one slow DAM delays the listing by at most the deadline.
+     *
+     * @param snapshotStore Keeps the list of DAMs between runs, or null to always download it.
+     * @param filter        Applied while each DAM's resources are parsed.
+     */
+    public ResourceResponse fanOutResources(SnapshotStore snapshotStore, ResourceFilter filter, Duration damDeadline) throws ListException {
+        final Map<String, DamInfo> damInfos = new TreeMap<>(listDams(snapshotStore));
+        if (damInfos.isEmpty()) {
+            throw new ListException("Could not list resources: DDAP reported no DAMs", null);
+        }
+
+        // Requests to DAMs that miss the deadline are cancelled rather than waited for.
+        final long start = System.nanoTime();
+        final Map<String, CompletableFuture<List<Resource>>> futures = new LinkedHashMap<>();
+        damInfos.forEach((damId, damInfo) -> futures.put(damId,
+            asyncFrontendClient.streamDamResources(context.getRealm(), damId, body -> readResources(body, filter))
+                               .orTimeout(damDeadline.toMillis(), TimeUnit.MILLISECONDS)));
+
+        final List<Resource> data = new ArrayList<>();
+        final Map<String, DamStatus> damStatus = new LinkedHashMap<>();
+        for (Map.Entry<String, CompletableFuture<List<Resource>>> future : futures.entrySet()) {
+            final String damName = damInfos.get(future.getKey()).getName();
+            try {
+                final List<Resource> resources = future.getValue().join();
+                data.addAll(resources);
+                damStatus.put(future.getKey(),
+                              new DamStatus(damName, DamStatus.State.OK, resources.size(), elapsedMillis(start), null));
+            } catch (CompletionException e) {
+                damStatus.put(future.getKey(), failedDamStatus(damName, e.getCause(), damDeadline, start));
+            }
+        }
+
+        final ResourceResponse response = new ResourceResponse();
+        response.setData(data);
+        response.setDamStatus(damStatus);
+        return response;
+    }
+
+    private List<Resource> readResources(InputStream body, ResourceFilter filter) throws IOException {
+        final List<Resource> resources = new ArrayList<>();
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            streamData(parser, filter, resources::add);
+        }
+        return resources;
+    }
+
+    private Map<String, DamInfo> listDams(SnapshotStore snapshotStore) throws ListException {
+        final Optional<String> snapshotKey = CacheKeys.forPrincipal(context, "dams");
+        try {
+            if (snapshotStore == null || snapshotKey.isEmpty()) {
+                return ddapFrontendClient.getDamInfos();
+            }
+            try (SnapshotStore.Snapshot snapshot = snapshotStore.fetch(snapshotKey.get(), ddapFrontendClient::streamDamInfos)) {
+                warnIfStale(snapshot, "DAMs");
+                final Map<String, DamInfo> damInfos = snapshot.getParser().readValueAs(new TypeReference<Map<String, DamInfo>>() {});
+                return (damInfos == null) ? Map.of() : damInfos;
+            }
+        } catch (FeignException fe) {
+            final String message = parseDdapErrorMessage(objectMapper, fe);
+            throw new ListException(format("Could not list DAMs%n%d : %s%n", fe.status(), message), fe);
+        } catch (SnapshotStore.SnapshotException e) {
+            throw snapshotFailure("DAMs", e);
+        } catch (IOException e) {
+            throw new ListException(format("Could not read DAMs: %s", e.getMessage()), e);
+        }
+    }
+
+    private static ListException snapshotFailure(String what, SnapshotStore.SnapshotException e) {
+        if (e.getStatus() == null) {
+            return new ListException(format("Could not list %s: %s%n", what, e.getMessage()), e);
+        }
+        return new ListException(format("Could not list %s%n%d : %s%n", what, e.getStatus(), e.getMessage()), e);
+    }
+
+    private DamStatus failedDamStatus(String damName, Throwable cause, Duration damDeadline, long start) {
+        if (cause instanceof TimeoutException) {
+            return new DamStatus(damName, DamStatus.State.TIMED_OUT, null, elapsedMillis(start),
+                                 format("No response within %d seconds", damDeadline.toSeconds()));
+        }
+        String message = (cause instanceof FeignException)
+            ? parseDdapErrorMessage(objectMapper, (FeignException) cause)
+            : cause.getMessage();
+        if (message == null || message.isBlank()) {
+            message = (cause.getMessage() != null) ? cause.getMessage() : cause.toString();
+        }
+        if (cause instanceof FeignException && ((FeignException) cause).status() > 0) {
+            message = format("%d : %s", ((FeignException) cause).status(), message.trim());
+        }
+        return new DamStatus(damName, DamStatus.State.FAILED, null, elapsedMillis(start), message.trim());
+    }
+
+    private static void warnIfStale(SnapshotStore.Snapshot snapshot, String what) {
+        if (snapshot.isStale()) {
+            System.err.println(format("DDAP is unavailable: listing %s from the local snapshot, which may be out of date.", what));
+        }
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private int streamData(JsonParser parser, ResourceFilter filter, ResourceConsumer consumer) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a resource response object");
+        }
+        int count = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String fieldName = parser.getCurrentName();
+            final JsonToken value = parser.nextToken();
+            if (!"data".equals(fieldName) || value != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                final Resource resource = filter.read(parser);
+                if (resource != null) {
+                    consumer.accept(resource);
+                    count++;
+                }
+            }
         }
+        return count;
     }
 }
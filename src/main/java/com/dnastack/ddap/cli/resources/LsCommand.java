@@ -0,0 +1,55 @@
+package com.dnastack.ddap.cli.resources;
+
+import com.dnastack.ddap.cli.client.DdapTransport;
+import com.dnastack.ddap.cli.download.BucketListing;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static java.lang.String.format;
+
+@AllArgsConstructor
+public class LsCommand {
+
+    private final DdapTransport transport;
+    private final ObjectMapper objectMapper;
+    private final int parallelism;
+    /**
+     * Where the listing is written. It is flushed, but not closed.
+     */
+    private final OutputStream output;
+
+    public static class LsException extends Exception {
+        LsException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * Writes the metadata of every object of a bucket below the prefix, one JSON document per line.
+     *
+     * @param split Lists ranges of the bucket at once rather than page after page.
+     * @return The number of objects listed.
+     */
+    public long list(String bucketUrl, String accessToken, String prefix, boolean split) throws LsException {
+        try (JsonGenerator generator = objectMapper.getFactory()
+                                                   .createGenerator(output)
+                                                   .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
+                                                   .setRootValueSeparator(new SerializedString("\n"))) {
+            final long count = new BucketListing(transport, objectMapper, parallelism)
+                .list(bucketUrl, accessToken, prefix, split, object -> object.serialize(generator));
+            if (count > 0) {
+                generator.writeRaw('\n');
+            }
+            return count;
+        } catch (BucketListing.ListingException e) {
+            throw new LsException(e.getMessage(), e);
+        } catch (IOException e) {
+            throw new LsException(format("Unable to write listing: %s", e.getMessage()), e);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.dnastack.ddap.cli.resources;
+
+import com.dnastack.ddap.cli.client.dam.model.Resource;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Selects resources, views, interfaces and roles of a catalog, and optionally projects each resource to chosen fields,
+ * while the catalog is being parsed. Parts that are filtered out or not selected are skipped in the parser rather than
+ * built into objects.
+ * <p>
+ * Values of one filter are alternatives; different filters must all match. A resource matches view-level filters if
+ * any of its views remain.
+ */
+public class ResourceFilter {
+
+    public static final ResourceFilter NONE = new ResourceFilter(Set.of(), Set.of(), Set.of(), Set.of(), null, null);
+
+    private final Set<String> interfaceTypes;
+    private final Set<String> viewNames;
+    private final Set<String> roles;
+    private final Set<String> tags;
+    private final String label;
+    private final FieldSelection projection;
+    private final FieldSelection readSelection;
+
+    /**
+     * @param tags   Resource tags (from the comma-separated {@code ui.tags}), matched ignoring case.
+     * @param label  Text that the resource's {@code ui.label} must contain, ignoring case. Null matches any.
+     * @param fields Paths to keep, as parsed by {@link FieldSelection#parse(String)}. Null keeps every field.
+     */
+    public ResourceFilter(Set<String> interfaceTypes,
+                          Set<String> viewNames,
+                          Set<String> roles,
+                          Set<String> tags,
+                          String label,
+                          String fields) {
+        this.interfaceTypes = interfaceTypes;
+        this.viewNames = viewNames;
+        this.roles = roles;
+        this.tags = caseInsensitive(tags);
+        this.label = (label == null) ? null : label.toLowerCase();
+        this.projection = (fields == null) ? FieldSelection.ALL : FieldSelection.parse(fields);
+        // Filters need some fields whether or not they are projected.
+        this.readSelection = (fields == null) ? FieldSelection.ALL : FieldSelection.parse(fields);
+        if (!interfaceTypes.isEmpty()) {
+            readSelection.with("views.*.interfaces");
+        }
+        if (!roles.isEmpty()) {
+            readSelection.with("views.*.roles");
+        }
+        if (!viewNames.isEmpty()) {
+            readSelection.with("views.*.ui");
+        }
+        if (!this.tags.isEmpty()) {
+            readSelection.with("ui.tags");
+        }
+        if (label != null) {
+            readSelection.with("ui.label");
+        }
+    }
+
+    private static Set<String> caseInsensitive(Set<String> values) {
+        final Set<String> set = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        set.addAll(values);
+        return set;
+    }
+
+    public boolean isEmpty() {
+        return interfaceTypes.isEmpty()
+            && viewNames.isEmpty()
+            && roles.isEmpty()
+            && tags.isEmpty()
+            && label == null
+            && projection.isAll();
+    }
+
+    private boolean filtersViews() {
+        return !interfaceTypes.isEmpty() || !viewNames.isEmpty() || !roles.isEmpty();
+    }
+
+    /**
+     * Reads the resource object at the parser's current token.
+     *
+     * @return The matching parts of the resource, or null if the resource does not match.
+     */
+    @SuppressWarnings("unchecked")
+    public Resource read(JsonParser parser) throws IOException {
+        if (isEmpty()) {
+            return Resource.read(parser);
+        }
+        final Map<String, Object> resource = new LinkedHashMap<>();
+        boolean hasViews = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            final JsonToken value = parser.nextToken();
+            final FieldSelection selection = readSelection.child(name);
+            if (selection == null) {
+                parser.skipChildren();
+            } else if ("views".equals(name) && value == JsonToken.START_OBJECT) {
+                final Map<String, Object> views = readViews(parser, selection);
+                hasViews = !views.isEmpty();
+                resource.put(name, views);
+            } else {
+                resource.put(name, readSelected(parser, selection));
+            }
+        }
+
+        if (filtersViews() && !hasViews) {
+            return null;
+        }
+        final Object ui = resource.get("ui");
+        final Map<String, Object> uiFields = (ui instanceof Map) ? (Map<String, Object>) ui : Map.of();
+        if (label != null && !String.valueOf(uiFields.getOrDefault("label", "")).toLowerCase().contains(label)) {
+            return null;
+        }
+        if (!tags.isEmpty() && Arrays.stream(String.valueOf(uiFields.getOrDefault("tags", "")).split(","))
+                                     .map(String::trim)
+                                     .noneMatch(tags::contains)) {
+            return null;
+        }
+        return Resource.of((Map<String, Object>) projection.prune(resource), parser.getCodec());
+    }
+
+    private Map<String, Object> readViews(JsonParser parser, FieldSelection selection) throws IOException {
+        final Map<String, Object> views = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String viewName = parser.getCurrentName();
+            final JsonToken value = parser.nextToken();
+            final FieldSelection viewSelection = selection.child(viewName);
+            if (viewSelection == null
+                || (!viewNames.isEmpty() && !viewNames.contains(viewName))
+                || value != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            final Map<String, Object> view = readView(parser, viewSelection);
+            if (view != null) {
+                views.put(viewName, view);
+            }
+        }
+        return views;
+    }
+
+    private Map<String, Object> readView(JsonParser parser, FieldSelection selection) throws IOException {
+        final Map<String, Object> view = new LinkedHashMap<>();
+        boolean hasInterfaces = false;
+        boolean hasRoles = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            final JsonToken value = parser.nextToken();
+            final FieldSelection fieldSelection = selection.child(name);
+            if (fieldSelection == null) {
+                parser.skipChildren();
+            } else if ("interfaces".equals(name) && value == JsonToken.START_OBJECT) {
+                final Map<String, Object> interfaces = readKeys(parser, fieldSelection, interfaceTypes);
+                hasInterfaces = !interfaces.isEmpty();
+                view.put(name, interfaces);
+            } else if ("roles".equals(name) && value == JsonToken.START_OBJECT) {
+                final Map<String, Object> viewRoles = readKeys(parser, fieldSelection, roles);
+                hasRoles = !viewRoles.isEmpty();
+                view.put(name, viewRoles);
+            } else {
+                view.put(name, readSelected(parser, fieldSelection));
+            }
+        }
+        if ((!interfaceTypes.isEmpty() && !hasInterfaces) || (!roles.isEmpty() && !hasRoles)) {
+            return null;
+        }
+        return view;
+    }
+
+    /**
+     * Reads the entries of a map whose keys are in the given set (or any key, if the set is empty).
+     */
+    private Map<String, Object> readKeys(JsonParser parser, FieldSelection selection, Set<String> keys) throws IOException {
+        final Map<String, Object> entries = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String key = parser.getCurrentName();
+            parser.nextToken();
+            final FieldSelection entrySelection = selection.child(key);
+            if (entrySelection == null || (!keys.isEmpty() && !keys.contains(key))) {
+                parser.skipChildren();
+            } else {
+                entries.put(key, readSelected(parser, entrySelection));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Reads the selected parts of the value at the parser's current token.
+     */
+    private Object readSelected(JsonParser parser, FieldSelection selection) throws IOException {
+        if (selection.isAll()) {
+            return parser.readValueAs(Object.class);
+        }
+        switch (parser.currentToken()) {
+            case START_OBJECT:
+                final Map<String, Object> object = new LinkedHashMap<>();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    final String name = parser.getCurrentName();
+                    parser.nextToken();
+                    final FieldSelection child = selection.child(name);
+                    if (child == null) {
+                        parser.skipChildren();
+                    } else {
+                        object.put(name, readSelected(parser, child));
+                    }
+                }
+                return object;
+            case START_ARRAY:
+                final List<Object> array = new ArrayList<>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    array.add(readSelected(parser, selection));
+                }
+                return array;
+            default:
+                return parser.readValueAs(Object.class);
+        }
+    }
+}
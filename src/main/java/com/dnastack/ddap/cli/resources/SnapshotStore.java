@@ -0,0 +1,267 @@
+package com.dnastack.ddap.cli.resources;
+
+import com.dnastack.ddap.cli.client.dam.DdapUnavailableException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import feign.FeignException;
+import feign.Response;
+import feign.RetryableException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.dnastack.ddap.cli.client.HttpUtil.isSuccess;
+import static com.dnastack.ddap.cli.client.HttpUtil.parseDdapErrorMessage;
+import static java.lang.String.format;
+
+/**
+ * The last response of a DDAP endpoint, kept on disk in Smile (binary JSON) together with its ETag and
+ * Last-Modified. Each fetch revalidates the snapshot with a conditional request; while DDAP answers 304 Not Modified,
+ * the snapshot is read through a memory-mapped parser instead of downloading and parsing JSON again.
+ * <p>
+ * A changed response is copied token by token from the JSON body into a new snapshot, without building objects. While
+ * DDAP is unavailable (it fails, does not answer in time, or is not called because it keeps failing), the stored
+ * snapshot is read as is.
+ */
+public class SnapshotStore {
+
+    private static final String SNAPSHOT_DIRECTORY_NAME = ".ddap-cli-snapshots";
+    private static final String OWNER_ONLY_DIRECTORY = "rwx------";
+
+    private final File homeDirectory;
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper smileMapper;
+    /**
+     * One lock per key, so that concurrent fetches in the daemon revalidate and replace a snapshot one at a time.
+     */
+    private final Map<String, Object> locksByKey = new ConcurrentHashMap<>();
+
+    public SnapshotStore(File homeDirectory, ObjectMapper jsonMapper, ObjectMapper smileMapper) {
+        this.homeDirectory = homeDirectory;
+        this.jsonMapper = jsonMapper;
+        this.smileMapper = smileMapper;
+    }
+
+    public static class SnapshotException extends Exception {
+        /**
+         * The status DDAP answered with, or null if the snapshot could not be read or written.
+         */
+        @Getter
+        private final Integer status;
+
+        SnapshotException(String message, Integer status, Throwable cause) {
+            super(message, cause);
+            this.status = status;
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SnapshotMetadata {
+        private String etag;
+        private String lastModified;
+        private long storedAt;
+    }
+
+    @FunctionalInterface
+    public interface ConditionalRequest {
+        /**
+         * Sends the request with the given extra headers and returns the undecoded response.
+         */
+        Response execute(Map<String, Object> headers);
+    }
+
+    /**
+     * A parser over a snapshot. Closing it releases the file.
+     */
+    public static class Snapshot implements Closeable {
+        @Getter
+        private final boolean notModified;
+        /**
+         * True if DDAP was unavailable, so the snapshot could not be revalidated.
+         */
+        @Getter
+        private final boolean stale;
+        @Getter
+        private final JsonParser parser;
+        private final FileChannel channel;
+
+        private Snapshot(boolean notModified, boolean stale, JsonParser parser, FileChannel channel) {
+            this.notModified = notModified;
+            this.stale = stale;
+            this.parser = parser;
+            this.channel = channel;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                parser.close();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Revalidates the snapshot under the given key (downloading the response if it changed) and opens it, or opens it
+     * without revalidating it if DDAP is unavailable.
+     *
+     * @throws SnapshotException If DDAP answers with an error (its status is then available), or if the snapshot
+     *                           cannot be read or written.
+     * @throws FeignException    If DDAP is unavailable and there is no snapshot.
+     */
+    public Snapshot fetch(String key, ConditionalRequest request) throws SnapshotException {
+        synchronized (locksByKey.computeIfAbsent(key, ignored -> new Object())) {
+            return fetchLocked(key, request);
+        }
+    }
+
+    private Snapshot fetchLocked(String key, ConditionalRequest request) throws SnapshotException {
+        final Path dataFile = snapshotDirectory().resolve(key + ".smile");
+        final Path metadataFile = snapshotDirectory().resolve(key + ".json");
+        final SnapshotMetadata metadata = readMetadata(dataFile, metadataFile);
+
+        final Map<String, Object> headers = new HashMap<>();
+        if (metadata != null && metadata.getEtag() != null) {
+            headers.put("If-None-Match", metadata.getEtag());
+        }
+        if (metadata != null && metadata.getLastModified() != null) {
+            headers.put("If-Modified-Since", metadata.getLastModified());
+        }
+
+        try (Response response = request.execute(headers)) {
+            if (response.status() == 304 && metadata != null) {
+                return open(dataFile, true, false);
+            }
+            if (response.status() >= 500 && Files.exists(dataFile)) {
+                return open(dataFile, false, true);
+            }
+            if (!isSuccess(response.status())) {
+                throw new SnapshotException(parseDdapErrorMessage(jsonMapper, response.body()), response.status(), null);
+            }
+            store(response, dataFile, metadataFile);
+            return open(dataFile, false, false);
+        } catch (RetryableException | DdapUnavailableException e) {
+            if (!Files.exists(dataFile)) {
+                throw e;
+            }
+            try {
+                return open(dataFile, false, true);
+            } catch (IOException openFailure) {
+                throw new SnapshotException(format("Unable to read snapshot [%s]: %s", dataFile, openFailure.getMessage()), null, openFailure);
+            }
+        } catch (IOException e) {
+            throw new SnapshotException(format("Unable to update snapshot [%s]: %s", dataFile, e.getMessage()), null, e);
+        }
+    }
+
+    private SnapshotMetadata readMetadata(Path dataFile, Path metadataFile) {
+        if (!Files.exists(dataFile) || !Files.exists(metadataFile)) {
+            return null;
+        }
+        try {
+            return jsonMapper.readValue(metadataFile.toFile(), SnapshotMetadata.class);
+        } catch (IOException e) {
+            // An unreadable snapshot is replaced.
+            return null;
+        }
+    }
+
+    /**
+     * Writes the snapshot and its metadata to temporary files of their own, then moves them in place, so that other
+     * processes writing the same snapshot never see or remove a half-written file.
+     */
+    private void store(Response response, Path dataFile, Path metadataFile) throws IOException {
+        final Path temporaryFile = Files.createTempFile(dataFile.getParent(), dataFile.getFileName() + ".", ".tmp");
+        try {
+            try (OutputStream output = Files.newOutputStream(temporaryFile);
+                 JsonGenerator generator = smileMapper.getFactory().createGenerator(output)) {
+                if (response.body() != null) {
+                    try (InputStream body = response.body().asInputStream();
+                         JsonParser parser = jsonMapper.getFactory().createParser(body)) {
+                        while (parser.nextToken() != null) {
+                            generator.copyCurrentStructure(parser);
+                        }
+                    }
+                }
+            }
+            // The metadata goes last, so that it never describes a snapshot other than the one on disk.
+            Files.deleteIfExists(metadataFile);
+            Files.move(temporaryFile, dataFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            final SnapshotMetadata metadata = new SnapshotMetadata(firstHeader(response, "ETag"),
+                firstHeader(response, "Last-Modified"),
+                System.currentTimeMillis());
+            if (metadata.getEtag() != null || metadata.getLastModified() != null) {
+                writeMetadata(metadataFile, metadata);
+            }
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    private void writeMetadata(Path metadataFile, SnapshotMetadata metadata) throws IOException {
+        final Path temporaryFile = Files.createTempFile(metadataFile.getParent(), metadataFile.getFileName() + ".", ".tmp");
+        try {
+            jsonMapper.writeValue(temporaryFile.toFile(), metadata);
+            Files.move(temporaryFile, metadataFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    private Snapshot open(Path dataFile, boolean notModified, boolean stale) throws IOException {
+        final FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.READ);
+        try {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            final JsonParser parser = smileMapper.getFactory().createParser(new ByteBufferBackedInputStream(buffer));
+            return new Snapshot(notModified, stale, parser, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private Path snapshotDirectory() {
+        final Path directory = new File(homeDirectory, SNAPSHOT_DIRECTORY_NAME).toPath();
+        if (!Files.isDirectory(directory)) {
+            try {
+                Files.createDirectories(directory,
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString(OWNER_ONLY_DIRECTORY)));
+            } catch (UnsupportedOperationException | IOException e) {
+                directory.toFile().mkdirs();
+            }
+        }
+        return directory;
+    }
+
+    private static String firstHeader(Response response, String name) {
+        return response.headers()
+                       .entrySet()
+                       .stream()
+                       .filter(header -> header.getKey().equalsIgnoreCase(name))
+                       .flatMap(header -> header.getValue().stream())
+                       .findFirst()
+                       .orElse(null);
+    }
+}
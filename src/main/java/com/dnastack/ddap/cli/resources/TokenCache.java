@@ -0,0 +1,260 @@
+package com.dnastack.ddap.cli.resources;
+
+import com.dnastack.ddap.cli.client.dam.model.ResourceTokens;
+import com.dnastack.ddap.cli.login.Context;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * Tokens from earlier {@code get-access} runs, kept next to the login context until shortly before they expire.
+ * <p>
+ * Entries are keyed by a hash of the DDAP URL, realm, principal and interface ID, and the file is encrypted with
+ * AES-GCM under a key in a separate owner-only file. Tokens without an {@code expires_in} are not cached.
+ * <p>
+ * Many processes may share the cache. Writers take an exclusive lock on {@code ~/.ddap-cli-tokens.lock} and replace
+ * the cache file with an atomic rename, so that no entry is lost to a concurrent write and readers never lock.
+ */
+public class TokenCache {
+
+    private static final String CACHE_FILE_NAME = ".ddap-cli-tokens";
+    private static final String KEY_FILE_NAME = ".ddap-cli-tokens.key";
+    private static final String LOCK_FILE_NAME = ".ddap-cli-tokens.lock";
+    private static final String OWNER_ONLY = "rw-------";
+    private static final String CIPHER = "AES/GCM/NoPadding";
+    private static final int KEY_LENGTH_IN_BYTES = 32;
+    private static final int IV_LENGTH_IN_BYTES = 12;
+    private static final int TAG_LENGTH_IN_BITS = 128;
+    private static final byte[] ASSOCIATED_DATA = "ddap-cli-tokens/1".getBytes(StandardCharsets.UTF_8);
+    /**
+     * Tokens are considered expired this long before they actually expire, so that a cached token is still usable.
+     */
+    private static final long EXPIRY_MARGIN_IN_SECONDS = 60;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final File homeDirectory;
+    private final ObjectMapper objectMapper;
+
+    public TokenCache(File homeDirectory, ObjectMapper objectMapper) {
+        this.homeDirectory = homeDirectory;
+        this.objectMapper = objectMapper;
+    }
+
+    public static class TokenCacheException extends Exception {
+        TokenCacheException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CachedTokens {
+        private Map<String, String> credentials;
+        private long obtainedAt;
+        private long expiresAt;
+    }
+
+    /**
+     * The cache key of an interface, or empty if the logged-in principal is unknown (then nothing is cached).
+     */
+    public static Optional<String> cacheKey(Context context, String interfaceId) {
+        return CacheKeys.forPrincipal(context, interfaceId);
+    }
+
+    /**
+     * Returns unexpired cached tokens, with {@code expires_in} adjusted to the time that remains.
+     */
+    public synchronized Optional<ResourceTokens> get(String key, long nowMillis) throws TokenCacheException {
+        final CachedTokens cachedTokens = load().get(key);
+        if (cachedTokens == null || !isUsable(cachedTokens, nowMillis)) {
+            return Optional.empty();
+        }
+        final Map<String, String> credentials = new HashMap<>(cachedTokens.getCredentials());
+        credentials.put("expires_in", String.valueOf(TimeUnit.MILLISECONDS.toSeconds(cachedTokens.getExpiresAt() - nowMillis)));
+        final ResourceTokens tokens = new ResourceTokens();
+        tokens.setCredentials(credentials);
+        return Optional.of(tokens);
+    }
+
+    /**
+     * Stores tokens that carry an expiry, and drops entries that have expired.
+     *
+     * @return Whether the tokens were cached.
+     */
+    public boolean put(String key, ResourceTokens tokens, long nowMillis) throws TokenCacheException {
+        final Long expiresInSeconds = expiresInSeconds(tokens);
+        if (expiresInSeconds == null) {
+            return false;
+        }
+        // File locks are held by the whole JVM, so threads of one process (the daemon) must take turns first.
+        synchronized (TokenCache.class) {
+            final File lockFile = new File(homeDirectory, LOCK_FILE_NAME);
+            try (FileChannel lockChannel = FileChannel.open(lockFile.toPath(),
+                                                            StandardOpenOption.CREATE,
+                                                            StandardOpenOption.WRITE);
+                 FileLock ignored = lockChannel.lock()) {
+                return lockedPut(key, tokens.getCredentials(), expiresInSeconds, nowMillis);
+            } catch (IOException e) {
+                throw new TokenCacheException(format("Unable to lock token cache file [%s]", lockFile), e);
+            }
+        }
+    }
+
+    private boolean lockedPut(String key, Map<String, String> credentials, long expiresInSeconds, long nowMillis) throws TokenCacheException {
+        Map<String, CachedTokens> entries;
+        try {
+            entries = load();
+        } catch (TokenCacheException e) {
+            // An unreadable cache (such as one whose key was deleted) is replaced.
+            entries = new HashMap<>();
+        }
+        entries.values().removeIf(entry -> !isUsable(entry, nowMillis));
+        final CachedTokens cachedTokens = new CachedTokens(credentials,
+            nowMillis,
+            nowMillis + TimeUnit.SECONDS.toMillis(expiresInSeconds));
+        if (!isUsable(cachedTokens, nowMillis)) {
+            return false;
+        }
+        entries.put(key, cachedTokens);
+        store(entries);
+        return true;
+    }
+
+    private static boolean isUsable(CachedTokens cachedTokens, long nowMillis) {
+        return cachedTokens.getCredentials() != null
+            && nowMillis < cachedTokens.getExpiresAt() - TimeUnit.SECONDS.toMillis(EXPIRY_MARGIN_IN_SECONDS);
+    }
+
+    private static Long expiresInSeconds(ResourceTokens tokens) {
+        if (tokens.getCredentials() == null || tokens.getCredentials().get("expires_in") == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(tokens.getCredentials().get("expires_in").trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private Map<String, CachedTokens> load() throws TokenCacheException {
+        final File cacheFile = new File(homeDirectory, CACHE_FILE_NAME);
+        if (!cacheFile.exists()) {
+            return new HashMap<>();
+        }
+        try {
+            final byte[] encrypted = Files.readAllBytes(cacheFile.toPath());
+            if (encrypted.length < IV_LENGTH_IN_BYTES) {
+                throw new TokenCacheException(format("Token cache file is truncated [%s]", cacheFile), null);
+            }
+            final Cipher cipher = cipher(Cipher.DECRYPT_MODE, readKey(), Arrays.copyOf(encrypted, IV_LENGTH_IN_BYTES));
+            final byte[] json = cipher.doFinal(encrypted, IV_LENGTH_IN_BYTES, encrypted.length - IV_LENGTH_IN_BYTES);
+            return objectMapper.readValue(json, new TypeReference<HashMap<String, CachedTokens>>() {});
+        } catch (IOException e) {
+            throw new TokenCacheException(format("Unable to read token cache file [%s]", cacheFile), e);
+        } catch (GeneralSecurityException e) {
+            throw new TokenCacheException(format("Unable to decrypt token cache file [%s]", cacheFile), e);
+        }
+    }
+
+    private void store(Map<String, CachedTokens> entries) throws TokenCacheException {
+        final File cacheFile = new File(homeDirectory, CACHE_FILE_NAME);
+        final Path temporaryPath = new File(homeDirectory, CACHE_FILE_NAME + "." + ProcessHandle.current().pid()).toPath();
+        try {
+            final byte[] iv = new byte[IV_LENGTH_IN_BYTES];
+            RANDOM.nextBytes(iv);
+            final byte[] ciphertext = cipher(Cipher.ENCRYPT_MODE, readOrCreateKey(), iv)
+                .doFinal(objectMapper.writeValueAsBytes(entries));
+            final byte[] encrypted = Arrays.copyOf(iv, IV_LENGTH_IN_BYTES + ciphertext.length);
+            System.arraycopy(ciphertext, 0, encrypted, IV_LENGTH_IN_BYTES, ciphertext.length);
+
+            Files.deleteIfExists(temporaryPath);
+            final Path temporaryFile = createOwnerOnlyFile(temporaryPath);
+            Files.write(temporaryFile, encrypted);
+            Files.move(temporaryFile, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new TokenCacheException(format("Unable to write token cache file [%s]", cacheFile), e);
+        } catch (GeneralSecurityException e) {
+            throw new TokenCacheException(format("Unable to encrypt token cache file [%s]", cacheFile), e);
+        } finally {
+            try {
+                Files.deleteIfExists(temporaryPath);
+            } catch (IOException e) {
+                // Left behind; the next write from a process with the same ID replaces it.
+            }
+        }
+    }
+
+    private byte[] readKey() throws IOException {
+        final byte[] key = Files.readAllBytes(new File(homeDirectory, KEY_FILE_NAME).toPath());
+        if (key.length != KEY_LENGTH_IN_BYTES) {
+            throw new IOException("Token cache key has the wrong length");
+        }
+        return key;
+    }
+
+    /**
+     * Reads the key, or creates it if there is none. Only called under the cache lock, and the key is written to a
+     * temporary file first, so that no process ever reads a partly written key.
+     */
+    private byte[] readOrCreateKey() throws IOException {
+        final Path keyFile = new File(homeDirectory, KEY_FILE_NAME).toPath();
+        if (!Files.exists(keyFile)) {
+            final byte[] key = new byte[KEY_LENGTH_IN_BYTES];
+            RANDOM.nextBytes(key);
+            final Path temporaryPath = keyFile.resolveSibling(KEY_FILE_NAME + "." + ProcessHandle.current().pid());
+            try {
+                Files.deleteIfExists(temporaryPath);
+                Files.write(createOwnerOnlyFile(temporaryPath), key);
+                Files.move(temporaryPath, keyFile, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporaryPath);
+            }
+        }
+        return readKey();
+    }
+
+    private static Path createOwnerOnlyFile(Path file) throws IOException {
+        try {
+            return Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString(OWNER_ONLY)));
+        } catch (UnsupportedOperationException e) {
+            final Path created = Files.createFile(file);
+            created.toFile().setReadable(false, false);
+            created.toFile().setReadable(true, true);
+            return created;
+        }
+    }
+
+    private static Cipher cipher(int mode, byte[] key, byte[] iv) throws GeneralSecurityException {
+        final Cipher cipher = Cipher.getInstance(CIPHER);
+        cipher.init(mode, new SecretKeySpec(key, "AES"), new GCMParameterSpec(TAG_LENGTH_IN_BITS, iv));
+        cipher.updateAAD(ASSOCIATED_DATA);
+        return cipher;
+    }
+}
@@ -0,0 +1,94 @@
+package com.dnastack.ddap.cli.resources;
+
+import com.dnastack.ddap.cli.client.DdapTransport;
+import com.dnastack.ddap.cli.download.BucketListing;
+import com.dnastack.ddap.cli.download.FileVerifier;
+import com.dnastack.ddap.cli.download.ObjectMetadata;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+
+@AllArgsConstructor
+public class VerifyCommand {
+
+    private static final long SEGMENT_SIZE = 64L * 1024 * 1024;
+
+    private final DdapTransport transport;
+    private final ObjectMapper objectMapper;
+    private final int parallelism;
+    /**
+     * Where mismatches and the summary are printed.
+     */
+    private final PrintStream messages;
+
+    public static class VerifyException extends Exception {
+        VerifyException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * Compares the checksums of every object of a bucket below the prefix with the files of a directory, and prints
+     * the files that do not match.
+     *
+     * @return The number of files that did not match.
+     */
+    public long verify(String bucketUrl, String accessToken, String prefix, File directory, boolean md5) throws VerifyException {
+        // Files are named by the object path below the prefix's last "directory", as download names a single object.
+        final int nameStart = prefix.lastIndexOf('/') + 1;
+        // Files are hashed while the listing continues, but only so many are waited for at a time.
+        final int maxPendingFiles = 2 * parallelism;
+        final Semaphore pendingFiles = new Semaphore(maxPendingFiles);
+        final AtomicLong verified = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong hashedBytes = new AtomicLong();
+        final long startedAt = System.nanoTime();
+        try (FileVerifier verifier = new FileVerifier(parallelism, SEGMENT_SIZE)) {
+            new BucketListing(transport, objectMapper, 1).list(bucketUrl, accessToken, prefix, false, object -> {
+                final ObjectMetadata metadata = objectMapper.readValue(object.asParser(), ObjectMetadata.class);
+                if (metadata.getName() == null || metadata.getName().endsWith("/")) {
+                    // Placeholders for folders have nothing to compare.
+                    return;
+                }
+                final Path file = directory.toPath().resolve(metadata.getName().substring(nameStart));
+                pendingFiles.acquireUninterruptibly();
+                verifier.verify(file, metadata, md5).thenAccept(result -> {
+                    hashedBytes.addAndGet(result.getBytes());
+                    verified.incrementAndGet();
+                    if (result.getStatus() != FileVerifier.Status.OK) {
+                        failed.incrementAndGet();
+                        synchronized (messages) {
+                            messages.printf("%s %s [%s]: %s%n",
+                                result.getStatus(),
+                                result.getObjectName(),
+                                result.getFile(),
+                                result.getDetail());
+                        }
+                    }
+                    pendingFiles.release();
+                });
+            });
+            pendingFiles.acquireUninterruptibly(maxPendingFiles);
+        } catch (BucketListing.ListingException e) {
+            throw new VerifyException(e.getMessage(), e);
+        } catch (IOException e) {
+            throw new VerifyException(format("Unable to read object metadata: %s", e.getMessage()), e);
+        }
+
+        final double seconds = Math.max(System.nanoTime() - startedAt, 1) / 1e9;
+        messages.printf("Verified %d files, %d did not match (%.1f MiB hashed at %.1f MiB/s)%n",
+            verified.get(),
+            failed.get(),
+            hashedBytes.get() / (1024.0 * 1024.0),
+            hashedBytes.get() / seconds / (1024 * 1024));
+        return failed.get();
+    }
+}
@@ -0,0 +1,34 @@
+package com.dnastack.ddap.cli.resources.completion;
+
+import com.dnastack.ddap.cli.client.dam.model.ResourceTokens;
+
+import java.net.URI;
+import java.time.Instant;
+
+/**
+ * Decides how the CLI learns that a browser authorization has completed.
+ */
+public interface AuthorizationCompletionStrategy extends AutoCloseable {
+
+    /**
+     * The redirect URI to send to DDAP for a CLI session. By default this is DDAP's own CLI callback.
+     */
+    default String redirectUri(String cliSessionId, String ddapCallbackUrl) {
+        return ddapCallbackUrl;
+    }
+
+    /**
+     * Blocks until the tokens of a CLI session are available.
+     *
+     * @throws RuntimeException If the deadline passes first, or if DDAP rejects the status request.
+     */
+    ResourceTokens awaitTokens(String cliSessionId, URI statusUri, Instant deadline) throws InterruptedException;
+
+    @Override
+    default void close() {
+    }
+
+    static RuntimeException timeoutException() {
+        return new RuntimeException("Exceeded timeout while waiting for authorize.");
+    }
+}
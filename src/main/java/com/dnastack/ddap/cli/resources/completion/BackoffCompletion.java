@@ -0,0 +1,74 @@
+package com.dnastack.ddap.cli.resources.completion;
+
+import com.dnastack.ddap.cli.client.dam.model.ResourceTokens;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls the authorization status with exponentially growing, jittered intervals. A waiting session can be woken up
+ * (for instance by a loopback callback) to check right away and start backing off again from the initial interval.
+ */
+public class BackoffCompletion implements AuthorizationCompletionStrategy {
+
+    @FunctionalInterface
+    public interface StatusCheck {
+        /**
+         * @return The tokens, or null while the authorization is still pending.
+         */
+        ResourceTokens check(URI statusUri);
+    }
+
+    private final StatusCheck statusCheck;
+    private final long initialIntervalMillis;
+    private final long maxIntervalMillis;
+    private final Map<String, Semaphore> wakeUps = new ConcurrentHashMap<>();
+
+    public BackoffCompletion(StatusCheck statusCheck, Duration initialInterval, Duration maxInterval) {
+        this.statusCheck = statusCheck;
+        this.initialIntervalMillis = initialInterval.toMillis();
+        this.maxIntervalMillis = maxInterval.toMillis();
+    }
+
+    @Override
+    public ResourceTokens awaitTokens(String cliSessionId, URI statusUri, Instant deadline) throws InterruptedException {
+        final Semaphore wakeUp = wakeUps.computeIfAbsent(cliSessionId, id -> new Semaphore(0));
+        try {
+            long intervalMillis = initialIntervalMillis;
+            while (true) {
+                final ResourceTokens tokens = statusCheck.check(statusUri);
+                if (tokens != null) {
+                    return tokens;
+                }
+                final long remainingMillis = Duration.between(Instant.now(), deadline).toMillis();
+                if (remainingMillis <= 0) {
+                    throw AuthorizationCompletionStrategy.timeoutException();
+                }
+                // Equal jitter: at least half the interval, so that concurrent sessions spread out but still back off.
+                final long sleepMillis = Math.min(remainingMillis,
+                    ThreadLocalRandom.current().nextLong(intervalMillis / 2, intervalMillis + 1));
+                if (wakeUp.tryAcquire(sleepMillis, TimeUnit.MILLISECONDS)) {
+                    wakeUp.drainPermits();
+                    intervalMillis = initialIntervalMillis;
+                } else {
+                    intervalMillis = Math.min(maxIntervalMillis, intervalMillis * 2);
+                }
+            }
+        } finally {
+            wakeUps.remove(cliSessionId);
+        }
+    }
+
+    /**
+     * Makes a session check its status now. A session that is not waiting yet checks as soon as it starts.
+     */
+    public void wakeUp(String cliSessionId) {
+        wakeUps.computeIfAbsent(cliSessionId, id -> new Semaphore(0)).release();
+    }
+}
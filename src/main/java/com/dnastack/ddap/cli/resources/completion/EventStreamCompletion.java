@@ -0,0 +1,150 @@
+package com.dnastack.ddap.cli.resources.completion;
+
+import com.dnastack.ddap.cli.client.dam.model.ResourceTokens;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits on the authorization status endpoint as a server-sent event stream, or as a long poll if DDAP holds the
+ * request open and then answers with the tokens. Either way the tokens arrive as soon as the authorization
+ * completes, with one request per wait.
+ * <p>
+ * If DDAP answers an event stream request with an immediate, empty status, it does not support either, so this and
+ * every later wait falls back to another strategy.
+ */
+public class EventStreamCompletion implements AuthorizationCompletionStrategy {
+
+    private static final String EVENT_STREAM = "text/event-stream";
+    private static final long DEFAULT_RECONNECT_MILLIS = 1000;
+
+    private final OkHttpClient sessionHttpClient;
+    private final ObjectMapper objectMapper;
+    private final AuthorizationCompletionStrategy fallback;
+    private volatile boolean unsupported;
+
+    public EventStreamCompletion(OkHttpClient sessionHttpClient, ObjectMapper objectMapper, AuthorizationCompletionStrategy fallback) {
+        this.sessionHttpClient = sessionHttpClient;
+        this.objectMapper = objectMapper;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public String redirectUri(String cliSessionId, String ddapCallbackUrl) {
+        return fallback.redirectUri(cliSessionId, ddapCallbackUrl);
+    }
+
+    @Override
+    public ResourceTokens awaitTokens(String cliSessionId, URI statusUri, Instant deadline) throws InterruptedException {
+        long reconnectMillis = DEFAULT_RECONNECT_MILLIS;
+        while (!unsupported) {
+            final long remainingMillis = Duration.between(Instant.now(), deadline).toMillis();
+            if (remainingMillis <= 0) {
+                throw AuthorizationCompletionStrategy.timeoutException();
+            }
+            final OkHttpClient streamingClient = sessionHttpClient.newBuilder()
+                .readTimeout(remainingMillis, TimeUnit.MILLISECONDS)
+                .build();
+            final Request request = new Request.Builder()
+                .url(statusUri.toString())
+                .header("Accept", EVENT_STREAM + ", application/json")
+                .header("Cache-Control", "no-cache")
+                .build();
+            try (Response response = streamingClient.newCall(request).execute()) {
+                final ResponseBody body = response.body();
+                if (!response.isSuccessful() || body == null) {
+                    // Let the fallback report the error the usual way.
+                    break;
+                }
+                final MediaType contentType = body.contentType();
+                if (contentType == null || !EVENT_STREAM.equals(contentType.type() + "/" + contentType.subtype())) {
+                    final String content = body.string();
+                    if (!content.trim().isEmpty()) {
+                        return objectMapper.readValue(content, ResourceTokens.class);
+                    }
+                    unsupported = true;
+                    break;
+                }
+                final StreamResult result = readEvents(body.source());
+                if (result.tokens != null) {
+                    return result.tokens;
+                }
+                if (result.reconnectMillis != null) {
+                    reconnectMillis = result.reconnectMillis;
+                }
+            } catch (InterruptedIOException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException("Interrupted while waiting for authorize status.");
+                }
+                // The read timed out at the deadline.
+                continue;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to read authorize status events: " + e.getMessage(), e);
+            }
+            // The server closed the stream without sending the tokens.
+            Thread.sleep(Math.min(reconnectMillis, Math.max(0, Duration.between(Instant.now(), deadline).toMillis())));
+        }
+        return fallback.awaitTokens(cliSessionId, statusUri, deadline);
+    }
+
+    private static class StreamResult {
+        private ResourceTokens tokens;
+        private Long reconnectMillis;
+    }
+
+    /**
+     * Reads events until one carries tokens or the stream ends. Events without data (such as keep-alive comments)
+     * are ignored.
+     */
+    private StreamResult readEvents(BufferedSource source) throws IOException {
+        final StreamResult result = new StreamResult();
+        final StringBuilder data = new StringBuilder();
+        String line;
+        while ((line = source.readUtf8Line()) != null) {
+            if (line.isEmpty()) {
+                if (data.length() > 0) {
+                    final ResourceTokens tokens = objectMapper.readValue(data.toString(), ResourceTokens.class);
+                    if (tokens != null && tokens.getCredentials() != null) {
+                        result.tokens = tokens;
+                        return result;
+                    }
+                    data.setLength(0);
+                }
+            } else if (line.startsWith("data:")) {
+                if (data.length() > 0) {
+                    data.append('\n');
+                }
+                data.append(fieldValue(line, "data:"));
+            } else if (line.startsWith("retry:")) {
+                try {
+                    result.reconnectMillis = Long.parseLong(fieldValue(line, "retry:"));
+                } catch (NumberFormatException e) {
+                    // Ignored, as the event stream format requires.
+                }
+            }
+        }
+        return result;
+    }
+
+    private static String fieldValue(String line, String field) {
+        final String value = line.substring(field.length());
+        return value.startsWith(" ") ? value.substring(1) : value;
+    }
+
+    @Override
+    public void close() {
+        fallback.close();
+    }
+}
@@ -0,0 +1,81 @@
+package com.dnastack.ddap.cli.resources.completion;
+
+import com.dnastack.ddap.cli.client.dam.model.ResourceTokens;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Listens on a loopback port and uses it as the redirect URI, for when the browser runs on the same machine. When the
+ * browser arrives, it is sent on to DDAP's own callback and the waiting session checks its status immediately, so the
+ * status only needs to be polled rarely in between.
+ */
+public class LoopbackCompletion implements AuthorizationCompletionStrategy {
+
+    private static final Pattern CALLBACK_PATH = Pattern.compile("^/cli/([^/]+)/authorize/callback$");
+
+    private final BackoffCompletion waiting;
+    private final HttpServer server;
+    private final Map<String, String> ddapCallbackUrlsByCliSessionId = new ConcurrentHashMap<>();
+
+    public LoopbackCompletion(BackoffCompletion waiting) {
+        this.waiting = waiting;
+        try {
+            this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to listen for the authorization callback: " + e.getMessage(), e);
+        }
+        server.createContext("/cli/", this::handleCallback);
+        server.start();
+    }
+
+    @Override
+    public String redirectUri(String cliSessionId, String ddapCallbackUrl) {
+        final int queryStart = ddapCallbackUrl.indexOf('?');
+        final String query = queryStart < 0 ? "" : ddapCallbackUrl.substring(queryStart);
+        ddapCallbackUrlsByCliSessionId.put(cliSessionId, queryStart < 0 ? ddapCallbackUrl : ddapCallbackUrl.substring(0, queryStart));
+        return String.format("http://%s:%d/cli/%s/authorize/callback%s",
+            server.getAddress().getAddress().getHostAddress(),
+            server.getAddress().getPort(),
+            cliSessionId,
+            query);
+    }
+
+    @Override
+    public ResourceTokens awaitTokens(String cliSessionId, URI statusUri, Instant deadline) throws InterruptedException {
+        return waiting.awaitTokens(cliSessionId, statusUri, deadline);
+    }
+
+    private void handleCallback(HttpExchange exchange) throws IOException {
+        try {
+            final Matcher matcher = CALLBACK_PATH.matcher(exchange.getRequestURI().getRawPath());
+            final String ddapCallbackUrl = matcher.matches() ? ddapCallbackUrlsByCliSessionId.get(matcher.group(1)) : null;
+            if (ddapCallbackUrl == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            final String query = exchange.getRequestURI().getRawQuery();
+            exchange.getResponseHeaders().set("Location", query == null ? ddapCallbackUrl : ddapCallbackUrl + "?" + query);
+            exchange.sendResponseHeaders(302, -1);
+            waiting.wakeUp(matcher.group(1));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        waiting.close();
+    }
+}
@@ -0,0 +1,162 @@
+package com.dnastack.ddap.cli.timing;
+
+import org.HdrHistogram.EncodableHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogReader;
+import org.HdrHistogram.HistogramLogWriter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.dnastack.ddap.cli.timing.LatencyLog.HIGHEST_LATENCY_IN_MICROS;
+import static com.dnastack.ddap.cli.timing.LatencyLog.SPOOL_FILE_NAME;
+
+/**
+ * The HdrHistogram interval log that the spool of a {@link LatencyLog} is compacted into, with one interval per
+ * endpoint and minute, tagged with the endpoint. Its base time is zero, so interval timestamps are absolute. It is
+ * rolled over once it grows past {@value #MAX_LOG_SIZE} bytes, keeping one previous log. Callers hold the lock.
+ */
+class HistogramLog {
+
+    private static final String LOG_FILE_NAME = ".ddap-cli-latency.hlog";
+    private static final String PREVIOUS_LOG_FILE_NAME = LOG_FILE_NAME + ".1";
+    private static final long MAX_LOG_SIZE = 8L * 1024 * 1024;
+    private static final long INTERVAL_IN_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final int SIGNIFICANT_DIGITS = 2;
+    /**
+     * So that the log's interval maximums are in milliseconds.
+     */
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final LatencyLog latencyLog;
+
+    HistogramLog(LatencyLog latencyLog) {
+        this.latencyLog = latencyLog;
+    }
+
+    /**
+     * Moves the spooled samples into the log.
+     */
+    void compact() throws IOException {
+        final ByteArrayOutputStream intervals = new ByteArrayOutputStream();
+        final PrintStream intervalStream = new PrintStream(intervals, false, StandardCharsets.US_ASCII);
+        final HistogramLogWriter writer = new HistogramLogWriter(intervalStream);
+        readSpool(Long.MIN_VALUE, (endpoint, latencies) -> writer.outputIntervalHistogram(
+            latencies.getStartTimeStamp() / 1000.0,
+            latencies.getEndTimeStamp() / 1000.0,
+            latencies,
+            MICROS_PER_MILLI));
+        intervalStream.flush();
+
+        final Path log = latencyLog.file(LOG_FILE_NAME);
+        if (Files.exists(log) && Files.size(log) > MAX_LOG_SIZE) {
+            Files.move(log,
+                latencyLog.file(PREVIOUS_LOG_FILE_NAME),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        }
+        if (!Files.exists(log)) {
+            Files.write(log, header(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        Files.write(log, intervals.toByteArray(), StandardOpenOption.APPEND);
+        Files.delete(latencyLog.file(SPOOL_FILE_NAME));
+    }
+
+    private static byte[] header() {
+        final ByteArrayOutputStream header = new ByteArrayOutputStream();
+        final PrintStream headerStream = new PrintStream(header, false, StandardCharsets.US_ASCII);
+        final HistogramLogWriter writer = new HistogramLogWriter(headerStream);
+        writer.outputComment("Latencies of ddap-cli calls to DDAP, in microseconds");
+        writer.outputLogFormatVersion();
+        writer.outputBaseTime(0);
+        writer.outputLegend();
+        headerStream.flush();
+        return header.toByteArray();
+    }
+
+    /**
+     * Reads the intervals that started at or after a time: those of the previous log, the current log, and then the
+     * spool. A partly written last line is skipped.
+     */
+    void read(long sinceMillis, LatencyLog.IntervalConsumer consumer) throws IOException {
+        for (String fileName : List.of(PREVIOUS_LOG_FILE_NAME, LOG_FILE_NAME)) {
+            final File file = latencyLog.file(fileName).toFile();
+            if (!file.isFile()) {
+                continue;
+            }
+            try (InputStream input = new FileInputStream(file);
+                 HistogramLogReader reader = new HistogramLogReader(input)) {
+                while (true) {
+                    final EncodableHistogram interval;
+                    try {
+                        interval = reader.nextIntervalHistogram();
+                    } catch (RuntimeException e) {
+                        break;
+                    }
+                    if (interval == null) {
+                        break;
+                    }
+                    if (interval instanceof Histogram && interval.getTag() != null && interval.getStartTimeStamp() >= sinceMillis) {
+                        consumer.accept(interval.getTag(), (Histogram) interval);
+                    }
+                }
+            }
+        }
+        readSpool(sinceMillis, consumer);
+    }
+
+    private void readSpool(long sinceMillis, LatencyLog.IntervalConsumer consumer) throws IOException {
+        // By interval start, then endpoint.
+        final Map<Long, Map<String, Histogram>> intervals = new TreeMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(latencyLog.file(SPOOL_FILE_NAME), StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String[] fields = line.split(" ");
+                if (fields.length != 3) {
+                    continue;
+                }
+                final long at;
+                final long micros;
+                try {
+                    at = Long.parseLong(fields[0]);
+                    micros = Long.parseLong(fields[2]);
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                final long start = at - at % INTERVAL_IN_MILLIS;
+                if (start < sinceMillis) {
+                    continue;
+                }
+                intervals.computeIfAbsent(start, ignored -> new TreeMap<>())
+                         .computeIfAbsent(fields[1], endpoint -> interval(endpoint, start))
+                         .recordValue(Math.min(Math.max(micros, 1), HIGHEST_LATENCY_IN_MICROS));
+            }
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        intervals.values().forEach(latenciesByEndpoint -> latenciesByEndpoint.forEach(consumer::accept));
+    }
+
+    private static Histogram interval(String endpoint, long start) {
+        final Histogram latencies = new Histogram(1, HIGHEST_LATENCY_IN_MICROS, SIGNIFICANT_DIGITS);
+        latencies.setTag(endpoint);
+        latencies.setStartTimeStamp(start);
+        latencies.setEndTimeStamp(start + INTERVAL_IN_MILLIS);
+        return latencies;
+    }
+}
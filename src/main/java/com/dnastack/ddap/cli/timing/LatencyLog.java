@@ -0,0 +1,117 @@
+package com.dnastack.ddap.cli.timing;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencies of DDAP calls by endpoint, kept in the home directory so that those of many short invocations on a node
+ * can be aggregated by {@code stats}.
+ * <p>
+ * An invocation records its calls in memory, and {@link #flush()} appends them as plain samples to a spool file, under
+ * a file lock that other processes take too. Once the spool grows past {@value #MAX_SPOOL_SIZE} bytes, the flush that
+ * finds it so compacts it into a {@link HistogramLog}. Only compacting and reading use HdrHistogram, so that ordinary
+ * invocations, each in a new JVM, do not load it.
+ */
+public class LatencyLog {
+
+    static final String SPOOL_FILE_NAME = ".ddap-cli-latency.samples";
+    static final long HIGHEST_LATENCY_IN_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final String LOCK_FILE_NAME = ".ddap-cli-latency.lock";
+    private static final long MAX_SPOOL_SIZE = 1024 * 1024;
+
+    @FunctionalInterface
+    public interface IntervalConsumer {
+        /**
+         * Accepts the latencies, in microseconds, of an endpoint over one interval.
+         */
+        void accept(String endpoint, Histogram latencies);
+    }
+
+    @FunctionalInterface
+    interface LockedAction {
+        void run() throws IOException;
+    }
+
+    private final File homeDirectory;
+    /**
+     * Lines of {@code <epoch millis> <endpoint> <microseconds>} not yet flushed.
+     */
+    private final StringBuilder samples = new StringBuilder();
+
+    public LatencyLog(File homeDirectory) {
+        this.homeDirectory = homeDirectory;
+    }
+
+    /**
+     * Records the latency of a call that ends now.
+     *
+     * @param endpoint A name without whitespace.
+     */
+    public void record(String endpoint, long nanos) {
+        final long micros = Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 1), HIGHEST_LATENCY_IN_MICROS);
+        final long now = System.currentTimeMillis();
+        synchronized (samples) {
+            samples.append(now).append(' ').append(endpoint).append(' ').append(micros).append('\n');
+        }
+    }
+
+    /**
+     * Appends the latencies recorded since the last flush to the spool, compacting it if it has grown too large.
+     * Does nothing if none were recorded.
+     */
+    public void flush() throws IOException {
+        final byte[] pending;
+        synchronized (samples) {
+            if (samples.length() == 0) {
+                return;
+            }
+            pending = samples.toString().getBytes(StandardCharsets.US_ASCII);
+            samples.setLength(0);
+        }
+
+        withLock(() -> {
+            final long spoolSize;
+            try (FileChannel spool = FileChannel.open(file(SPOOL_FILE_NAME),
+                                                      StandardOpenOption.CREATE,
+                                                      StandardOpenOption.APPEND)) {
+                spool.write(ByteBuffer.wrap(pending));
+                spoolSize = spool.size();
+            }
+            if (spoolSize > MAX_SPOOL_SIZE) {
+                new HistogramLog(this).compact();
+            }
+        });
+    }
+
+    /**
+     * Reads the intervals that started at or after a time, from the interval log and then from the spool, whose
+     * samples are grouped into intervals the same way.
+     */
+    public void read(long sinceMillis, IntervalConsumer consumer) throws IOException {
+        // Under the lock, so as not to see a compaction half done.
+        withLock(() -> new HistogramLog(this).read(sinceMillis, consumer));
+    }
+
+    void withLock(LockedAction action) throws IOException {
+        // File locks are held by the whole JVM, so threads of one process (the daemon) must take turns first.
+        synchronized (LatencyLog.class) {
+            try (FileChannel lockChannel = FileChannel.open(file(LOCK_FILE_NAME), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock ignored = lockChannel.lock()) {
+                action.run();
+            }
+        }
+    }
+
+    Path file(String fileName) {
+        return new File(homeDirectory, fileName).toPath();
+    }
+}
@@ -0,0 +1,82 @@
+package com.dnastack.ddap.cli.timing;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Latency percentiles of each endpoint in each time window, merged from the intervals of a {@link LatencyLog}.
+ */
+public class LatencyReport {
+
+    private static final String ROW_FORMAT = "%-17s  %-20s %8s %9s %9s %9s %9s %9s%n";
+    private static final DateTimeFormatter WINDOW_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")
+                                                                            .withZone(ZoneOffset.UTC);
+
+    private final long windowMillis;
+    private final SortedMap<Long, SortedMap<String, Histogram>> latenciesByWindow = new TreeMap<>();
+    private final SortedMap<String, Histogram> totalLatencies = new TreeMap<>();
+
+    public LatencyReport(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * Merges the intervals that started at or after a time, each into the window it started in.
+     */
+    public LatencyReport read(LatencyLog latencyLog, long sinceMillis) throws IOException {
+        latencyLog.read(sinceMillis, (endpoint, latencies) -> {
+            final long window = latencies.getStartTimeStamp() - latencies.getStartTimeStamp() % windowMillis;
+            latenciesByWindow.computeIfAbsent(window, ignored -> new TreeMap<>())
+                             .computeIfAbsent(endpoint, ignored -> mergedHistogram())
+                             .add(latencies);
+            totalLatencies.computeIfAbsent(endpoint, ignored -> mergedHistogram()).add(latencies);
+        });
+        return this;
+    }
+
+    /**
+     * Prints a table of the percentiles of each window, then of all windows together.
+     *
+     * @return False if no latencies were read, in which case nothing is printed.
+     */
+    public boolean print(PrintStream output) {
+        if (totalLatencies.isEmpty()) {
+            return false;
+        }
+        output.println("Latencies in milliseconds, by window (UTC) and endpoint:");
+        output.printf(ROW_FORMAT, "WINDOW", "ENDPOINT", "COUNT", "P50", "P90", "P99", "P99.9", "MAX");
+        latenciesByWindow.forEach((window, latenciesByEndpoint) -> latenciesByEndpoint.forEach((endpoint, latencies) ->
+            printRow(output, WINDOW_FORMAT.format(Instant.ofEpochMilli(window)), endpoint, latencies)));
+        totalLatencies.forEach((endpoint, latencies) -> printRow(output, "total", endpoint, latencies));
+        return true;
+    }
+
+    private static Histogram mergedHistogram() {
+        final Histogram histogram = new Histogram(3);
+        histogram.setAutoResize(true);
+        return histogram;
+    }
+
+    private static void printRow(PrintStream output, String window, String endpoint, Histogram latencies) {
+        output.printf(ROW_FORMAT,
+            window,
+            endpoint,
+            latencies.getTotalCount(),
+            microsAsMillis(latencies.getValueAtPercentile(50)),
+            microsAsMillis(latencies.getValueAtPercentile(90)),
+            microsAsMillis(latencies.getValueAtPercentile(99)),
+            microsAsMillis(latencies.getValueAtPercentile(99.9)),
+            microsAsMillis(latencies.getMaxValue()));
+    }
+
+    private static String microsAsMillis(long micros) {
+        return String.format("%.1f", micros / 1000.0);
+    }
+}
@@ -0,0 +1,301 @@
+package com.dnastack.ddap.cli.timing;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Value;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.HttpUrl;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
+
+/**
+ * Records how long the phases of one invocation and each of its HTTP calls take, for {@code --timings}.
+ * <p>
+ * The recorder of the running invocation is found through an inheritable thread local, the way the daemon routes
+ * output, so that clients record their phases without being handed a recorder, and threads started by the invocation
+ * record into it too. When no invocation records timings, {@link #phase(String)} returns a shared no-op and HTTP
+ * calls get OkHttp's no-op listener, so instrumented code costs a thread-local read.
+ */
+public class Timings {
+
+    private static final InheritableThreadLocal<Timings> CURRENT = new InheritableThreadLocal<>();
+    private static final Phase NO_PHASE = () -> {
+    };
+    private static final EventListener.Factory EVENT_LISTENER_FACTORY = call -> {
+        final Timings timings = CURRENT.get();
+        return (timings == null) ? EventListener.NONE : new CallTimer(timings);
+    };
+
+    /**
+     * A phase being timed. Closing it records it.
+     */
+    @FunctionalInterface
+    public interface Phase extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    @Value
+    @JsonInclude(NON_NULL)
+    public static class PhaseTiming {
+        String name;
+        String thread;
+        double startMillis;
+        double durationMillis;
+    }
+
+    /**
+     * One HTTP call, including redirects and retries made within it. DNS, connect and TLS times are those of the
+     * connections it opened, and are absent if it reused one.
+     */
+    @Value
+    @JsonInclude(NON_NULL)
+    public static class CallTiming {
+        String method;
+        String url;
+        String protocol;
+        Integer status;
+        Boolean connectionReused;
+        double startMillis;
+        double durationMillis;
+        Double dnsMillis;
+        Double connectMillis;
+        Double tlsMillis;
+        Double timeToFirstByteMillis;
+        String error;
+    }
+
+    private final String command;
+    private final Instant startedAt;
+    private final long startedAtNanos;
+    private final Double jvmStartupMillis;
+    private final List<PhaseTiming> phases = new ArrayList<>();
+    private final List<CallTiming> calls = new ArrayList<>();
+
+    /**
+     * @param startedAtNanos When the invocation started, from {@link System#nanoTime()}. Phases are timed from then.
+     * @param processStartedAt When the JVM was started for this invocation, or null if it runs in a JVM that was
+     * already running (such as the daemon's).
+     */
+    public Timings(String command, long startedAtNanos, Instant processStartedAt) {
+        this.command = command;
+        this.startedAtNanos = startedAtNanos;
+        this.startedAt = Instant.now().minusNanos(System.nanoTime() - startedAtNanos);
+        this.jvmStartupMillis = (processStartedAt == null) ?
+            null :
+            millis(Duration.between(processStartedAt, startedAt).toNanos());
+    }
+
+    /**
+     * The OkHttp listener factory that times the calls of whichever invocation records timings.
+     */
+    public static EventListener.Factory eventListenerFactory() {
+        return EVENT_LISTENER_FACTORY;
+    }
+
+    /**
+     * Starts timing a phase of the current invocation, if it records timings.
+     */
+    public static Phase phase(String name) {
+        final Timings timings = CURRENT.get();
+        if (timings == null) {
+            return NO_PHASE;
+        }
+        final long start = System.nanoTime();
+        return () -> timings.record(name, start, System.nanoTime());
+    }
+
+    /**
+     * Makes this the recorder of the current thread and of the threads it starts.
+     */
+    public void activate() {
+        CURRENT.set(this);
+    }
+
+    public static void deactivate() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Records a phase that was timed before recording started.
+     */
+    public synchronized void record(String name, long startNanos, long endNanos) {
+        phases.add(new PhaseTiming(name, Thread.currentThread().getName(), millisSinceStart(startNanos), millis(endNanos - startNanos)));
+    }
+
+    private synchronized void record(CallTiming call) {
+        calls.add(call);
+    }
+
+    /**
+     * Writes the report as a single line of JSON.
+     *
+     * @param status The exit status of the invocation.
+     */
+    public synchronized void write(ObjectMapper jsonMapper, OutputStream outputStream, int status) throws IOException {
+        final Map<String, Object> report = new LinkedHashMap<>();
+        report.put("command", command);
+        report.put("status", status);
+        report.put("startedAt", startedAt.toString());
+        if (jvmStartupMillis != null) {
+            report.put("jvmStartupMillis", jvmStartupMillis);
+        }
+        report.put("durationMillis", millis(System.nanoTime() - startedAtNanos));
+        report.put("phases", phases);
+        report.put("httpCalls", calls);
+        jsonMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValue(outputStream, report);
+        outputStream.write('\n');
+        outputStream.flush();
+    }
+
+    private double millisSinceStart(long nanos) {
+        return millis(nanos - startedAtNanos);
+    }
+
+    private static double millis(long nanos) {
+        // Microsecond precision is plenty, and keeps the report short.
+        return Math.round(nanos / 1e3) / 1e3;
+    }
+
+    /**
+     * Times one call. OkHttp sends the events of a call from one thread at a time.
+     */
+    private static class CallTimer extends EventListener {
+        private final Timings timings;
+        private long callStart;
+        private long dnsStart;
+        private long connectStart;
+        private long secureConnectStart;
+        private long requestStart;
+        private Long dnsNanos;
+        private Long connectNanos;
+        private Long tlsNanos;
+        private Long timeToFirstByteNanos;
+        private boolean connected;
+        private boolean acquired;
+        private Protocol protocol;
+        private Integer status;
+
+        CallTimer(Timings timings) {
+            this.timings = timings;
+        }
+
+        @Override
+        public void callStart(Call call) {
+            callStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsStart(Call call, String domainName) {
+            dnsStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+            dnsNanos = add(dnsNanos, System.nanoTime() - dnsStart);
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            connectStart = System.nanoTime();
+            connected = true;
+        }
+
+        @Override
+        public void secureConnectStart(Call call) {
+            secureConnectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectEnd(Call call, Handshake handshake) {
+            tlsNanos = add(tlsNanos, System.nanoTime() - secureConnectStart);
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+            connectNanos = add(connectNanos, System.nanoTime() - connectStart);
+        }
+
+        @Override
+        public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol, IOException ioe) {
+            connectNanos = add(connectNanos, System.nanoTime() - connectStart);
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            protocol = connection.protocol();
+            acquired = true;
+        }
+
+        @Override
+        public void requestHeadersStart(Call call) {
+            requestStart = System.nanoTime();
+        }
+
+        @Override
+        public void responseHeadersStart(Call call) {
+            // Of the last request, if the call made several.
+            timeToFirstByteNanos = System.nanoTime() - requestStart;
+        }
+
+        @Override
+        public void responseHeadersEnd(Call call, Response response) {
+            status = response.code();
+        }
+
+        @Override
+        public void callEnd(Call call) {
+            record(call, null);
+        }
+
+        @Override
+        public void callFailed(Call call, IOException ioe) {
+            record(call, ioe.toString());
+        }
+
+        private void record(Call call, String error) {
+            final long end = System.nanoTime();
+            final HttpUrl url = call.request().url();
+            // Without the query, which may carry identifiers that do not belong in a report.
+            final String location = url.scheme() + "://" + url.host() + ":" + url.port() + url.encodedPath();
+            timings.record(new CallTiming(call.request().method(),
+                location,
+                (protocol == null) ? null : protocol.toString(),
+                status,
+                acquired ? !connected : null,
+                timings.millisSinceStart(callStart),
+                millis(end - callStart),
+                optionalMillis(dnsNanos),
+                optionalMillis(connectNanos),
+                optionalMillis(tlsNanos),
+                optionalMillis(timeToFirstByteNanos),
+                error));
+        }
+
+        private static Long add(Long total, long nanos) {
+            return (total == null) ? nanos : total + nanos;
+        }
+
+        private static Double optionalMillis(Long nanos) {
+            return (nanos == null) ? null : millis(nanos);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.dnastack.ddap.cli.client.dam;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        final CircuitBreaker breaker = new CircuitBreaker(3, 1, TimeUnit.HOURS);
+
+        failTimes(breaker, 2);
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+
+        assertFalse(breaker.tryAcquire());
+        assertEquals(3, breaker.getConsecutiveFailures());
+        assertEquals(3600, breaker.secondsUntilTrial());
+    }
+
+    @Test
+    void successResetsFailures() {
+        final CircuitBreaker breaker = new CircuitBreaker(3, 1, TimeUnit.HOURS);
+
+        failTimes(breaker, 2);
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        failTimes(breaker, 2);
+
+        assertTrue(breaker.tryAcquire());
+        assertEquals(2, breaker.getConsecutiveFailures());
+        assertEquals(0, breaker.secondsUntilTrial());
+    }
+
+    @Test
+    void letsSingleTrialThroughOnceOpen() {
+        final CircuitBreaker breaker = new CircuitBreaker(1, 0, TimeUnit.NANOSECONDS);
+        failTimes(breaker, 1);
+
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+
+        // A failed trial keeps it open, but lets the next trial through.
+        breaker.onFailure();
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+
+        // A released trial tells nothing, so another may be made.
+        breaker.release();
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onSuccess();
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertEquals(0, breaker.getConsecutiveFailures());
+    }
+
+    private static void failTimes(CircuitBreaker breaker, int failures) {
+        for (int i = 0; i < failures; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.dnastack.ddap.cli.client.dam;
+
+import com.dnastack.ddap.cli.client.DdapTransport;
+import com.dnastack.ddap.cli.timing.LatencyLog;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import feign.FeignException;
+import feign.RequestLine;
+import okhttp3.Call;
+import okhttp3.EventListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Calls to a local server that answers each request as the test tells it to.
+ */
+class ResilientInvocationHandlerTest {
+
+    /**
+     * Calls needed before an endpoint is hedged.
+     */
+    private static final int PRIMING_CALLS = 20;
+
+    interface TestClient {
+        @RequestLine("GET /value")
+        String value();
+    }
+
+    @FunctionalInterface
+    interface Responder {
+        /**
+         * Answers the given request, counted from 1.
+         */
+        void respond(int request, HttpExchange exchange) throws Exception;
+    }
+
+    @TempDir
+    Path home;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private final CountDownLatch stopping = new CountDownLatch(1);
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger failedCalls = new AtomicInteger();
+    private final FrontendHealth health = new FrontendHealth();
+    private volatile Responder responder = (request, exchange) -> send(exchange, 200, "\"value\"");
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.createContext("/", this::serve);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        stopping.countDown();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void hedgeWinsOverSlowRequest() throws Exception {
+        final TestClient client = client(ResiliencePolicy.defaults());
+        prime(client);
+        responder = (request, exchange) -> {
+            if (request == 1) {
+                hang();
+            }
+            send(exchange, 200, "\"hedge\"");
+        };
+
+        assertEquals("hedge", client.value());
+
+        assertEquals(2, requests.get());
+        // The slow request is cancelled.
+        awaitFailedCalls(1);
+    }
+
+    @Test
+    void retriesFailedRequest() {
+        final TestClient client = client(ResiliencePolicy.defaults());
+        responder = (request, exchange) -> {
+            if (request == 1) {
+                // Closing the connection without an answer fails the request to read.
+                return;
+            }
+            send(exchange, 200, "\"retry\"");
+        };
+
+        assertEquals("retry", client.value());
+
+        assertEquals(2, requests.get());
+        assertEquals(1, failedCalls.get());
+        assertEquals(0, health.circuitBreaker().getConsecutiveFailures());
+    }
+
+    @Test
+    void deadlineCancelsBothRequests() throws Exception {
+        final TestClient client = client(new ResiliencePolicy(Duration.ofSeconds(1), Map.of(), ResiliencePolicy.DEFAULT_HEDGE_PERCENTILE));
+        prime(client);
+        responder = (request, exchange) -> hang();
+
+        final long start = System.nanoTime();
+        final DdapUnavailableException e = assertThrows(DdapUnavailableException.class, client::value);
+
+        assertTrue(e.getMessage().contains("did not answer value within 1 seconds"), e.getMessage());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+        assertEquals(2, requests.get());
+        awaitFailedCalls(2);
+        assertEquals(1, health.circuitBreaker().getConsecutiveFailures());
+    }
+
+    @Test
+    void nonRetryableFailureIsNotSentAgain() {
+        final TestClient client = client(ResiliencePolicy.defaults());
+        responder = (request, exchange) -> send(exchange, 404, "{}");
+
+        final FeignException e = assertThrows(FeignException.class, client::value);
+
+        assertEquals(404, e.status());
+        assertEquals(1, requests.get());
+        // DDAP answered, so it is up.
+        assertEquals(0, health.circuitBreaker().getConsecutiveFailures());
+    }
+
+    @Test
+    void failsFastOnceServerKeepsFailing() {
+        final TestClient client = client(ResiliencePolicy.defaults());
+        responder = (request, exchange) -> send(exchange, 500, "{}");
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(500, assertThrows(FeignException.class, client::value).status());
+        }
+        final DdapUnavailableException e = assertThrows(DdapUnavailableException.class, client::value);
+
+        assertTrue(e.getMessage().contains("its last 5 calls failed"), e.getMessage());
+        assertEquals(5, requests.get());
+    }
+
+    private TestClient client(ResiliencePolicy policy) {
+        final DdapTransport transport = new DdapTransport();
+        // Without OkHttp's own retries, only the handler under test sends a request again.
+        final okhttp3.OkHttpClient sessionHttpClient = transport.client().newBuilder()
+            .retryOnConnectionFailure(false)
+            .eventListener(new EventListener() {
+                @Override
+                public void callFailed(Call call, IOException ioe) {
+                    failedCalls.incrementAndGet();
+                }
+            })
+            .build();
+        final String url = String.format("http://%s:%d",
+            server.getAddress().getHostString(),
+            server.getAddress().getPort());
+        return FeignClientBuilder.getBuilder(new ObjectMapper(),
+            false,
+            transport,
+            sessionHttpClient,
+            new LatencyLog(home.toFile()),
+            policy,
+            health)
+            .target(TestClient.class, url);
+    }
+
+    /**
+     * Makes enough fast calls for the endpoint to be hedged, then counts requests from 1 again.
+     */
+    private void prime(TestClient client) {
+        for (int i = 0; i < PRIMING_CALLS; i++) {
+            assertEquals("value", client.value());
+        }
+        requests.set(0);
+    }
+
+    private void awaitFailedCalls(int expected) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (failedCalls.get() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, failedCalls.get());
+    }
+
+    private void hang() throws InterruptedException {
+        stopping.await();
+    }
+
+    private void serve(HttpExchange exchange) {
+        try {
+            responder.respond(requests.incrementAndGet(), exchange);
+        } catch (Exception e) {
+            // The test is over.
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        final byte[] content = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, content.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(content);
+        }
+    }
+}
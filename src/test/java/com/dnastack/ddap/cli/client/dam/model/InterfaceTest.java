@@ -0,0 +1,38 @@
+package com.dnastack.ddap.cli.client.dam.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InterfaceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void skipsLabelsThatAreNotStrings() throws Exception {
+        final Interface anInterface = objectMapper.readValue("{"
+            + "\"labels\":{\"platform\":\"gcp\",\"nested\":{\"a\":\"b\",\"c\":{\"d\":1}},\"list\":[\"x\",{\"y\":2}],\"tier\":\"1\"},"
+            + "\"uri\":[\"gs://bucket\"]"
+            + "}", Interface.class);
+
+        assertEquals(Map.of("platform", "gcp", "tier", "1"), anInterface.getLabels());
+        assertEquals(Map.of("uri", List.of("gs://bucket")), anInterface.getBindings());
+    }
+
+    @Test
+    void readsScalarAndArrayBindings() throws Exception {
+        final Interface anInterface = objectMapper.readValue("{"
+            + "\"uri\":[\"gs://a\",{\"skipped\":true},\"gs://b\"],"
+            + "\"region\":\"us\","
+            + "\"absent\":null,"
+            + "\"object\":{\"skipped\":[1]}"
+            + "}", Interface.class);
+
+        assertEquals(List.of("gs://a", "gs://b"), anInterface.getUri());
+        assertEquals(Map.of("uri", List.of("gs://a", "gs://b"), "region", List.of("us")), anInterface.getBindings());
+    }
+}
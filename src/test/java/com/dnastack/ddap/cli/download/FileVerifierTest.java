@@ -0,0 +1,54 @@
+package com.dnastack.ddap.cli.download;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FileVerifierTest {
+
+    private static final int SPLITS = 1000;
+    private static final int MAX_LENGTH = 64 * 1024;
+
+    @Test
+    void combineCrc32cMatchesCrc32cOfWholeData() {
+        final Random random = new Random(42);
+        for (int i = 0; i < SPLITS; i++) {
+            final byte[] data = new byte[random.nextInt(MAX_LENGTH) + 1];
+            random.nextBytes(data);
+            final int split = random.nextInt(data.length + 1);
+
+            final int first = crc32c(data, 0, split);
+            final int second = crc32c(data, split, data.length - split);
+
+            assertEquals(crc32c(data, 0, data.length),
+                FileVerifier.combineCrc32c(first, second, data.length - split),
+                String.format("Split of %d bytes at %d", data.length, split));
+        }
+    }
+
+    @Test
+    void combineCrc32cOfManySegmentsMatchesCrc32cOfWholeData() {
+        final Random random = new Random(7);
+        final byte[] data = new byte[1024 * 1024];
+        random.nextBytes(data);
+
+        int combined = crc32c(data, 0, 0);
+        int offset = 0;
+        while (offset < data.length) {
+            final int length = Math.min(random.nextInt(MAX_LENGTH) + 1, data.length - offset);
+            combined = FileVerifier.combineCrc32c(combined, crc32c(data, offset, length), length);
+            offset += length;
+        }
+
+        assertEquals(crc32c(data, 0, data.length), combined);
+    }
+
+    private static int crc32c(byte[] data, int offset, int length) {
+        final CRC32C crc = new CRC32C();
+        crc.update(data, offset, length);
+        return (int) crc.getValue();
+    }
+}
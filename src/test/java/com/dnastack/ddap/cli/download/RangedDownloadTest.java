@@ -0,0 +1,170 @@
+package com.dnastack.ddap.cli.download;
+
+import com.dnastack.ddap.cli.client.DdapTransport;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Downloads from a local server that serves an object in ranges, as Cloud Storage does.
+ */
+class RangedDownloadTest {
+
+    private static final Pattern RANGE = Pattern.compile("^bytes=(\\d+)-(\\d+)$");
+    private static final String ETAG = "\"v1\"";
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    @TempDir
+    Path directory;
+
+    private HttpServer server;
+    private volatile byte[] object;
+    private volatile boolean ignoreRanges;
+    private volatile String etag = ETAG;
+    private final AtomicInteger rangeRequests = new AtomicInteger();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", this::serve);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void downloadsObjectInRanges() throws Exception {
+        object = randomBytes(10 * CHUNK_SIZE + 123);
+
+        final RangedDownload.Result result = download(4);
+
+        assertEquals(object.length, result.getSize());
+        assertEquals(11, result.getRanges());
+        assertEquals(11, rangeRequests.get());
+        assertArrayEquals(object, Files.readAllBytes(directory.resolve("object")));
+        assertFalse(Files.exists(directory.resolve("object.part")));
+    }
+
+    @Test
+    void downloadsObjectSmallerThanOneRange() throws Exception {
+        object = randomBytes(100);
+
+        final RangedDownload.Result result = download(4);
+
+        assertEquals(1, result.getRanges());
+        assertArrayEquals(object, Files.readAllBytes(directory.resolve("object")));
+    }
+
+    @Test
+    void downloadsEmptyObject() throws Exception {
+        object = new byte[0];
+
+        final RangedDownload.Result result = download(4);
+
+        assertEquals(0, result.getSize());
+        assertEquals(0, Files.size(directory.resolve("object")));
+    }
+
+    @Test
+    void downloadsWholeObjectFromServerIgnoringRanges() throws Exception {
+        object = randomBytes(3 * CHUNK_SIZE);
+        ignoreRanges = true;
+
+        final RangedDownload.Result result = download(4);
+
+        assertEquals(1, result.getRanges());
+        assertArrayEquals(object, Files.readAllBytes(directory.resolve("object")));
+    }
+
+    @Test
+    void failsIfObjectChangesDuringDownload() throws Exception {
+        object = randomBytes(3 * CHUNK_SIZE);
+        etag = null;
+
+        final RangedDownload.DownloadException e = assertThrows(RangedDownload.DownloadException.class, () -> download(2));
+
+        assertTrue(e.getMessage().contains("the object changed during the download"), e.getMessage());
+        assertFalse(Files.exists(directory.resolve("object")));
+        assertFalse(Files.exists(directory.resolve("object.part")));
+    }
+
+    private RangedDownload.Result download(int parallelism) throws RangedDownload.DownloadException {
+        final String url = String.format("http://%s:%d/bucket/object",
+            server.getAddress().getHostString(),
+            server.getAddress().getPort());
+        return new RangedDownload(new DdapTransport(), CHUNK_SIZE, parallelism)
+            .download(url, "token", directory.resolve("object"));
+    }
+
+    /**
+     * Serves the object, in the requested range unless ranges are ignored. Without an ETag, every response carries a
+     * different one, as if the object were replaced after each request.
+     */
+    private void serve(HttpExchange exchange) throws IOException {
+        try {
+            final byte[] content = object;
+            final String currentEtag = (etag != null) ? etag : "\"" + System.nanoTime() + "\"";
+            final String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+            if (ifMatch != null && !ifMatch.equals(currentEtag)) {
+                exchange.sendResponseHeaders(412, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("ETag", currentEtag);
+            final Matcher range = RANGE.matcher(String.valueOf(exchange.getRequestHeaders().getFirst("Range")));
+            if (ignoreRanges || !range.matches()) {
+                send(exchange, 200, content, 0, content.length);
+                return;
+            }
+            rangeRequests.incrementAndGet();
+            final int start = Integer.parseInt(range.group(1));
+            if (start >= content.length) {
+                exchange.getResponseHeaders().set("Content-Range", "bytes */" + content.length);
+                exchange.sendResponseHeaders(416, -1);
+                return;
+            }
+            final int end = Math.min(Integer.parseInt(range.group(2)), content.length - 1);
+            exchange.getResponseHeaders().set("Content-Range", String.format("bytes %d-%d/%d", start, end, content.length));
+            send(exchange, 206, content, start, end - start + 1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] content, int offset, int length) throws IOException {
+        exchange.sendResponseHeaders(status, (length == 0) ? -1 : length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(content, offset, length);
+        }
+    }
+
+    private static byte[] randomBytes(int length) {
+        final byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,51 @@
+package com.dnastack.ddap.cli.output;
+
+import com.dnastack.ddap.cli.client.dam.model.Resource;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NdjsonResourceWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void writesNothingWithoutRows() throws Exception {
+        assertEquals("", write());
+    }
+
+    @Test
+    void endsEveryRowWithNewline() throws Exception {
+        final Resource first = objectMapper.readValue("{\"id\":\"res-0\",\"ui\":{\"label\":\"First\"},\"views\":{}}", Resource.class);
+        final Resource second = objectMapper.readValue("{\"id\":\"res-1\",\"ui\":{\"label\":\"Second\"},\"views\":{}}", Resource.class);
+
+        assertEquals("{\"resource\":\"res-0\",\"label\":\"First\",\"uri\":[]}\n"
+                + "{\"resource\":\"res-1\",\"label\":\"Second\",\"uri\":[]}\n",
+            write(first, second));
+    }
+
+    @Test
+    void writesNoTokensWithoutInterfaces() throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        TokenWriter.writeNdjson(objectMapper, output, Map.of());
+
+        assertEquals("", output.toString(StandardCharsets.UTF_8));
+    }
+
+    private String write(Resource... resources) throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (NdjsonResourceWriter writer = new NdjsonResourceWriter(objectMapper, output)) {
+            for (Resource resource : resources) {
+                writer.write(resource);
+            }
+            writer.finish(Map.of());
+        }
+        return output.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,57 @@
+package com.dnastack.ddap.cli.resources;
+
+import com.dnastack.ddap.cli.client.dam.model.ResourceTokens;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenCacheTest {
+
+    @TempDir
+    Path home;
+
+    @Test
+    void returnsStoredTokens() throws Exception {
+        final TokenCache cache = new TokenCache(home.toFile(), new ObjectMapper());
+        final long now = System.currentTimeMillis();
+
+        assertTrue(cache.put("key", tokens("3600"), now));
+
+        assertEquals("token", cache.get("key", now).orElseThrow().getAccessToken());
+        assertEquals(List.of(".ddap-cli-tokens", ".ddap-cli-tokens.key", ".ddap-cli-tokens.lock"), files());
+    }
+
+    @Test
+    void removesTemporaryFileIfCacheCannotBeReplaced() throws Exception {
+        // A non-empty directory in place of the cache file cannot be replaced.
+        Files.createDirectories(home.resolve(".ddap-cli-tokens").resolve("blocker"));
+        final TokenCache cache = new TokenCache(home.toFile(), new ObjectMapper());
+
+        assertThrows(TokenCache.TokenCacheException.class, () -> cache.put("key", tokens("3600"), System.currentTimeMillis()));
+
+        assertEquals(List.of(".ddap-cli-tokens", ".ddap-cli-tokens.key", ".ddap-cli-tokens.lock"), files());
+    }
+
+    private static ResourceTokens tokens(String expiresIn) {
+        final ResourceTokens tokens = new ResourceTokens();
+        tokens.setCredentials(Map.of("access_token", "token", "expires_in", expiresIn));
+        return tokens;
+    }
+
+    private List<String> files() throws Exception {
+        try (Stream<Path> files = Files.list(home)) {
+            return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+}